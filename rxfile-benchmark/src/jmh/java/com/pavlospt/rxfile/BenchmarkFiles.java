@@ -0,0 +1,88 @@
+package com.pavlospt.rxfile;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Random;
+
+/**
+ * Copyright 2015 Pavlos-Petros Tournaris
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/*
+ * Local temp files the benchmarks copy and sniff.
+ * */
+final class BenchmarkFiles {
+
+  /*
+   * Source sizes shared by the copy benchmarks, from 4KB to 2GB.
+   * */
+  static final String SIZE_4KB = "4096";
+  static final String SIZE_1MB = "1048576";
+  static final String SIZE_64MB = "67108864";
+  static final String SIZE_2GB = "2147483648";
+
+  private static final int CHUNK_SIZE = 1024 * 1024;
+
+  private BenchmarkFiles() {
+  }
+
+  /*
+   * A file of the given size filled with random bytes, starting with the given head.
+   * */
+  static File create(long size, byte[] head) throws IOException {
+    File file = File.createTempFile("rxfile-benchmark", ".bin");
+    file.deleteOnExit();
+    byte[] random = new byte[CHUNK_SIZE];
+    new Random(size).nextBytes(random);
+    FileOutputStream out = new FileOutputStream(file);
+    try {
+      FileChannel channel = out.getChannel();
+      long written = 0;
+      if (head != null) {
+        written += channel.write(ByteBuffer.wrap(head, 0, (int) Math.min(head.length, size)));
+      }
+      while (written < size) {
+        ByteBuffer chunk = ByteBuffer.wrap(random, 0, (int) Math.min(CHUNK_SIZE, size - written));
+        while (chunk.hasRemaining()) {
+          written += channel.write(chunk);
+        }
+      }
+    } finally {
+      out.close();
+    }
+    return file;
+  }
+
+  static File create(long size) throws IOException {
+    return create(size, null);
+  }
+
+  static File createDestination() throws IOException {
+    File file = File.createTempFile("rxfile-benchmark", ".copy");
+    file.deleteOnExit();
+    return file;
+  }
+
+  static void delete(File... files) {
+    for (File file : files) {
+      if (file != null && !file.delete()) {
+        file.deleteOnExit();
+      }
+    }
+  }
+}
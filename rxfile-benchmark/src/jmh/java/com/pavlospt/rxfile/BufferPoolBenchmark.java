@@ -0,0 +1,63 @@
+package com.pavlospt.rxfile;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Copyright 2015 Pavlos-Petros Tournaris
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/*
+ * Getting a copy buffer from the pool, against allocating a direct buffer of the same size for
+ * every copy as the library did before the pool.
+ * */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+public class BufferPoolBenchmark {
+
+  @Param({
+      BenchmarkFiles.SIZE_4KB, BenchmarkFiles.SIZE_1MB, BenchmarkFiles.SIZE_64MB,
+      BenchmarkFiles.SIZE_2GB
+  })
+  public long sourceSize;
+
+  private BufferPool bufferPool;
+
+  @Setup
+  public void createPool() {
+    bufferPool = new BufferPool(BufferPool.DEFAULT_MAX_POOLED_BYTES);
+  }
+
+  @Benchmark
+  public ByteBuffer pooled() {
+    ByteBuffer buffer = bufferPool.acquire(sourceSize);
+    bufferPool.release(buffer);
+    return buffer;
+  }
+
+  @Benchmark
+  public ByteBuffer allocated() {
+    return ByteBuffer.allocateDirect(BufferPool.bufferSizeFor(sourceSize));
+  }
+}
@@ -0,0 +1,98 @@
+package com.pavlospt.rxfile;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Copyright 2015 Pavlos-Petros Tournaris
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/*
+ * The buffered loop of fastChannelCopy() across buffer sizes and kinds, reading a FileChannel or
+ * a channel wrapping an InputStream, which behaves like the pipes some providers hand out.
+ * */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+public class ChannelCopyBenchmark {
+
+  public enum Channel {
+    FILE,
+    STREAM
+  }
+
+  @Param({
+      BenchmarkFiles.SIZE_4KB, BenchmarkFiles.SIZE_1MB, BenchmarkFiles.SIZE_64MB,
+      BenchmarkFiles.SIZE_2GB
+  })
+  public long size;
+
+  @Param({ "16384", "65536", "262144", "1048576" })
+  public int bufferSize;
+
+  @Param({ "FILE", "STREAM" })
+  public Channel channel;
+
+  @Param({ "true", "false" })
+  public boolean direct;
+
+  private File source;
+  private File destination;
+  private ByteBuffer buffer;
+
+  @Setup(Level.Trial)
+  public void createFiles() throws IOException {
+    source = BenchmarkFiles.create(size);
+    destination = BenchmarkFiles.createDestination();
+    buffer = direct ? ByteBuffer.allocateDirect(bufferSize) : ByteBuffer.allocate(bufferSize);
+  }
+
+  @TearDown(Level.Trial)
+  public void deleteFiles() {
+    BenchmarkFiles.delete(source, destination);
+  }
+
+  @Benchmark
+  public long copy() throws IOException {
+    FileInputStream from = new FileInputStream(source);
+    FileOutputStream to = new FileOutputStream(destination);
+    try {
+      ReadableByteChannel src =
+          channel == Channel.FILE ? from.getChannel() : Channels.newChannel(from);
+      buffer.clear();
+      FileCopier.fastChannelCopy(src, to.getChannel(), buffer, null);
+      return to.getChannel().size();
+    } finally {
+      to.close();
+      from.close();
+    }
+  }
+}
@@ -0,0 +1,99 @@
+package com.pavlospt.rxfile;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Copyright 2015 Pavlos-Petros Tournaris
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/*
+ * Copies of regular files through FileCopier, the way imports do them: TRANSFER lets the kernel
+ * move the bytes, BUFFERED goes through a pooled direct buffer as pipes and sockets do.
+ * */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+public class FileCopierBenchmark {
+
+  @Param({
+      BenchmarkFiles.SIZE_4KB, BenchmarkFiles.SIZE_1MB, BenchmarkFiles.SIZE_64MB,
+      BenchmarkFiles.SIZE_2GB
+  })
+  public long size;
+
+  @Param({ "TRANSFER", "BUFFERED" })
+  public CopyMethod method;
+
+  private final BufferPool bufferPool = new BufferPool(BufferPool.DEFAULT_MAX_POOLED_BYTES);
+
+  private File source;
+  private File destination;
+
+  @Setup(Level.Trial)
+  public void createFiles() throws IOException {
+    source = BenchmarkFiles.create(size);
+    destination = BenchmarkFiles.createDestination();
+  }
+
+  @TearDown(Level.Trial)
+  public void deleteFiles() {
+    BenchmarkFiles.delete(source, destination);
+  }
+
+  @Benchmark
+  public CopyMethod copy() throws IOException {
+    FileInputStream from = new FileInputStream(source);
+    FileOutputStream to = new FileOutputStream(destination);
+    try {
+      return FileCopier.copy(from, to, method == CopyMethod.TRANSFER, bufferPool, size, null);
+    } finally {
+      to.close();
+      from.close();
+    }
+  }
+
+  /*
+   * The copy of an import, which reads and sniffs the head before copying the rest.
+   * */
+  @Benchmark
+  public String copySniffed() throws IOException {
+    FileInputStream from = new FileInputStream(source);
+    FileOutputStream to = new FileOutputStream(destination);
+    try {
+      ByteBuffer head = FileCopier.readHead(from, MimeSniffer.HEADER_SIZE);
+      String mimeType = MimeSniffer.sniff(head);
+      FileCopier.copy(from, to, head, method == CopyMethod.TRANSFER, bufferPool, size, null);
+      return mimeType;
+    } finally {
+      to.close();
+      from.close();
+    }
+  }
+}
@@ -0,0 +1,124 @@
+package com.pavlospt.rxfile;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.net.URLConnection;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Copyright 2015 Pavlos-Petros Tournaris
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/*
+ * Telling the type of a file: sniffing its head, in memory and from a temp file, against
+ * guessing from its name with and without the per extension cache.
+ * */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+public class MimeDetectionBenchmark {
+
+  public enum Format {
+    JPEG("IMG_20180603_204505.jpg", 0xFF, 0xD8, 0xFF, 0xE1),
+    PNG("Screenshot_20180603-204505.png", 0x89, 'P', 'N', 'G', 0x0D, 0x0A, 0x1A, 0x0A),
+    MP4("VID_20180603_204505.mp4", 0, 0, 0, 0x18, 'f', 't', 'y', 'p', 'm', 'p', '4', '2'),
+    PDF("Boarding pass.pdf", '%', 'P', 'D', 'F', '-', '1', '.', '4'),
+    ZIP("photos.zip", 'P', 'K', 0x03, 0x04),
+    UNKNOWN("notes.xyz", 'n', 'o', 't', 'e', 's');
+
+    final String fileName;
+    final byte[] head;
+
+    Format(String fileName, int... head) {
+      this.fileName = fileName;
+      this.head = new byte[head.length];
+      for (int i = 0; i < head.length; i++) {
+        this.head[i] = (byte) head[i];
+      }
+    }
+  }
+
+  @Param({ "JPEG", "PNG", "MP4", "PDF", "ZIP", "UNKNOWN" })
+  public Format format;
+
+  private final ExtensionTypes urlConnectionTypes =
+      new ExtensionTypes(new ExtensionTypes.Lookup() {
+        @Override
+        public String typeOf(String extension) {
+          return URLConnection.guessContentTypeFromName("." + extension);
+        }
+      });
+
+  private File file;
+  private ByteBuffer head;
+
+  @Setup(Level.Trial)
+  public void createFile() throws IOException {
+    file = BenchmarkFiles.create(64 * 1024, format.head);
+    FileInputStream from = new FileInputStream(file);
+    try {
+      head = FileCopier.readHead(from, MimeSniffer.HEADER_SIZE);
+    } finally {
+      from.close();
+    }
+  }
+
+  @TearDown(Level.Trial)
+  public void deleteFile() {
+    BenchmarkFiles.delete(file);
+  }
+
+  @Benchmark
+  public String sniff() {
+    return MimeSniffer.sniff(head);
+  }
+
+  @Benchmark
+  public String sniffFile() throws IOException {
+    FileInputStream from = new FileInputStream(file);
+    try {
+      return MimeSniffer.sniff(FileCopier.readHead(from, MimeSniffer.HEADER_SIZE));
+    } finally {
+      from.close();
+    }
+  }
+
+  @Benchmark
+  public String extension() {
+    return ExtensionTypes.extensionOf(format.fileName);
+  }
+
+  @Benchmark
+  public String typeFromName() {
+    return URLConnection.guessContentTypeFromName(format.fileName);
+  }
+
+  @Benchmark
+  public String cachedTypeFromName() {
+    return urlConnectionTypes.typeOfName(format.fileName);
+  }
+}
@@ -0,0 +1,70 @@
+package com.pavlospt.rxfile;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Copyright 2015 Pavlos-Petros Tournaris
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/*
+ * The sample size of sized thumbnail decodes, for camera sized sources and grid sized requests.
+ * */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+public class ThumbnailSizingBenchmark {
+
+  @Param({ "640x480", "4032x3024", "12000x9000" })
+  public String source;
+
+  @Param({ "96x96", "512x384" })
+  public String required;
+
+  private int width;
+  private int height;
+  private int requiredWidth;
+  private int requiredHeight;
+
+  @Setup
+  public void parseSizes() {
+    String[] sourceSize = source.split("x");
+    String[] requiredSize = required.split("x");
+    width = Integer.parseInt(sourceSize[0]);
+    height = Integer.parseInt(sourceSize[1]);
+    requiredWidth = Integer.parseInt(requiredSize[0]);
+    requiredHeight = Integer.parseInt(requiredSize[1]);
+  }
+
+  @Benchmark
+  public int calculateInSampleSize() {
+    return ThumbnailSizing.calculateInSampleSize(width, height, requiredWidth, requiredHeight);
+  }
+
+  @Benchmark
+  public int sampledSize() {
+    int inSampleSize =
+        ThumbnailSizing.calculateInSampleSize(width, height, requiredWidth, requiredHeight);
+    return ThumbnailSizing.sampledSize(width, inSampleSize)
+        + ThumbnailSizing.sampledSize(height, inSampleSize);
+  }
+}
@@ -0,0 +1,71 @@
+package com.pavlospt.rxfile;
+
+import android.net.Uri;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Copyright 2015 Pavlos-Petros Tournaris
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/*
+ * Signals the end of a batch import run with delayErrors, after every other Uri has been
+ * imported. Holds the failure of every Uri that could not be imported, in the order they failed.
+ * A Uri listed more than once has a failure for each of its positions.
+ * */
+public class BatchImportException extends RuntimeException {
+
+  /*
+   * The failure of the Uri at one position of the batch.
+   * */
+  public static final class Failure {
+
+    private final int index;
+    private final Uri uri;
+    private final Throwable error;
+
+    Failure(int index, Uri uri, Throwable error) {
+      this.index = index;
+      this.uri = uri;
+      this.error = error;
+    }
+
+    /*
+     * The position of the Uri in the batch.
+     * */
+    public int getIndex() {
+      return index;
+    }
+
+    public Uri getUri() {
+      return uri;
+    }
+
+    public Throwable getError() {
+      return error;
+    }
+  }
+
+  private final List<Failure> failures;
+
+  BatchImportException(List<Failure> failures) {
+    super(failures.size() + " Uri(s) failed to import", failures.get(0).getError());
+    this.failures = Collections.unmodifiableList(failures);
+  }
+
+  public List<Failure> getFailures() {
+    return failures;
+  }
+}
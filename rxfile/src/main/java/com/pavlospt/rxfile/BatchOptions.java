@@ -0,0 +1,118 @@
+package com.pavlospt.rxfile;
+
+import rx.Scheduler;
+import rx.schedulers.Schedulers;
+
+/**
+ * Copyright 2015 Pavlos-Petros Tournaris
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/*
+ * Options of a concurrent batch import.
+ *
+ * scheduler - The Scheduler every single Uri copy is subscribed on, defaults to Schedulers.io().
+ * maxConcurrency - The maximum number of copies in flight, defaults to the number of processors.
+ * preserveOrder - Emit the Files in the order of the Uris instead of as soon as they land.
+ * delayErrors - Keep importing when a Uri fails and report every failure at the end, through a
+ * BatchImportException, instead of aborting the whole batch on the first one.
+ * mimeMap - Which map will be used to determine the mime type of the resources.
+ * */
+public class BatchOptions {
+
+  private final Scheduler scheduler;
+  private final int maxConcurrency;
+  private final boolean preserveOrder;
+  private final boolean delayErrors;
+  private final RxFile.MimeMap mimeMap;
+
+  private BatchOptions(Builder builder) {
+    this.scheduler = builder.scheduler;
+    this.maxConcurrency = builder.maxConcurrency;
+    this.preserveOrder = builder.preserveOrder;
+    this.delayErrors = builder.delayErrors;
+    this.mimeMap = builder.mimeMap;
+  }
+
+  public static BatchOptions defaults() {
+    return new Builder().build();
+  }
+
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  public Scheduler getScheduler() {
+    return scheduler;
+  }
+
+  public int getMaxConcurrency() {
+    return maxConcurrency;
+  }
+
+  public boolean isPreserveOrder() {
+    return preserveOrder;
+  }
+
+  public boolean isDelayErrors() {
+    return delayErrors;
+  }
+
+  public RxFile.MimeMap getMimeMap() {
+    return mimeMap;
+  }
+
+  public static class Builder {
+
+    private Scheduler scheduler = Schedulers.io();
+    private int maxConcurrency = Runtime.getRuntime().availableProcessors();
+    private boolean preserveOrder = false;
+    private boolean delayErrors = false;
+    private RxFile.MimeMap mimeMap = RxFile.MimeMap.UrlConnection;
+
+    public Builder scheduler(Scheduler scheduler) {
+      if (scheduler == null) throw new IllegalArgumentException("scheduler == null");
+      this.scheduler = scheduler;
+      return this;
+    }
+
+    public Builder maxConcurrency(int maxConcurrency) {
+      if (maxConcurrency <= 0) {
+        throw new IllegalArgumentException("maxConcurrency must be positive: " + maxConcurrency);
+      }
+      this.maxConcurrency = maxConcurrency;
+      return this;
+    }
+
+    public Builder preserveOrder(boolean preserveOrder) {
+      this.preserveOrder = preserveOrder;
+      return this;
+    }
+
+    public Builder delayErrors(boolean delayErrors) {
+      this.delayErrors = delayErrors;
+      return this;
+    }
+
+    public Builder mimeMap(RxFile.MimeMap mimeMap) {
+      if (mimeMap == null) throw new IllegalArgumentException("mimeMap == null");
+      this.mimeMap = mimeMap;
+      return this;
+    }
+
+    public BatchOptions build() {
+      return new BatchOptions(this);
+    }
+  }
+}
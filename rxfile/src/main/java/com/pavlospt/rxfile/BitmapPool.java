@@ -0,0 +1,160 @@
+package com.pavlospt.rxfile;
+
+import android.graphics.Bitmap;
+import android.os.Build;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Copyright 2015 Pavlos-Petros Tournaris
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/*
+ * A pool of mutable bitmaps handed to BitmapFactory.Options.inBitmap, so thumbnail decodes reuse
+ * the memory of thumbnails nobody displays anymore instead of allocating new bitmaps.
+ *
+ * Bitmaps are bucketed per Bitmap.Config and allocation size. Since KitKat any bitmap of the
+ * same config with a large enough allocation can be reused, so a request takes the smallest
+ * one that fits, as long as it does not waste more than MAX_SIZE_MULTIPLE times the memory.
+ * */
+final class BitmapPool {
+
+  private static final int MAX_SIZE_MULTIPLE = 4;
+
+  private final Map<Bitmap.Config, TreeMap<Integer, ArrayDeque<Bitmap>>> buckets =
+      new HashMap<>();
+  // Insertion ordered, the first bitmap is the one that has been pooled for the longest time.
+  private final LinkedHashSet<Bitmap> pooled = new LinkedHashSet<>();
+
+  private long maxBytes;
+  private long retainedBytes;
+
+  private long hitCount;
+  private long missCount;
+  private long putCount;
+  private long rejectedCount;
+  private long evictionCount;
+
+  BitmapPool(long maxBytes) {
+    this.maxBytes = maxBytes;
+  }
+
+  /*
+   * Default to a sixteenth of the heap the app may use.
+   * */
+  static long defaultMaxBytes() {
+    return Runtime.getRuntime().maxMemory() / 16;
+  }
+
+  static int bytesPerPixel(Bitmap.Config config) {
+    if (config == Bitmap.Config.RGB_565 || config == Bitmap.Config.ARGB_4444) return 2;
+    if (config == Bitmap.Config.ALPHA_8) return 1;
+    if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O && config == Bitmap.Config.RGBA_F16) {
+      return 8;
+    }
+    return 4;
+  }
+
+  static boolean isPoolable(Bitmap.Config config) {
+    return config != null
+        && (Build.VERSION.SDK_INT < Build.VERSION_CODES.O || config != Bitmap.Config.HARDWARE);
+  }
+
+  /*
+   * Take a bitmap able to hold a decode of the given size and config, null when there is none.
+   * */
+  synchronized Bitmap get(int width, int height, Bitmap.Config config) {
+    if (width <= 0 || height <= 0 || !isPoolable(config)) return null;
+    int required = width * height * bytesPerPixel(config);
+    TreeMap<Integer, ArrayDeque<Bitmap>> sizes = buckets.get(config);
+    Map.Entry<Integer, ArrayDeque<Bitmap>> fit =
+        sizes == null ? null : sizes.ceilingEntry(required);
+    if (fit == null || fit.getKey() > (long) required * MAX_SIZE_MULTIPLE) {
+      missCount++;
+      return null;
+    }
+    Bitmap bitmap = fit.getValue().pollFirst();
+    if (fit.getValue().isEmpty()) sizes.remove(fit.getKey());
+    pooled.remove(bitmap);
+    retainedBytes -= bitmap.getAllocationByteCount();
+    hitCount++;
+    return bitmap;
+  }
+
+  /*
+   * Hand a bitmap back. Immutable, recycled, hardware or too large bitmaps are rejected.
+   * */
+  synchronized boolean put(Bitmap bitmap) {
+    if (bitmap == null) return false;
+    if (bitmap.isRecycled() || !bitmap.isMutable()
+        || !isPoolable(bitmap.getConfig()) || bitmap.getAllocationByteCount() > maxBytes
+        || pooled.contains(bitmap)) {
+      rejectedCount++;
+      return false;
+    }
+    TreeMap<Integer, ArrayDeque<Bitmap>> sizes = buckets.get(bitmap.getConfig());
+    if (sizes == null) {
+      sizes = new TreeMap<>();
+      buckets.put(bitmap.getConfig(), sizes);
+    }
+    ArrayDeque<Bitmap> bucket = sizes.get(bitmap.getAllocationByteCount());
+    if (bucket == null) {
+      bucket = new ArrayDeque<>();
+      sizes.put(bitmap.getAllocationByteCount(), bucket);
+    }
+    bucket.offerFirst(bitmap);
+    pooled.add(bitmap);
+    retainedBytes += bitmap.getAllocationByteCount();
+    putCount++;
+    trimTo(maxBytes);
+    return true;
+  }
+
+  synchronized void setMaxBytes(long maxBytes) {
+    this.maxBytes = Math.max(0, maxBytes);
+    trimTo(this.maxBytes);
+  }
+
+  synchronized void clear() {
+    trimTo(0);
+  }
+
+  synchronized BitmapPoolStats getStats() {
+    return new BitmapPoolStats(hitCount, missCount, putCount, rejectedCount, evictionCount,
+        pooled.size(), retainedBytes, maxBytes);
+  }
+
+  /*
+   * Recycle the bitmaps pooled for the longest time until the pool fits the given size.
+   * */
+  private void trimTo(long bytes) {
+    Iterator<Bitmap> iterator = pooled.iterator();
+    while (retainedBytes > bytes && iterator.hasNext()) {
+      Bitmap bitmap = iterator.next();
+      iterator.remove();
+      TreeMap<Integer, ArrayDeque<Bitmap>> sizes = buckets.get(bitmap.getConfig());
+      ArrayDeque<Bitmap> bucket = sizes.get(bitmap.getAllocationByteCount());
+      bucket.remove(bitmap);
+      if (bucket.isEmpty()) sizes.remove(bitmap.getAllocationByteCount());
+      retainedBytes -= bitmap.getAllocationByteCount();
+      evictionCount++;
+      bitmap.recycle();
+    }
+  }
+}
@@ -0,0 +1,104 @@
+package com.pavlospt.rxfile;
+
+/**
+ * Copyright 2015 Pavlos-Petros Tournaris
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/*
+ * A snapshot of the counters of the pool of bitmaps reused by thumbnail decodes.
+ * */
+public class BitmapPoolStats {
+
+  private final long hitCount;
+  private final long missCount;
+  private final long putCount;
+  private final long rejectedCount;
+  private final long evictionCount;
+  private final int pooledBitmaps;
+  private final long retainedBytes;
+  private final long maxBytes;
+
+  BitmapPoolStats(long hitCount, long missCount, long putCount, long rejectedCount,
+      long evictionCount, int pooledBitmaps, long retainedBytes, long maxBytes) {
+    this.hitCount = hitCount;
+    this.missCount = missCount;
+    this.putCount = putCount;
+    this.rejectedCount = rejectedCount;
+    this.evictionCount = evictionCount;
+    this.pooledBitmaps = pooledBitmaps;
+    this.retainedBytes = retainedBytes;
+    this.maxBytes = maxBytes;
+  }
+
+  /*
+   * Number of decodes that reused a pooled bitmap.
+   * */
+  public long getHitCount() {
+    return hitCount;
+  }
+
+  /*
+   * Number of decodes that found no pooled bitmap to reuse and allocated a new one.
+   * */
+  public long getMissCount() {
+    return missCount;
+  }
+
+  /*
+   * The share of decodes that reused a pooled bitmap, between 0 and 1.
+   * */
+  public float getHitRate() {
+    long requests = hitCount + missCount;
+    return requests == 0 ? 0f : (float) hitCount / requests;
+  }
+
+  public long getPutCount() {
+    return putCount;
+  }
+
+  /*
+   * Number of bitmaps handed back that could not be pooled: immutable, recycled, hardware or
+   * larger than the pool.
+   * */
+  public long getRejectedCount() {
+    return rejectedCount;
+  }
+
+  /*
+   * Number of pooled bitmaps recycled to keep the pool under its byte budget.
+   * */
+  public long getEvictionCount() {
+    return evictionCount;
+  }
+
+  public int getPooledBitmaps() {
+    return pooledBitmaps;
+  }
+
+  public long getRetainedBytes() {
+    return retainedBytes;
+  }
+
+  public long getMaxBytes() {
+    return maxBytes;
+  }
+
+  @Override public String toString() {
+    return "BitmapPoolStats{hitCount=" + hitCount + ", missCount=" + missCount + ", putCount="
+        + putCount + ", rejectedCount=" + rejectedCount + ", evictionCount=" + evictionCount
+        + ", pooledBitmaps=" + pooledBitmaps + ", retainedBytes=" + retainedBytes
+        + ", maxBytes=" + maxBytes + "}";
+  }
+}
@@ -0,0 +1,147 @@
+package com.pavlospt.rxfile;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+
+/**
+ * Copyright 2015 Pavlos-Petros Tournaris
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/*
+ * A bounded pool of direct ByteBuffers shared by every copy operation.
+ *
+ * Direct buffers are only freed when the GC gets to run their cleaners, so allocating a fresh one
+ * per copy makes native memory spike on large batches. Buffers come in a few fixed sizes, chosen
+ * from the size of the source, and are kept around as long as the pool stays under its byte cap.
+ * */
+final class BufferPool {
+
+  static final int SMALL_BUFFER_SIZE = 16 * 1024;
+  static final int MEDIUM_BUFFER_SIZE = 64 * 1024;
+  static final int LARGE_BUFFER_SIZE = 256 * 1024;
+  static final int HUGE_BUFFER_SIZE = 1024 * 1024;
+
+  static final long DEFAULT_MAX_POOLED_BYTES = 4 * 1024 * 1024;
+
+  private static final int[] BUFFER_SIZES = {
+      SMALL_BUFFER_SIZE, MEDIUM_BUFFER_SIZE, LARGE_BUFFER_SIZE, HUGE_BUFFER_SIZE
+  };
+
+  private final ArrayDeque<ByteBuffer>[] pooled;
+  private long maxPooledBytes;
+  private long pooledBytes;
+
+  private long acquired;
+  private long reused;
+  private long allocated;
+  private long released;
+  private long discarded;
+
+  @SuppressWarnings("unchecked")
+  BufferPool(long maxPooledBytes) {
+    this.maxPooledBytes = maxPooledBytes;
+    this.pooled = new ArrayDeque[BUFFER_SIZES.length];
+    for (int i = 0; i < BUFFER_SIZES.length; i++) {
+      pooled[i] = new ArrayDeque<>();
+    }
+  }
+
+  /*
+   * Pick a buffer size for a source of the given size, sourceSize <= 0 means unknown.
+   * */
+  static int bufferSizeFor(long sourceSize) {
+    if (sourceSize <= 0) {
+      return MEDIUM_BUFFER_SIZE;
+    } else if (sourceSize <= 256 * 1024) {
+      return SMALL_BUFFER_SIZE;
+    } else if (sourceSize <= 8 * 1024 * 1024) {
+      return MEDIUM_BUFFER_SIZE;
+    } else if (sourceSize <= 64 * 1024 * 1024) {
+      return LARGE_BUFFER_SIZE;
+    }
+    return HUGE_BUFFER_SIZE;
+  }
+
+  /*
+   * Get a cleared buffer suitable for copying a source of the given size.
+   * */
+  ByteBuffer acquire(long sourceSize) {
+    int bucket = bucketOf(bufferSizeFor(sourceSize));
+    synchronized (this) {
+      acquired++;
+      ByteBuffer buffer = pooled[bucket].pollFirst();
+      if (buffer != null) {
+        reused++;
+        pooledBytes -= buffer.capacity();
+        buffer.clear();
+        return buffer;
+      }
+      allocated++;
+    }
+    return ByteBuffer.allocateDirect(BUFFER_SIZES[bucket]);
+  }
+
+  /*
+   * Hand a buffer back, it is dropped if the pool is full or it was not acquired from a pool.
+   * */
+  void release(ByteBuffer buffer) {
+    if (buffer == null) return;
+    int bucket = bucketOf(buffer.capacity());
+    synchronized (this) {
+      released++;
+      if (bucket < 0 || !buffer.isDirect() || pooledBytes + buffer.capacity() > maxPooledBytes) {
+        discarded++;
+        return;
+      }
+      pooledBytes += buffer.capacity();
+      pooled[bucket].offerFirst(buffer);
+    }
+  }
+
+  synchronized void setMaxPooledBytes(long maxPooledBytes) {
+    this.maxPooledBytes = Math.max(0, maxPooledBytes);
+    trimTo(this.maxPooledBytes);
+  }
+
+  synchronized void clear() {
+    trimTo(0);
+  }
+
+  synchronized BufferPoolStats getStats() {
+    int pooledBuffers = 0;
+    for (ArrayDeque<ByteBuffer> buffers : pooled) {
+      pooledBuffers += buffers.size();
+    }
+    return new BufferPoolStats(acquired, reused, allocated, released, discarded, pooledBuffers,
+        pooledBytes, maxPooledBytes);
+  }
+
+  private void trimTo(long bytes) {
+    // Drop the largest buffers first, they are the most expensive to keep around.
+    for (int i = pooled.length - 1; i >= 0 && pooledBytes > bytes; i--) {
+      while (pooledBytes > bytes && !pooled[i].isEmpty()) {
+        pooledBytes -= pooled[i].pollFirst().capacity();
+        discarded++;
+      }
+    }
+  }
+
+  private static int bucketOf(int capacity) {
+    for (int i = 0; i < BUFFER_SIZES.length; i++) {
+      if (BUFFER_SIZES[i] == capacity) return i;
+    }
+    return -1;
+  }
+}
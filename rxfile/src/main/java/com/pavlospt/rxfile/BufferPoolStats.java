@@ -0,0 +1,95 @@
+package com.pavlospt.rxfile;
+
+/**
+ * Copyright 2015 Pavlos-Petros Tournaris
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/*
+ * A snapshot of the counters of the copy buffer pool.
+ * */
+public class BufferPoolStats {
+
+  private final long acquireCount;
+  private final long reuseCount;
+  private final long allocationCount;
+  private final long releaseCount;
+  private final long discardCount;
+  private final int pooledBuffers;
+  private final long pooledBytes;
+  private final long maxPooledBytes;
+
+  BufferPoolStats(long acquireCount, long reuseCount, long allocationCount, long releaseCount,
+      long discardCount, int pooledBuffers, long pooledBytes, long maxPooledBytes) {
+    this.acquireCount = acquireCount;
+    this.reuseCount = reuseCount;
+    this.allocationCount = allocationCount;
+    this.releaseCount = releaseCount;
+    this.discardCount = discardCount;
+    this.pooledBuffers = pooledBuffers;
+    this.pooledBytes = pooledBytes;
+    this.maxPooledBytes = maxPooledBytes;
+  }
+
+  /*
+   * Number of buffers handed out to copy operations.
+   * */
+  public long getAcquireCount() {
+    return acquireCount;
+  }
+
+  /*
+   * Number of buffers handed out that were taken from the pool instead of being allocated.
+   * */
+  public long getReuseCount() {
+    return reuseCount;
+  }
+
+  /*
+   * Number of direct buffers allocated because the pool had none of the requested size.
+   * */
+  public long getAllocationCount() {
+    return allocationCount;
+  }
+
+  public long getReleaseCount() {
+    return releaseCount;
+  }
+
+  /*
+   * Number of buffers dropped because keeping them would exceed the pooled bytes cap.
+   * */
+  public long getDiscardCount() {
+    return discardCount;
+  }
+
+  public int getPooledBuffers() {
+    return pooledBuffers;
+  }
+
+  public long getPooledBytes() {
+    return pooledBytes;
+  }
+
+  public long getMaxPooledBytes() {
+    return maxPooledBytes;
+  }
+
+  @Override public String toString() {
+    return "BufferPoolStats{acquireCount=" + acquireCount + ", reuseCount=" + reuseCount
+        + ", allocationCount=" + allocationCount + ", releaseCount=" + releaseCount
+        + ", discardCount=" + discardCount + ", pooledBuffers=" + pooledBuffers
+        + ", pooledBytes=" + pooledBytes + ", maxPooledBytes=" + maxPooledBytes + "}";
+  }
+}
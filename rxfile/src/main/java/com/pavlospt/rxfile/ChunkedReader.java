@@ -0,0 +1,98 @@
+package com.pavlospt.rxfile;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.Callable;
+import rx.Observer;
+import rx.observables.SyncOnSubscribe;
+
+/**
+ * Copyright 2015 Pavlos-Petros Tournaris
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/*
+ * Emits the bytes of a stream as chunks, one read per requested chunk, so a slow subscriber is
+ * never sent more than it asked for and nothing is buffered on its behalf.
+ *
+ * Every chunk is a read-only view of a buffer of the pool, which goes back to the pool as soon as
+ * onNext() returns: subscribers have to consume or copy a chunk before returning, not hand it to
+ * another thread. The stream is opened on the first request, and closed once it is read to the
+ * end, fails or the subscriber unsubscribes.
+ * */
+final class ChunkedReader extends SyncOnSubscribe<ChunkedReader.State, ByteBuffer> {
+
+  private final Callable<? extends FileInputStream> opener;
+  private final BufferPool bufferPool;
+
+  ChunkedReader(Callable<? extends FileInputStream> opener, BufferPool bufferPool) {
+    this.opener = opener;
+    this.bufferPool = bufferPool;
+  }
+
+  @Override
+  protected State generateState() {
+    return new State();
+  }
+
+  @Override
+  protected State next(State state, Observer<? super ByteBuffer> observer) {
+    ByteBuffer buffer = null;
+    try {
+      if (state.stream == null) {
+        state.stream = opener.call();
+        state.channel = state.stream.getChannel();
+        // Chunks are sized like copy buffers, after the size of the file, 0 for pipes.
+        state.size = state.channel.size();
+      }
+      buffer = bufferPool.acquire(state.size);
+      int read;
+      do {
+        read = state.channel.read(buffer);
+      } while (read == 0);
+      if (read == -1) {
+        observer.onCompleted();
+      } else {
+        buffer.flip();
+        observer.onNext(buffer.asReadOnlyBuffer());
+      }
+    } catch (Exception e) {
+      observer.onError(e);
+    } finally {
+      bufferPool.release(buffer);
+    }
+    return state;
+  }
+
+  @Override
+  protected void onUnsubscribe(State state) {
+    if (state.stream == null) {
+      return;
+    }
+    try {
+      state.stream.close();
+    } catch (IOException ignored) {
+      // Nothing was written, there is nothing to lose.
+    }
+  }
+
+  static final class State {
+
+    FileInputStream stream;
+    FileChannel channel;
+    long size;
+  }
+}
@@ -36,6 +36,7 @@ public class Constants {
   public static String IMAGES = "images";
   public static String IMAGE = "image";
   public static String VIDEO = "video";
+  public static String AUDIO = "audio";
   public static String PDF_EXTENSION = "pdf";
 
   public static String FOLDER_SEPARATOR = "/";
@@ -63,6 +64,8 @@ public class Constants {
   public static String DEFAULT_CACHE_DIRECTORY_NAME =
       FOLDER_SEPARATOR + "RxFile" + FOLDER_SEPARATOR;
 
+  public static String THUMBNAIL_CACHE_DIRECTORY_NAME = "RxFile-thumbnails";
+
   public static ArrayList<String> IMAGE_FILE_TYPES =
       new ArrayList<>(Arrays.asList("jpg", "png", "bmp", "jpeg", "ico", "gif"));
 
@@ -0,0 +1,115 @@
+package com.pavlospt.rxfile;
+
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.CRC32;
+
+/**
+ * Copyright 2015 Pavlos-Petros Tournaris
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/*
+ * Computes the requested digests over the bytes handed to it, one buffer at a time, so the copy
+ * loop can digest a file while writing it instead of reading it back afterwards.
+ *
+ * Kept free of Android dependencies on purpose, like FileCopier.
+ * */
+final class CopyDigester {
+
+  private static final int SCRATCH_SIZE = 8 * 1024;
+  private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+  private final Map<DigestAlgorithm, MessageDigest> messageDigests =
+      new EnumMap<>(DigestAlgorithm.class);
+  private final CRC32 crc32;
+  private byte[] scratch;
+
+  CopyDigester(Set<DigestAlgorithm> algorithms) {
+    for (DigestAlgorithm algorithm : algorithms) {
+      if (algorithm == DigestAlgorithm.CRC32) continue;
+      try {
+        messageDigests.put(algorithm, MessageDigest.getInstance(algorithm.getMessageDigestName()));
+      } catch (NoSuchAlgorithmException e) {
+        throw new IllegalStateException(e);
+      }
+    }
+    crc32 = algorithms.contains(DigestAlgorithm.CRC32) ? new CRC32() : null;
+  }
+
+  /*
+   * Digest the bytes between the position and the limit of the buffer, leaving both untouched.
+   * */
+  void update(ByteBuffer buffer) {
+    for (MessageDigest messageDigest : messageDigests.values()) {
+      messageDigest.update(buffer.duplicate());
+    }
+    if (crc32 == null) {
+      return;
+    }
+    if (buffer.hasArray()) {
+      crc32.update(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+      return;
+    }
+    // CRC32.update(ByteBuffer) only exists from API 26 on, direct buffers go through a copy.
+    if (scratch == null) scratch = new byte[SCRATCH_SIZE];
+    ByteBuffer remaining = buffer.duplicate();
+    while (remaining.hasRemaining()) {
+      int count = Math.min(scratch.length, remaining.remaining());
+      remaining.get(scratch, 0, count);
+      crc32.update(scratch, 0, count);
+    }
+  }
+
+  /*
+   * Same as above, for the bytes between from and to.
+   * */
+  void update(ByteBuffer buffer, int from, int to) {
+    ByteBuffer range = buffer.duplicate();
+    range.limit(to);
+    range.position(from);
+    update(range);
+  }
+
+  /*
+   * The lowercase hex digests of everything digested so far. Can only be called once.
+   * */
+  Map<DigestAlgorithm, String> digests() {
+    Map<DigestAlgorithm, String> digests = new EnumMap<>(DigestAlgorithm.class);
+    for (Map.Entry<DigestAlgorithm, MessageDigest> entry : messageDigests.entrySet()) {
+      digests.put(entry.getKey(), toHex(entry.getValue().digest()));
+    }
+    if (crc32 != null) {
+      long value = crc32.getValue();
+      digests.put(DigestAlgorithm.CRC32, toHex(new byte[] {
+          (byte) (value >>> 24), (byte) (value >>> 16), (byte) (value >>> 8), (byte) value
+      }));
+    }
+    return Collections.unmodifiableMap(digests);
+  }
+
+  static String toHex(byte[] bytes) {
+    char[] chars = new char[bytes.length * 2];
+    for (int i = 0; i < bytes.length; i++) {
+      chars[i * 2] = HEX_DIGITS[(bytes[i] >> 4) & 0xf];
+      chars[i * 2 + 1] = HEX_DIGITS[bytes[i] & 0xf];
+    }
+    return new String(chars);
+  }
+}
@@ -0,0 +1,30 @@
+package com.pavlospt.rxfile;
+
+import java.io.IOException;
+
+/**
+ * Copyright 2015 Pavlos-Petros Tournaris
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/*
+ * Notified by FileCopier every time a chunk of bytes has been written to the destination.
+ *
+ * It is called on the copying thread, from inside the copy loop, so it has to be cheap. Throwing
+ * an IOException aborts the copy.
+ * */
+interface CopyListener {
+
+  void onBytesCopied(long bytesCopied) throws IOException;
+}
@@ -0,0 +1,36 @@
+package com.pavlospt.rxfile;
+
+/**
+ * Copyright 2015 Pavlos-Petros Tournaris
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/*
+ * The way the bytes of an import ended up in the Library's cache folder.
+ * */
+public enum CopyMethod {
+  /*
+   * Both ends were regular files, the kernel moved the bytes with FileChannel.transferTo().
+   * */
+  TRANSFER,
+  /*
+   * The source was a pipe or a socket, or digests were requested, the bytes were pumped through
+   * a user-space buffer.
+   * */
+  BUFFERED,
+  /*
+   * A copy of the same source was already in the Library's cache folder, nothing was copied.
+   * */
+  CACHED
+}
@@ -0,0 +1,44 @@
+package com.pavlospt.rxfile;
+
+/**
+ * Copyright 2015 Pavlos-Petros Tournaris
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/*
+ * A digest computed over the bytes of an import as they are copied, see
+ * RxFile.importFromUri(Context, Uri, DigestAlgorithm...).
+ * */
+public enum DigestAlgorithm {
+  MD5("MD5"),
+  SHA_1("SHA-1"),
+  SHA_256("SHA-256"),
+  /*
+   * Not a MessageDigest, reported as the 8 hex digits of its value.
+   * */
+  CRC32(null);
+
+  private final String messageDigestName;
+
+  DigestAlgorithm(String messageDigestName) {
+    this.messageDigestName = messageDigestName;
+  }
+
+  /*
+   * The name of the java.security.MessageDigest algorithm, null for CRC32.
+   * */
+  String getMessageDigestName() {
+    return messageDigestName;
+  }
+}
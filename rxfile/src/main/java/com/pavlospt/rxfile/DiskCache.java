@@ -0,0 +1,429 @@
+package com.pavlospt.rxfile;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Copyright 2015 Pavlos-Petros Tournaris
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/*
+ * A directory of entries kept under a byte budget, evicting the least recently used ones.
+ *
+ * Every entry is a sub directory named after its key. Writes and accesses are appended to a
+ * journal file, so the access order survives process death. Eviction runs on a background thread
+ * and skips pinned entries, the ones currently handed to a subscriber.
+ * */
+final class DiskCache {
+
+  static final String JOURNAL_FILE_NAME = "journal";
+
+  private static final String JOURNAL_TEMP_FILE_NAME = "journal.tmp";
+  /*
+   * Evicted entries are renamed with this prefix under the lock, then deleted outside of it.
+   * */
+  private static final String EVICTED_PREFIX = ".evicted-";
+  private static final String JOURNAL_HEADER = "rxfile.journal 1";
+  private static final String WRITE = "W";
+  private static final String READ = "R";
+  private static final String DELETE = "D";
+
+  /*
+   * Compact the journal once it holds this many more lines than there are entries.
+   * */
+  private static final int REDUNDANT_OP_COMPACT_THRESHOLD = 2000;
+
+  private static final ExecutorService EVICTION_EXECUTOR =
+      new ThreadPoolExecutor(0, 1, 30, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+          new ThreadFactory() {
+            @Override public Thread newThread(Runnable runnable) {
+              Thread thread = new Thread(runnable, "RxFile-DiskCache");
+              thread.setDaemon(true);
+              thread.setPriority(Thread.MIN_PRIORITY);
+              return thread;
+            }
+          });
+
+  private final File directory;
+  private final File journalFile;
+  // Access ordered, the eldest entry is the least recently used one.
+  private final LinkedHashMap<String, Long> entries = new LinkedHashMap<>(16, 0.75f, true);
+  private final Map<String, Integer> pins = new HashMap<>();
+  private final Map<String, WriteLock> writeLocks = new HashMap<>();
+
+  private long maxBytes;
+  private long size;
+  private int redundantOpCount;
+  private boolean trimScheduled;
+  private Writer journalWriter;
+
+  private long evictionCount;
+
+  private DiskCache(File directory, long maxBytes) {
+    this.directory = directory;
+    this.journalFile = new File(directory, JOURNAL_FILE_NAME);
+    this.maxBytes = maxBytes;
+  }
+
+  /*
+   * Open the cache in the given directory, replaying its journal if there is one.
+   * */
+  static DiskCache open(File directory, long maxBytes) throws IOException {
+    if (!directory.isDirectory() && !directory.mkdirs()) {
+      throw new IOException("Could not create cache directory: " + directory);
+    }
+    DiskCache cache = new DiskCache(directory, maxBytes);
+    cache.deleteEvictedLeftovers();
+    cache.readJournal();
+    cache.adoptUnjournaledEntries();
+    cache.rebuildJournal();
+    cache.scheduleTrim();
+    return cache;
+  }
+
+  File getDirectory() {
+    return directory;
+  }
+
+  File entryDirectory(String key) {
+    return new File(directory, key);
+  }
+
+  /*
+   * Keep the entry out of eviction until it is unpinned as many times.
+   * */
+  synchronized void pin(String key) {
+    Integer count = pins.get(key);
+    pins.put(key, count == null ? 1 : count + 1);
+  }
+
+  synchronized void unpin(String key) {
+    Integer count = pins.get(key);
+    if (count == null) return;
+    if (count == 1) {
+      pins.remove(key);
+      scheduleTrim();
+    } else {
+      pins.put(key, count - 1);
+    }
+  }
+
+  /*
+   * Let a single writer at a time into the entry directory, until endWrite(). The others wait
+   * for it, and then find what it left there instead of clobbering its files.
+   * */
+  void beginWrite(String key) {
+    WriteLock writeLock;
+    synchronized (this) {
+      writeLock = writeLocks.get(key);
+      if (writeLock == null) {
+        writeLock = new WriteLock();
+        writeLocks.put(key, writeLock);
+      }
+      writeLock.holders++;
+    }
+    writeLock.lock.lock();
+  }
+
+  synchronized void endWrite(String key) {
+    WriteLock writeLock = writeLocks.get(key);
+    writeLock.lock.unlock();
+    if (--writeLock.holders == 0) {
+      writeLocks.remove(key);
+    }
+  }
+
+  /*
+   * Mark an entry as just used.
+   * */
+  synchronized void recordAccess(String key) throws IOException {
+    if (entries.get(key) == null) return;
+    appendToJournal(READ, key, -1);
+  }
+
+  /*
+   * Record the size of an entry after it has been written, evicting others if needed.
+   * */
+  synchronized void recordWrite(String key) throws IOException {
+    long entrySize = sizeOf(entryDirectory(key));
+    Long previous = entries.put(key, entrySize);
+    size += entrySize - (previous == null ? 0 : previous);
+    appendToJournal(WRITE, key, entrySize);
+    scheduleTrim();
+  }
+
+  /*
+   * Drop an entry and move its directory out of the way, returning where it went so it can be
+   * deleted once the lock is released. A new write of the same key starts from an empty entry.
+   * */
+  private File evictLocked(String key) throws IOException {
+    Long entrySize = entries.remove(key);
+    if (entrySize != null) {
+      size -= entrySize;
+      appendToJournal(DELETE, key, -1);
+    }
+    evictionCount++;
+    File entryDirectory = entryDirectory(key);
+    File evicted = new File(directory, EVICTED_PREFIX + key + "-" + System.nanoTime());
+    if (entryDirectory.renameTo(evicted)) {
+      return evicted;
+    }
+    // Could not be moved aside, delete it in place rather than leave it unaccounted for.
+    deleteRecursively(entryDirectory);
+    return null;
+  }
+
+  synchronized void setMaxBytes(long maxBytes) {
+    this.maxBytes = maxBytes;
+    scheduleTrim();
+  }
+
+  synchronized long getMaxBytes() {
+    return maxBytes;
+  }
+
+  synchronized long size() {
+    return size;
+  }
+
+  synchronized long evictionCount() {
+    return evictionCount;
+  }
+
+  /*
+   * Evict the least recently used unpinned entries until the cache fits its budget.
+   * */
+  void trimToSize() throws IOException {
+    List<File> evictedDirectories = new ArrayList<>();
+    try {
+      synchronized (this) {
+        trimScheduled = false;
+        Iterator<Map.Entry<String, Long>> iterator = entries.entrySet().iterator();
+        List<String> evicted = new ArrayList<>();
+        long remaining = size;
+        while (remaining > maxBytes && iterator.hasNext()) {
+          Map.Entry<String, Long> entry = iterator.next();
+          if (pins.containsKey(entry.getKey())) continue;
+          remaining -= entry.getValue();
+          evicted.add(entry.getKey());
+        }
+        for (String key : evicted) {
+          File evictedDirectory = evictLocked(key);
+          if (evictedDirectory != null) evictedDirectories.add(evictedDirectory);
+        }
+        if (journalNeedsCompaction()) {
+          rebuildJournal();
+        }
+      }
+    } finally {
+      // The slow part, outside of the lock so imports and lookups are not held up by it.
+      for (File evictedDirectory : evictedDirectories) {
+        deleteRecursively(evictedDirectory);
+      }
+    }
+  }
+
+  private boolean journalNeedsCompaction() {
+    return redundantOpCount >= REDUNDANT_OP_COMPACT_THRESHOLD
+        && redundantOpCount >= entries.size();
+  }
+
+  private void scheduleTrim() {
+    if (trimScheduled || (size <= maxBytes && !journalNeedsCompaction())) {
+      return;
+    }
+    trimScheduled = true;
+    EVICTION_EXECUTOR.execute(new Runnable() {
+      @Override public void run() {
+        try {
+          trimToSize();
+        } catch (IOException ignored) {
+          // The next write schedules another trim.
+        }
+      }
+    });
+  }
+
+  /*
+   * Delete what a trim moved aside but did not get to delete before the process died.
+   * */
+  private void deleteEvictedLeftovers() {
+    File[] children = directory.listFiles();
+    if (children == null) return;
+    for (File child : children) {
+      if (child.getName().startsWith(EVICTED_PREFIX)) {
+        deleteRecursively(child);
+      }
+    }
+  }
+
+  private void readJournal() throws IOException {
+    if (!journalFile.isFile()) return;
+    BufferedReader reader =
+        new BufferedReader(new InputStreamReader(new FileInputStream(journalFile), "UTF-8"));
+    try {
+      if (!JOURNAL_HEADER.equals(reader.readLine())) return;
+      String line;
+      int lineCount = 0;
+      while ((line = reader.readLine()) != null) {
+        lineCount++;
+        String[] parts = line.split(" ");
+        if (parts.length < 2) continue;
+        String key = parts[1];
+        if (WRITE.equals(parts[0]) && parts.length == 3) {
+          try {
+            entries.put(key, Long.parseLong(parts[2]));
+          } catch (NumberFormatException ignored) {
+            // A torn last line, the entry gets adopted from the directory listing instead.
+          }
+        } else if (READ.equals(parts[0])) {
+          entries.get(key);
+        } else if (DELETE.equals(parts[0])) {
+          entries.remove(key);
+        }
+      }
+      redundantOpCount = lineCount - entries.size();
+    } finally {
+      reader.close();
+    }
+  }
+
+  /*
+   * Drop journaled entries that are gone from disk and adopt entries missing from the journal,
+   * as the least recently used ones, in last modified order.
+   * */
+  private void adoptUnjournaledEntries() {
+    Iterator<Map.Entry<String, Long>> iterator = entries.entrySet().iterator();
+    while (iterator.hasNext()) {
+      if (!entryDirectory(iterator.next().getKey()).isDirectory()) {
+        iterator.remove();
+      }
+    }
+    File[] children = directory.listFiles();
+    List<File> unjournaled = new ArrayList<>();
+    if (children != null) {
+      for (File child : children) {
+        if (child.isDirectory() && !entries.containsKey(child.getName())) {
+          unjournaled.add(child);
+        }
+      }
+    }
+    Collections.sort(unjournaled, new Comparator<File>() {
+      @Override public int compare(File left, File right) {
+        long l = left.lastModified();
+        long r = right.lastModified();
+        return l < r ? -1 : (l == r ? 0 : 1);
+      }
+    });
+    LinkedHashMap<String, Long> ordered = new LinkedHashMap<>(16, 0.75f, true);
+    for (File child : unjournaled) {
+      ordered.put(child.getName(), sizeOf(child));
+    }
+    ordered.putAll(entries);
+    entries.clear();
+    entries.putAll(ordered);
+    size = 0;
+    for (Long entrySize : entries.values()) {
+      size += entrySize;
+    }
+  }
+
+  /*
+   * Write a journal holding only the current entries, in access order, and swap it in.
+   * */
+  private void rebuildJournal() throws IOException {
+    if (journalWriter != null) {
+      journalWriter.close();
+      journalWriter = null;
+    }
+    File temp = new File(directory, JOURNAL_TEMP_FILE_NAME);
+    Writer writer =
+        new BufferedWriter(new OutputStreamWriter(new FileOutputStream(temp), "UTF-8"));
+    try {
+      writer.write(JOURNAL_HEADER + "\n");
+      for (Map.Entry<String, Long> entry : entries.entrySet()) {
+        writer.write(WRITE + " " + entry.getKey() + " " + entry.getValue() + "\n");
+      }
+    } finally {
+      writer.close();
+    }
+    if (!temp.renameTo(journalFile)) {
+      throw new IOException("Could not replace journal: " + journalFile);
+    }
+    redundantOpCount = 0;
+  }
+
+  private void appendToJournal(String op, String key, long entrySize) throws IOException {
+    if (journalWriter == null) {
+      journalWriter = new BufferedWriter(
+          new OutputStreamWriter(new FileOutputStream(journalFile, true), "UTF-8"));
+    }
+    journalWriter.write(entrySize < 0 ? op + " " + key + "\n" : op + " " + key + " " + entrySize
+        + "\n");
+    journalWriter.flush();
+    redundantOpCount++;
+  }
+
+  static long sizeOf(File file) {
+    if (file.isFile()) return file.length();
+    File[] children = file.listFiles();
+    if (children == null) return 0;
+    long total = 0;
+    for (File child : children) {
+      total += sizeOf(child);
+    }
+    return total;
+  }
+
+  static void deleteRecursively(File file) {
+    File[] children = file.listFiles();
+    if (children != null) {
+      for (File child : children) {
+        deleteRecursively(child);
+      }
+    }
+    //noinspection ResultOfMethodCallIgnored
+    file.delete();
+  }
+
+  /*
+   * The writer of an entry and the number of those holding or waiting for it.
+   * */
+  private static final class WriteLock {
+    final ReentrantLock lock = new ReentrantLock();
+    int holders;
+  }
+}
@@ -0,0 +1,107 @@
+package com.pavlospt.rxfile;
+
+import android.net.Uri;
+import android.provider.DocumentsContract;
+
+/**
+ * Copyright 2015 Pavlos-Petros Tournaris
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/*
+ * A document found while walking a document tree, see RxFile.walkDocumentTree(): what the single
+ * query listing its directory told about it, and where it sits in the tree.
+ * */
+public class DocumentEntry {
+
+  private final Uri uri;
+  private final String documentId;
+  private final String path;
+  private final int depth;
+  private final String displayName;
+  private final String mimeType;
+  private final long size;
+  private final long lastModified;
+
+  DocumentEntry(Uri uri, String documentId, String path, int depth, String displayName,
+      String mimeType, long size, long lastModified) {
+    this.uri = uri;
+    this.documentId = documentId;
+    this.path = path;
+    this.depth = depth;
+    this.displayName = displayName;
+    this.mimeType = mimeType;
+    this.size = size;
+    this.lastModified = lastModified;
+  }
+
+  /*
+   * The document Uri, granted through the tree, that can be imported or opened directly.
+   * */
+  public Uri getUri() {
+    return uri;
+  }
+
+  public String getDocumentId() {
+    return documentId;
+  }
+
+  /*
+   * The display names from the root of the tree down to this document, joined with '/'.
+   * */
+  public String getPath() {
+    return path;
+  }
+
+  /*
+   * 1 for the documents right under the root of the tree.
+   * */
+  public int getDepth() {
+    return depth;
+  }
+
+  public String getDisplayName() {
+    return displayName;
+  }
+
+  /*
+   * The type declared by the provider, DocumentsContract.Document.MIME_TYPE_DIR for directories.
+   * */
+  public String getMimeType() {
+    return mimeType;
+  }
+
+  public boolean isDirectory() {
+    return DocumentsContract.Document.MIME_TYPE_DIR.equals(mimeType);
+  }
+
+  /*
+   * The size in bytes, 0 when the provider does not tell.
+   * */
+  public long getSize() {
+    return size;
+  }
+
+  /*
+   * The last modified time in milliseconds, 0 when the provider does not tell.
+   * */
+  public long getLastModified() {
+    return lastModified;
+  }
+
+  @Override public String toString() {
+    return "DocumentEntry{uri=" + uri + ", path=" + path + ", mimeType=" + mimeType + ", size="
+        + size + ", lastModified=" + lastModified + "}";
+  }
+}
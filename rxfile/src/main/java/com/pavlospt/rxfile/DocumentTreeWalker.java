@@ -0,0 +1,212 @@
+package com.pavlospt.rxfile;
+
+import android.annotation.TargetApi;
+import android.content.ContentResolver;
+import android.database.Cursor;
+import android.net.Uri;
+import android.os.Build;
+import android.provider.DocumentsContract;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+import rx.Observable;
+import rx.Observer;
+import rx.functions.Action0;
+import rx.functions.Action1;
+import rx.functions.Func0;
+import rx.functions.Func1;
+import rx.observables.SyncOnSubscribe;
+import rx.subjects.Subject;
+import rx.subjects.UnicastSubject;
+
+/**
+ * Copyright 2015 Pavlos-Petros Tournaris
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/*
+ * Walks a document tree granted through ACTION_OPEN_DOCUMENT_TREE with one projected query per
+ * directory, instead of the query per child DocumentFile.listFiles() costs.
+ *
+ * Directories found while listing are fed back into a single flatMap(), so maxConcurrency bounds
+ * the listings running across the whole tree rather than per level. Every listing reads its
+ * cursor one row per request, so a slow subscriber holds back the walk and at most a buffer of
+ * entries per running listing is kept on its behalf, however large the tree.
+ * */
+@TargetApi(Build.VERSION_CODES.LOLLIPOP)
+final class DocumentTreeWalker {
+
+  private static final String[] PROJECTION = {
+      DocumentsContract.Document.COLUMN_DOCUMENT_ID,
+      DocumentsContract.Document.COLUMN_DISPLAY_NAME,
+      DocumentsContract.Document.COLUMN_MIME_TYPE, DocumentsContract.Document.COLUMN_SIZE,
+      DocumentsContract.Document.COLUMN_LAST_MODIFIED
+  };
+
+  private final ContentResolver contentResolver;
+  private final Uri treeUri;
+  private final TreeWalkOptions options;
+
+  DocumentTreeWalker(ContentResolver contentResolver, Uri treeUri, TreeWalkOptions options) {
+    this.contentResolver = contentResolver;
+    this.treeUri = treeUri;
+    this.options = options;
+  }
+
+  Observable<DocumentEntry> walk() {
+    return Observable.defer(new Func0<Observable<DocumentEntry>>() {
+      @Override
+      public Observable<DocumentEntry> call() {
+        final Subject<DocumentEntry, DocumentEntry> directories =
+            UnicastSubject.<DocumentEntry>create().toSerialized();
+        // Directories found but not listed yet, the walk is over once there are none left.
+        final AtomicInteger pending = new AtomicInteger(1);
+        String rootId = DocumentsContract.getTreeDocumentId(treeUri);
+        directories.onNext(new DocumentEntry(
+            DocumentsContract.buildDocumentUriUsingTree(treeUri, rootId), rootId, "", 0, null,
+            DocumentsContract.Document.MIME_TYPE_DIR, 0, 0));
+        return directories.flatMap(new Func1<DocumentEntry, Observable<DocumentEntry>>() {
+          @Override
+          public Observable<DocumentEntry> call(DocumentEntry directory) {
+            return walkInto(directory, directories, pending);
+          }
+        }, options.getMaxConcurrency());
+      }
+    });
+  }
+
+  /*
+   * The entries of one directory, feeding its subdirectories back to be listed in turn.
+   * */
+  private Observable<DocumentEntry> walkInto(DocumentEntry directory,
+      final Subject<DocumentEntry, DocumentEntry> directories, final AtomicInteger pending) {
+    return Observable.create(new Listing(contentResolver, treeUri, directory))
+        .subscribeOn(options.getScheduler())
+        .filter(new Func1<DocumentEntry, Boolean>() {
+          @Override
+          public Boolean call(DocumentEntry entry) {
+            return !options.getExclude().call(entry);
+          }
+        })
+        .doOnNext(new Action1<DocumentEntry>() {
+          @Override
+          public void call(DocumentEntry entry) {
+            if (entry.isDirectory()) {
+              pending.incrementAndGet();
+              directories.onNext(entry);
+            }
+          }
+        })
+        .filter(new Func1<DocumentEntry, Boolean>() {
+          @Override
+          public Boolean call(DocumentEntry entry) {
+            return entry.isDirectory() ? options.isEmitDirectories()
+                : options.getInclude().call(entry);
+          }
+        })
+        .doOnCompleted(new Action0() {
+          @Override
+          public void call() {
+            if (pending.decrementAndGet() == 0) {
+              directories.onCompleted();
+            }
+          }
+        });
+  }
+
+  /*
+   * Lists a directory with a single query, opened on the first request and read one row per
+   * requested entry. The cursor is closed once read to the end, on error or on unsubscription.
+   * */
+  private static final class Listing extends SyncOnSubscribe<Listing.State, DocumentEntry> {
+
+    private final ContentResolver contentResolver;
+    private final Uri treeUri;
+    private final DocumentEntry directory;
+
+    Listing(ContentResolver contentResolver, Uri treeUri, DocumentEntry directory) {
+      this.contentResolver = contentResolver;
+      this.treeUri = treeUri;
+      this.directory = directory;
+    }
+
+    @Override
+    protected State generateState() {
+      return new State();
+    }
+
+    @Override
+    protected State next(State state, Observer<? super DocumentEntry> observer) {
+      try {
+        if (state.cursor == null) {
+          Uri children = DocumentsContract.buildChildDocumentsUriUsingTree(treeUri,
+              directory.getDocumentId());
+          state.cursor = contentResolver.query(children, PROJECTION, null, null, null);
+          if (state.cursor == null) {
+            throw new IOException("Could not list: " + children);
+          }
+        }
+        if (state.cursor.moveToNext()) {
+          observer.onNext(entry(state.cursor));
+          return state;
+        }
+        // Closed before completing, which lets flatMap() start the next listing.
+        close(state);
+        observer.onCompleted();
+      } catch (Exception e) {
+        close(state);
+        observer.onError(e);
+      }
+      return state;
+    }
+
+    @Override
+    protected void onUnsubscribe(State state) {
+      close(state);
+    }
+
+    private static void close(State state) {
+      if (state.cursor != null) {
+        state.cursor.close();
+        state.cursor = null;
+      }
+    }
+
+    private DocumentEntry entry(Cursor cursor) {
+      String documentId = getString(cursor, DocumentsContract.Document.COLUMN_DOCUMENT_ID);
+      String displayName = getString(cursor, DocumentsContract.Document.COLUMN_DISPLAY_NAME);
+      String path = directory.getDepth() == 0 ? displayName
+          : directory.getPath() + '/' + displayName;
+      return new DocumentEntry(DocumentsContract.buildDocumentUriUsingTree(treeUri, documentId),
+          documentId, path, directory.getDepth() + 1, displayName,
+          getString(cursor, DocumentsContract.Document.COLUMN_MIME_TYPE),
+          getLong(cursor, DocumentsContract.Document.COLUMN_SIZE),
+          getLong(cursor, DocumentsContract.Document.COLUMN_LAST_MODIFIED));
+    }
+
+    static final class State {
+
+      Cursor cursor;
+    }
+  }
+
+  private static String getString(Cursor cursor, String column) {
+    int index = cursor.getColumnIndex(column);
+    return index < 0 || cursor.isNull(index) ? null : cursor.getString(index);
+  }
+
+  private static long getLong(Cursor cursor, String column) {
+    int index = cursor.getColumnIndex(column);
+    return index < 0 || cursor.isNull(index) ? 0 : cursor.getLong(index);
+  }
+}
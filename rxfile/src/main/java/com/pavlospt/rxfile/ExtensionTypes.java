@@ -0,0 +1,68 @@
+package com.pavlospt.rxfile;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Copyright 2015 Pavlos-Petros Tournaris
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/*
+ * Remembers the mime type a lookup gives for each file extension, in a lock-free map so
+ * concurrent imports never wait on each other.
+ *
+ * Kept free of Android dependencies on purpose, the lookup itself is handed in.
+ * */
+final class ExtensionTypes {
+
+  /*
+   * Longer "extensions" are most likely whole names without a dot, not worth remembering.
+   * */
+  static final int MAX_CACHED_EXTENSION_LENGTH = 8;
+
+  // ConcurrentHashMap does not take null values, this stands for "no type known".
+  private static final String NO_TYPE = "";
+
+  interface Lookup {
+    String typeOf(String extension);
+  }
+
+  private final ConcurrentHashMap<String, String> types = new ConcurrentHashMap<>();
+  private final Lookup lookup;
+
+  ExtensionTypes(Lookup lookup) {
+    this.lookup = lookup;
+  }
+
+  /*
+   * What follows the last '.' of the name, the whole name when there is none.
+   * */
+  static String extensionOf(String fileName) {
+    return fileName.substring(fileName.lastIndexOf('.') + 1);
+  }
+
+  String typeOfName(String fileName) {
+    return typeOf(extensionOf(fileName));
+  }
+
+  String typeOf(String extension) {
+    String type = types.get(extension);
+    if (type == null) {
+      type = lookup.typeOf(extension);
+      if (type == null) type = NO_TYPE;
+      if (extension.length() <= MAX_CACHED_EXTENSION_LENGTH) types.putIfAbsent(extension, type);
+    }
+    return type.isEmpty() ? null : type;
+  }
+}
@@ -0,0 +1,163 @@
+package com.pavlospt.rxfile;
+
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Copyright 2015 Pavlos-Petros Tournaris
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/*
+ * Copies the bytes of an opened source descriptor into a destination file.
+ *
+ * Kept free of Android dependencies on purpose, it only deals with java.io and java.nio.
+ * */
+final class FileCopier {
+
+  /*
+   * Upper bound of a single transferTo() call, some kernels cap sendfile() around 2GB.
+   * */
+  private static final long TRANSFER_CHUNK_SIZE = 8 * 1024 * 1024;
+
+  /*
+   * Smaller transferTo() chunks when someone listens, so progress is reported often enough.
+   * */
+  private static final long LISTENED_TRANSFER_CHUNK_SIZE = 1024 * 1024;
+
+  private FileCopier() {
+  }
+
+  /*
+   * Copy everything left in the source into the destination.
+   *
+   * When the source is a regular file the copy is done through FileChannel.transferTo(), which
+   * lets the kernel move the bytes (sendfile/splice) without passing them through user-space.
+   * Pipes and sockets can not be transferred that way, so they fall back to the buffered loop,
+   * using a buffer from the pool sized after sourceSize.
+   *
+   * The listener, if any, is told the total bytes copied after every chunk.
+   * */
+  static CopyMethod copy(FileInputStream source, FileOutputStream destination,
+      boolean sourceIsRegularFile, BufferPool bufferPool, long sourceSize, CopyListener listener)
+      throws IOException {
+    return copy(source, destination, null, sourceIsRegularFile, bufferPool, sourceSize, listener);
+  }
+
+  /*
+   * Same as above, writing out the head previously read by readHead() before the rest.
+   * */
+  static CopyMethod copy(FileInputStream source, FileOutputStream destination, ByteBuffer head,
+      boolean sourceIsRegularFile, BufferPool bufferPool, long sourceSize, CopyListener listener)
+      throws IOException {
+    return copy(source, destination, head, sourceIsRegularFile, bufferPool, sourceSize, listener,
+        null);
+  }
+
+  /*
+   * Same as above, handing every byte copied, head included, to the digester on its way through.
+   *
+   * The bytes moved by transferTo() never reach user-space, so a digested copy always goes
+   * through the buffered loop: it costs the copy its zero-copy path, not a second read of the
+   * file.
+   * */
+  static CopyMethod copy(FileInputStream source, FileOutputStream destination, ByteBuffer head,
+      boolean sourceIsRegularFile, BufferPool bufferPool, long sourceSize, CopyListener listener,
+      CopyDigester digester) throws IOException {
+    FileChannel from = source.getChannel();
+    FileChannel to = destination.getChannel();
+    long headSize = 0;
+    if (head != null) {
+      headSize = head.remaining();
+      if (digester != null) digester.update(head);
+      while (head.hasRemaining()) {
+        to.write(head);
+      }
+    }
+    if (sourceIsRegularFile && digester == null) {
+      transferCopy(from, to, listener, headSize);
+      return CopyMethod.TRANSFER;
+    }
+    ByteBuffer buffer = bufferPool.acquire(sourceSize);
+    try {
+      fastChannelCopy(from, to, buffer, listener, headSize, digester);
+    } finally {
+      bufferPool.release(buffer);
+    }
+    return CopyMethod.BUFFERED;
+  }
+
+  /*
+   * Read the first bytes of the source, at most size of them, into a heap buffer ready to be
+   * sniffed. Handing it to copy() afterwards keeps the source read only once.
+   * */
+  static ByteBuffer readHead(FileInputStream source, int size) throws IOException {
+    FileChannel from = source.getChannel();
+    ByteBuffer head = ByteBuffer.allocate(size);
+    int read;
+    do {
+      read = from.read(head);
+    } while (read != -1 && head.hasRemaining());
+    head.flip();
+    return head;
+  }
+
+  private static void transferCopy(final FileChannel src, final FileChannel dest,
+      final CopyListener listener, final long headSize) throws IOException {
+    final long chunkSize = listener == null ? TRANSFER_CHUNK_SIZE : LISTENED_TRANSFER_CHUNK_SIZE;
+    final long start = src.position();
+    long position = start;
+    long size = src.size();
+    while (position < size) {
+      long transferred = src.transferTo(position, Math.min(chunkSize, size - position), dest);
+      if (transferred <= 0) {
+        break;
+      }
+      position += transferred;
+      if (listener != null) listener.onBytesCopied(headSize + position - start);
+    }
+    src.position(position);
+  }
+
+  static void fastChannelCopy(final ReadableByteChannel src, final WritableByteChannel dest,
+      final ByteBuffer buffer, final CopyListener listener) throws IOException {
+    fastChannelCopy(src, dest, buffer, listener, 0, null);
+  }
+
+  private static void fastChannelCopy(final ReadableByteChannel src,
+      final WritableByteChannel dest, final ByteBuffer buffer, final CopyListener listener,
+      final long headSize, final CopyDigester digester) throws IOException {
+    long bytesCopied = headSize;
+    // Only the bytes just read are digested, not those a short write left over in the buffer.
+    int unread = buffer.position();
+    while (src.read(buffer) != -1) {
+      if (digester != null) digester.update(buffer, unread, buffer.position());
+      buffer.flip();
+      bytesCopied += dest.write(buffer);
+      buffer.compact();
+      unread = buffer.position();
+      if (listener != null) listener.onBytesCopied(bytesCopied);
+    }
+    buffer.flip();
+    while (buffer.hasRemaining()) {
+      bytesCopied += dest.write(buffer);
+    }
+    if (listener != null) listener.onBytesCopied(bytesCopied);
+  }
+}
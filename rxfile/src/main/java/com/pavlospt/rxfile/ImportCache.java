@@ -0,0 +1,189 @@
+package com.pavlospt.rxfile;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Copyright 2015 Pavlos-Petros Tournaris
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/*
+ * Lays out the content addressed copies in the Library's cache folder.
+ *
+ * Every copy lives in its own entry directory, named after a hash of the Uri, size and last
+ * modified time of its source, and keeps the display name of the source. Two different files
+ * sharing a name can therefore never collide, and a changed source gets a new entry.
+ * */
+final class ImportCache {
+
+  static final String CONTENT_HASH_FILE_NAME = ".sha256";
+  static final String TEMP_FILE_PREFIX = ".import";
+  static final String TEMP_FILE_SUFFIX = ".tmp";
+
+  private static final String KEY_ALGORITHM = "SHA-1";
+
+  private ImportCache() {
+  }
+
+  /*
+   * The name of the entry directory for a source.
+   * */
+  static String key(String uri, long size, long lastModified) {
+    try {
+      MessageDigest digest = MessageDigest.getInstance(KEY_ALGORITHM);
+      digest.update((uri + '\n' + size + '\n' + lastModified).getBytes("UTF-8"));
+      return CopyDigester.toHex(digest.digest());
+    } catch (NoSuchAlgorithmException | UnsupportedEncodingException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /*
+   * The name of an entry directory of its own, for a source whose copy can never be reused.
+   * */
+  static String uniqueKey(String uri) {
+    return key(uri + '\n' + UUID.randomUUID(), 0, 0);
+  }
+
+  /*
+   * Whether the provider tells us enough about a source to notice when it changed.
+   * */
+  static boolean isVersioned(long size, long lastModified) {
+    return size > 0 && lastModified > 0;
+  }
+
+  /*
+   * A copy can only be reused when the provider tells us enough to notice a changed source.
+   * */
+  static boolean isCacheable(ImportCachePolicy policy, long size, long lastModified) {
+    return policy != ImportCachePolicy.NONE && isVersioned(size, lastModified);
+  }
+
+  /*
+   * The copy kept in an entry directory: the file named like the source or, when that name does
+   * not tell the type, the same name followed by the extension of the sniffed type.
+   * */
+  static File findCopy(File entryDirectory, String fileName, boolean exactName) {
+    File named = new File(entryDirectory, fileName);
+    if (exactName || named.isFile()) {
+      return named;
+    }
+    File[] files = entryDirectory.listFiles();
+    if (files != null) {
+      for (File file : files) {
+        String name = file.getName();
+        if (name.startsWith(fileName + ".") && !isTempFile(name) && file.isFile()) {
+          return file;
+        }
+      }
+    }
+    return named;
+  }
+
+  private static boolean isTempFile(String name) {
+    return name.startsWith(TEMP_FILE_PREFIX) && name.endsWith(TEMP_FILE_SUFFIX);
+  }
+
+  /*
+   * Check whether a cached copy holds the bytes of a source of the given size.
+   * */
+  static boolean isValidHit(ImportCachePolicy policy, File cached, long size) throws IOException {
+    if (!cached.isFile() || cached.length() != size) {
+      return false;
+    }
+    if (policy != ImportCachePolicy.CONTENT_HASH) {
+      return true;
+    }
+    String recorded = readContentHash(cached.getParentFile());
+    return recorded != null && recorded.equals(contentHash(cached));
+  }
+
+  /*
+   * Remember the SHA-256 of a freshly written copy, for CONTENT_HASH verification.
+   * */
+  static void recordContentHash(File cached) throws IOException {
+    recordContentHash(cached, contentHash(cached));
+  }
+
+  /*
+   * Same as above, with a SHA-256 computed while the copy was written.
+   * */
+  static void recordContentHash(File cached, String contentHash) throws IOException {
+    byte[] hash = contentHash.getBytes("UTF-8");
+    FileOutputStream out =
+        new FileOutputStream(new File(cached.getParentFile(), CONTENT_HASH_FILE_NAME));
+    try {
+      out.write(hash);
+    } finally {
+      out.close();
+    }
+  }
+
+  static String contentHash(File file) throws IOException {
+    return digests(file, EnumSet.of(DigestAlgorithm.SHA_256)).get(DigestAlgorithm.SHA_256);
+  }
+
+  /*
+   * Read a file through to compute the requested digests.
+   * */
+  static Map<DigestAlgorithm, String> digests(File file, Set<DigestAlgorithm> algorithms)
+      throws IOException {
+    CopyDigester digester = new CopyDigester(algorithms);
+    FileInputStream in = new FileInputStream(file);
+    try {
+      FileChannel channel = in.getChannel();
+      ByteBuffer buffer = ByteBuffer.allocate(BufferPool.MEDIUM_BUFFER_SIZE);
+      while (channel.read(buffer) != -1) {
+        buffer.flip();
+        digester.update(buffer);
+        buffer.clear();
+      }
+    } finally {
+      in.close();
+    }
+    return digester.digests();
+  }
+
+  static String readContentHash(File entryDirectory) throws IOException {
+    File hashFile = new File(entryDirectory, CONTENT_HASH_FILE_NAME);
+    if (!hashFile.isFile()) {
+      return null;
+    }
+    byte[] bytes = new byte[(int) hashFile.length()];
+    FileInputStream in = new FileInputStream(hashFile);
+    try {
+      int read = 0;
+      while (read < bytes.length) {
+        int count = in.read(bytes, read, bytes.length - read);
+        if (count == -1) break;
+        read += count;
+      }
+    } finally {
+      in.close();
+    }
+    return new String(bytes, "UTF-8");
+  }
+}
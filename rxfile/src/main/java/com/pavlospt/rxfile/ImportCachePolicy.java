@@ -0,0 +1,40 @@
+package com.pavlospt.rxfile;
+
+/**
+ * Copyright 2015 Pavlos-Petros Tournaris
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/*
+ * How an import decides that a copy already in the Library's cache folder can be reused.
+ *
+ * Cached copies are always keyed on the Uri, the size and the last modified time reported by the
+ * provider. When the provider does not report a size or a last modified time the copy is redone.
+ * */
+public enum ImportCachePolicy {
+  /*
+   * Always copy, the cached copy is overwritten.
+   * */
+  NONE,
+  /*
+   * Reuse the cached copy when the Uri, size and last modified time match and it has the
+   * expected length.
+   * */
+  METADATA,
+  /*
+   * Like METADATA, and also verify that the cached copy still hashes to the SHA-256 recorded
+   * when it was written. Costs a read of the cached copy on every hit.
+   * */
+  CONTENT_HASH
+}
@@ -0,0 +1,178 @@
+package com.pavlospt.rxfile;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+
+/**
+ * Copyright 2015 Pavlos-Petros Tournaris
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/*
+ * The state of a resumable import, kept in its cache entry next to the partial copy: the size
+ * and last modified time of the source, and how many bytes of the partial copy are known to be
+ * on disk.
+ *
+ * As the CopyListener of the copy it commits the bytes written so far every
+ * COMMIT_INTERVAL_BYTES, syncing the partial copy before the checkpoint that covers it, then
+ * tells the listener it wraps the total bytes of the copy, resumed ones included.
+ * */
+final class ImportCheckpoint implements CopyListener {
+
+  static final String PARTIAL_FILE_NAME =
+      ImportCache.TEMP_FILE_PREFIX + ".resumable" + ImportCache.TEMP_FILE_SUFFIX;
+  static final String CHECKPOINT_FILE_NAME = ".checkpoint";
+
+  private static final String CHECKPOINT_TEMP_FILE_NAME = ".checkpoint.tmp";
+  private static final String HEADER = "rxfile.checkpoint 1";
+
+  /*
+   * Bytes worth losing to a crash, syncing more often slows the copy down.
+   * */
+  static final long COMMIT_INTERVAL_BYTES = 8 * 1024 * 1024;
+
+  private final File entryDirectory;
+  private final long sourceSize;
+  private final long lastModified;
+  private final long offset;
+  private final FileChannel destination;
+  private final CopyListener listener;
+
+  private long committedBytes;
+
+  ImportCheckpoint(File entryDirectory, long sourceSize, long lastModified, long offset,
+      FileChannel destination, CopyListener listener) {
+    this.entryDirectory = entryDirectory;
+    this.sourceSize = sourceSize;
+    this.lastModified = lastModified;
+    this.offset = offset;
+    this.destination = destination;
+    this.listener = listener;
+    this.committedBytes = offset;
+  }
+
+  /*
+   * Only a source whose size and last modified time are known can be checked for changes
+   * before its partial copy is resumed.
+   * */
+  static boolean isResumable(long sourceSize, long lastModified) {
+    return sourceSize > 0 && lastModified > 0;
+  }
+
+  /*
+   * The number of bytes the partial copy in the entry can be resumed from, after truncating it to
+   * them. A partial copy of another version of the source, or without a valid checkpoint, is
+   * deleted and 0 is returned.
+   * */
+  static long resumeOffset(File entryDirectory, long sourceSize, long lastModified)
+      throws IOException {
+    File partial = new File(entryDirectory, PARTIAL_FILE_NAME);
+    long committed = readCommittedBytes(entryDirectory, sourceSize, lastModified);
+    if (committed <= 0 || committed > sourceSize || partial.length() < committed) {
+      discard(entryDirectory);
+      return 0;
+    }
+    RandomAccessFile file = new RandomAccessFile(partial, "rw");
+    try {
+      file.setLength(committed);
+    } finally {
+      file.close();
+    }
+    return committed;
+  }
+
+  /*
+   * Delete the partial copy and its checkpoint.
+   * */
+  static void discard(File entryDirectory) throws IOException {
+    deleteIfExists(new File(entryDirectory, CHECKPOINT_FILE_NAME));
+    deleteIfExists(new File(entryDirectory, PARTIAL_FILE_NAME));
+  }
+
+  /*
+   * The copy went well, only the checkpoint has to go, the partial copy is moved into place.
+   * */
+  void delete() throws IOException {
+    deleteIfExists(new File(entryDirectory, CHECKPOINT_FILE_NAME));
+  }
+
+  @Override public void onBytesCopied(long bytesCopied) throws IOException {
+    long totalBytes = offset + bytesCopied;
+    if (totalBytes - committedBytes >= COMMIT_INTERVAL_BYTES) {
+      commit();
+    }
+    if (listener != null) listener.onBytesCopied(totalBytes);
+  }
+
+  /*
+   * Sync what has been written of the partial copy, then record it as the offset to resume from.
+   * The checkpoint is written aside and renamed over the previous one, so a crash leaves either.
+   * */
+  void commit() throws IOException {
+    destination.force(false);
+    long size = destination.size();
+    File temp = new File(entryDirectory, CHECKPOINT_TEMP_FILE_NAME);
+    FileOutputStream out = new FileOutputStream(temp);
+    try {
+      out.write((HEADER + '\n' + sourceSize + '\n' + lastModified + '\n' + size + '\n')
+          .getBytes("UTF-8"));
+      out.getFD().sync();
+    } finally {
+      out.close();
+    }
+    if (!temp.renameTo(new File(entryDirectory, CHECKPOINT_FILE_NAME))) {
+      throw new IOException("Could not write checkpoint in: " + entryDirectory);
+    }
+    committedBytes = size;
+  }
+
+  long getOffset() {
+    return offset;
+  }
+
+  private static long readCommittedBytes(File entryDirectory, long sourceSize,
+      long lastModified) throws IOException {
+    File checkpoint = new File(entryDirectory, CHECKPOINT_FILE_NAME);
+    if (!checkpoint.isFile()) {
+      return 0;
+    }
+    BufferedReader reader =
+        new BufferedReader(new InputStreamReader(new FileInputStream(checkpoint), "UTF-8"));
+    try {
+      if (!HEADER.equals(reader.readLine())
+          || sourceSize != Long.parseLong(reader.readLine())
+          || lastModified != Long.parseLong(reader.readLine())) {
+        return 0;
+      }
+      return Long.parseLong(reader.readLine());
+    } catch (NumberFormatException e) {
+      // A line is missing or torn, the checkpoint can not be trusted.
+      return 0;
+    } finally {
+      reader.close();
+    }
+  }
+
+  private static void deleteIfExists(File file) throws IOException {
+    if (file.exists() && !file.delete()) {
+      throw new IOException("Could not delete: " + file);
+    }
+  }
+}
@@ -0,0 +1,112 @@
+package com.pavlospt.rxfile;
+
+import android.net.Uri;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Copyright 2015 Pavlos-Petros Tournaris
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/*
+ * What an import did: how the bytes were copied, how many and how fast, or how it failed.
+ * */
+public class ImportEvent {
+
+  private final Uri uri;
+  private final CopyMethod copyMethod;
+  private final long bytesCopied;
+  private final String mimeType;
+  private final long durationNanos;
+  private final Throwable error;
+
+  ImportEvent(Uri uri, ImportResult result, long durationNanos, Throwable error) {
+    this.uri = uri;
+    this.copyMethod = result == null ? null : result.getCopyMethod();
+    this.bytesCopied = result == null ? 0 : result.getBytesCopied();
+    this.mimeType = result == null ? null : result.getMimeType();
+    this.durationNanos = durationNanos;
+    this.error = error;
+  }
+
+  public Uri getUri() {
+    return uri;
+  }
+
+  /*
+   * The authority of the Uri, to tell providers apart.
+   * */
+  public String getAuthority() {
+    return uri.getAuthority();
+  }
+
+  /*
+   * How the bytes were copied, null when the import failed.
+   * */
+  public CopyMethod getCopyMethod() {
+    return copyMethod;
+  }
+
+  /*
+   * Whether a valid copy was found in the Library's cache folder, so nothing was copied.
+   * */
+  public boolean isCacheHit() {
+    return copyMethod == CopyMethod.CACHED;
+  }
+
+  public long getBytesCopied() {
+    return bytesCopied;
+  }
+
+  public String getMimeType() {
+    return mimeType;
+  }
+
+  /*
+   * From the start of the import to its end, metadata queries included.
+   * */
+  public long getDurationNanos() {
+    return durationNanos;
+  }
+
+  public long getDurationMillis() {
+    return TimeUnit.NANOSECONDS.toMillis(durationNanos);
+  }
+
+  /*
+   * The copy throughput over the whole import, 0 for cache hits and failures.
+   * */
+  public long getBytesPerSecond() {
+    if (durationNanos <= 0) return 0;
+    return (long) (bytesCopied * (double) TimeUnit.SECONDS.toNanos(1) / durationNanos);
+  }
+
+  /*
+   * Why the import failed, null when it did not.
+   * */
+  public Throwable getError() {
+    return error;
+  }
+
+  public boolean isSuccessful() {
+    return error == null;
+  }
+
+  @Override public String toString() {
+    return "ImportEvent{authority=" + getAuthority() + ", copyMethod=" + copyMethod
+        + ", bytesCopied=" + bytesCopied + ", mimeType=" + mimeType + ", durationMillis="
+        + getDurationMillis() + ", error=" + (error == null ? null : error.getClass().getName())
+        + "}";
+  }
+}
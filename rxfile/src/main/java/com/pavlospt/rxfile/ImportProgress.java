@@ -0,0 +1,107 @@
+package com.pavlospt.rxfile;
+
+/**
+ * Copyright 2015 Pavlos-Petros Tournaris
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/*
+ * A progress event of an import.
+ *
+ * Every event but the last one reports the bytes copied so far. The last one, for which
+ * isComplete() returns true, also carries the ImportResult.
+ * */
+public class ImportProgress {
+
+  private final String authority;
+  private final long bytesCopied;
+  private final long totalBytes;
+  private final long elapsedMillis;
+  private final long instantaneousBytesPerSecond;
+  private final long averageBytesPerSecond;
+  private final ImportResult result;
+
+  ImportProgress(String authority, long bytesCopied, long totalBytes, long elapsedMillis,
+      long instantaneousBytesPerSecond, long averageBytesPerSecond, ImportResult result) {
+    this.authority = authority;
+    this.bytesCopied = bytesCopied;
+    this.totalBytes = totalBytes;
+    this.elapsedMillis = elapsedMillis;
+    this.instantaneousBytesPerSecond = instantaneousBytesPerSecond;
+    this.averageBytesPerSecond = averageBytesPerSecond;
+    this.result = result;
+  }
+
+  /*
+   * The authority of the Uri being imported, to tell providers apart.
+   * */
+  public String getAuthority() {
+    return authority;
+  }
+
+  public long getBytesCopied() {
+    return bytesCopied;
+  }
+
+  /*
+   * The size reported by DocumentFile.length(), -1 if the provider does not know it.
+   * */
+  public long getTotalBytes() {
+    return totalBytes;
+  }
+
+  /*
+   * The completed fraction between 0 and 1, -1 if the total size is unknown.
+   * */
+  public float getFraction() {
+    if (totalBytes <= 0) return -1f;
+    return Math.min(1f, (float) bytesCopied / totalBytes);
+  }
+
+  public long getElapsedMillis() {
+    return elapsedMillis;
+  }
+
+  /*
+   * The throughput since the previous event.
+   * */
+  public long getInstantaneousBytesPerSecond() {
+    return instantaneousBytesPerSecond;
+  }
+
+  /*
+   * The throughput since the copy started.
+   * */
+  public long getAverageBytesPerSecond() {
+    return averageBytesPerSecond;
+  }
+
+  public boolean isComplete() {
+    return result != null;
+  }
+
+  /*
+   * The outcome of the import, null until isComplete() returns true.
+   * */
+  public ImportResult getResult() {
+    return result;
+  }
+
+  @Override public String toString() {
+    return "ImportProgress{authority=" + authority + ", bytesCopied=" + bytesCopied
+        + ", totalBytes=" + totalBytes + ", elapsedMillis=" + elapsedMillis
+        + ", instantaneousBytesPerSecond=" + instantaneousBytesPerSecond
+        + ", averageBytesPerSecond=" + averageBytesPerSecond + ", result=" + result + "}";
+  }
+}
@@ -0,0 +1,116 @@
+package com.pavlospt.rxfile;
+
+import java.io.File;
+import java.util.Map;
+
+/**
+ * Copyright 2015 Pavlos-Petros Tournaris
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/*
+ * The outcome of an import: the File created in the Library's cache folder and how it got there.
+ * */
+public class ImportResult {
+
+  private final File file;
+  private final CopyMethod copyMethod;
+  private final long bytesCopied;
+  private final String mimeType;
+  private final long resumedBytes;
+  private final Map<DigestAlgorithm, String> digests;
+
+  private final DiskCache diskCache;
+  private final String cacheKey;
+
+  /*
+   * A result whose cache entry has been pinned once by the import, until release() is called.
+   * The first resumedBytes were copied by an earlier attempt, the digests are the ones the
+   * import asked for.
+   * */
+  ImportResult(File file, CopyMethod copyMethod, long bytesCopied, String mimeType,
+      long resumedBytes, Map<DigestAlgorithm, String> digests, DiskCache diskCache,
+      String cacheKey) {
+    this.file = file;
+    this.copyMethod = copyMethod;
+    this.bytesCopied = bytesCopied;
+    this.mimeType = mimeType;
+    this.resumedBytes = resumedBytes;
+    this.digests = digests;
+    this.diskCache = diskCache;
+    this.cacheKey = cacheKey;
+  }
+
+  /*
+   * Keep the cache entry holding the file out of eviction, once more.
+   * */
+  void retain() {
+    if (diskCache != null) diskCache.pin(cacheKey);
+  }
+
+  /*
+   * Undo one retain(), or the pin of the import itself.
+   * */
+  void release() {
+    if (diskCache != null) diskCache.unpin(cacheKey);
+  }
+
+  public File getFile() {
+    return file;
+  }
+
+  public CopyMethod getCopyMethod() {
+    return copyMethod;
+  }
+
+  public long getBytesCopied() {
+    return bytesCopied;
+  }
+
+  /*
+   * The type sniffed from the first bytes of the copy, or the one told by its name or provider
+   * when the content is not recognised. Null when none of them tell.
+   * */
+  public String getMimeType() {
+    return mimeType;
+  }
+
+  /*
+   * The bytes a resumable import found already copied by an earlier attempt, 0 when it started
+   * from the beginning. They are not counted in getBytesCopied().
+   * */
+  public long getResumedBytes() {
+    return resumedBytes;
+  }
+
+  /*
+   * The lowercase hex digest of the file, null when it was not requested from the import.
+   * */
+  public String getDigest(DigestAlgorithm algorithm) {
+    return digests.get(algorithm);
+  }
+
+  /*
+   * Every digest requested from the import, unmodifiable.
+   * */
+  public Map<DigestAlgorithm, String> getDigests() {
+    return digests;
+  }
+
+  @Override public String toString() {
+    return "ImportResult{file=" + file + ", copyMethod=" + copyMethod + ", bytesCopied="
+        + bytesCopied + ", resumedBytes=" + resumedBytes + ", mimeType=" + mimeType + ", digests="
+        + digests + "}";
+  }
+}
@@ -0,0 +1,68 @@
+package com.pavlospt.rxfile;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import rx.Observable;
+import rx.functions.Action0;
+
+/**
+ * Copyright 2015 Pavlos-Petros Tournaris
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/*
+ * Coalesces concurrent requests for the same key into a single subscription to their source.
+ *
+ * The first request for a key subscribes to its source, every request made for the same key
+ * before the source terminates shares it and gets its latest value replayed. The key is
+ * forgotten as soon as the source terminates or nobody is subscribed anymore.
+ * */
+final class InFlightRequests<K, T> {
+
+  private final ConcurrentHashMap<K, Observable<T>> inFlight = new ConcurrentHashMap<>();
+  private final AtomicLong coalescedCount = new AtomicLong();
+
+  /*
+   * Get the request in flight for the key, or share the given source under it. Call at
+   * subscription time, from inside Observable.defer().
+   * */
+  Observable<T> share(final K key, Observable<T> source) {
+    Observable<T> existing = inFlight.get(key);
+    if (existing != null) {
+      coalescedCount.incrementAndGet();
+      return existing;
+    }
+    final AtomicReference<Observable<T>> shared = new AtomicReference<>();
+    Action0 forget = new Action0() {
+      @Override public void call() {
+        inFlight.remove(key, shared.get());
+      }
+    };
+    shared.set(source.doOnTerminate(forget).doOnUnsubscribe(forget).replay(1).refCount());
+    existing = inFlight.putIfAbsent(key, shared.get());
+    if (existing != null) {
+      coalescedCount.incrementAndGet();
+      return existing;
+    }
+    return shared.get();
+  }
+
+  /*
+   * Number of requests that joined one already in flight instead of starting their own.
+   * */
+  long coalescedCount() {
+    return coalescedCount.get();
+  }
+}
@@ -0,0 +1,196 @@
+package com.pavlospt.rxfile;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Copyright 2015 Pavlos-Petros Tournaris
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/*
+ * A read-only, random access view of a file through memory mappings, so looking up the index
+ * tables of an MP4 or a ZIP costs page faults rather than a read() and a copy per lookup.
+ *
+ * The file is mapped in windows of 64MB, each one the first time it is touched, so files over
+ * 2GB can be mapped and only the regions actually read take address space. Windows overlap by
+ * 64KB, reads up to that size never straddle two of them and are served without copying.
+ *
+ * The view is only valid while the Observable it was handed to is subscribed, see
+ * RxFile.mapFile(). Reads are thread safe, the mappings themselves are released by the GC once
+ * the view is closed and unreachable.
+ * */
+public class MappedFileView {
+
+  static final int DEFAULT_WINDOW_SIZE = 64 * 1024 * 1024;
+  static final int DEFAULT_WINDOW_OVERLAP = 64 * 1024;
+
+  private final FileChannel channel;
+  private final Closeable owner;
+  private final long size;
+  private final int windowSize;
+  private final int windowOverlap;
+  private final AtomicReferenceArray<Window> windows;
+
+  private volatile boolean closed;
+
+  /*
+   * A view of the channel, closing the owner of the channel once closed.
+   * */
+  MappedFileView(FileChannel channel, Closeable owner) throws IOException {
+    this(channel, owner, DEFAULT_WINDOW_SIZE, DEFAULT_WINDOW_OVERLAP);
+  }
+
+  MappedFileView(FileChannel channel, Closeable owner, int windowSize, int windowOverlap)
+      throws IOException {
+    this.channel = channel;
+    this.owner = owner;
+    this.size = channel.size();
+    this.windowSize = windowSize;
+    this.windowOverlap = windowOverlap;
+    this.windows = new AtomicReferenceArray<>((int) ((size + windowSize - 1) / windowSize));
+  }
+
+  public long size() {
+    return size;
+  }
+
+  public byte get(long position) throws IOException {
+    checkBounds(position, 1);
+    return window(position).bigEndian.get(offsetOf(position));
+  }
+
+  public short getShort(long position, ByteOrder order) throws IOException {
+    checkBounds(position, 2);
+    return window(position).in(order).getShort(offsetOf(position));
+  }
+
+  public int getInt(long position, ByteOrder order) throws IOException {
+    checkBounds(position, 4);
+    return window(position).in(order).getInt(offsetOf(position));
+  }
+
+  public long getLong(long position, ByteOrder order) throws IOException {
+    checkBounds(position, 8);
+    return window(position).in(order).getLong(offsetOf(position));
+  }
+
+  /*
+   * Copy length bytes from the position into the destination array.
+   * */
+  public void get(long position, byte[] destination, int offset, int length) throws IOException {
+    checkBounds(position, length);
+    while (length > 0) {
+      ByteBuffer window = window(position).bigEndian.duplicate();
+      int windowOffset = offsetOf(position);
+      int count = Math.min(length, window.limit() - windowOffset);
+      window.position(windowOffset);
+      window.get(destination, offset, count);
+      position += count;
+      offset += count;
+      length -= count;
+    }
+  }
+
+  /*
+   * The length bytes at the position, as a read-only buffer in big endian order. It is a view of
+   * the mapping when they fit in a window, which they always do up to 64KB, a copy otherwise.
+   * */
+  public ByteBuffer slice(long position, int length) throws IOException {
+    checkBounds(position, length);
+    ByteBuffer window = window(position).bigEndian.duplicate();
+    int windowOffset = offsetOf(position);
+    if (windowOffset + length <= window.limit()) {
+      window.position(windowOffset);
+      window.limit(windowOffset + length);
+      return window.slice();
+    }
+    byte[] copy = new byte[length];
+    get(position, copy, 0, length);
+    return ByteBuffer.wrap(copy).asReadOnlyBuffer();
+  }
+
+  public boolean isClosed() {
+    return closed;
+  }
+
+  /*
+   * Refuse any further read and close the file, the mappings go with their last reference.
+   * */
+  void close() throws IOException {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    for (int i = 0; i < windows.length(); i++) {
+      windows.set(i, null);
+    }
+    owner.close();
+  }
+
+  private void checkBounds(long position, int length) {
+    if (position < 0 || length < 0 || position + length > size) {
+      throw new IndexOutOfBoundsException(
+          "position: " + position + ", length: " + length + ", size: " + size);
+    }
+  }
+
+  private int offsetOf(long position) {
+    return (int) (position % windowSize);
+  }
+
+  /*
+   * The window holding the position, mapped on first use. Two threads may both map it, only one
+   * mapping is kept.
+   * */
+  private Window window(long position) throws IOException {
+    if (closed) {
+      throw new IllegalStateException("MappedFileView is closed");
+    }
+    int index = (int) (position / windowSize);
+    Window window = windows.get(index);
+    if (window == null) {
+      long start = (long) index * windowSize;
+      long length = Math.min((long) windowSize + windowOverlap, size - start);
+      window = new Window(channel.map(FileChannel.MapMode.READ_ONLY, start, length));
+      if (!windows.compareAndSet(index, null, window)) {
+        window = windows.get(index);
+      }
+    }
+    return window;
+  }
+
+  /*
+   * A mapped region, read-only, with a view in either byte order so absolute reads never have
+   * to change the order of a shared buffer.
+   * */
+  private static final class Window {
+
+    final ByteBuffer bigEndian;
+    final ByteBuffer littleEndian;
+
+    Window(ByteBuffer mapping) {
+      this.bigEndian = mapping.asReadOnlyBuffer().order(ByteOrder.BIG_ENDIAN);
+      this.littleEndian = mapping.asReadOnlyBuffer().order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    ByteBuffer in(ByteOrder order) {
+      return order == ByteOrder.LITTLE_ENDIAN ? littleEndian : bigEndian;
+    }
+  }
+}
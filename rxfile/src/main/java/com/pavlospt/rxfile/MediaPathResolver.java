@@ -0,0 +1,186 @@
+package com.pavlospt.rxfile;
+
+import android.content.ContentResolver;
+import android.database.Cursor;
+import android.net.Uri;
+import android.provider.DocumentsContract;
+import android.provider.MediaStore;
+import android.text.TextUtils;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Copyright 2015 Pavlos-Petros Tournaris
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/*
+ * Resolves MediaStore rows projecting only the columns it reads, one Uri at a time or many ids
+ * at once with IN (...) queries chunked under the SQLite limit of bound variables.
+ * */
+final class MediaPathResolver {
+
+  // SQLite builds before 3.32 refuse statements with more than 999 bound variables.
+  static final int MAX_SELECTION_ARGS = 999;
+
+  private static final String[] PATH_PROJECTION = { Constants.DATA_COLUMN_VALUE };
+  private static final String[] ID_PATH_PROJECTION =
+      { Constants.ID_COLUMN_VALUE, Constants.DATA_COLUMN_VALUE };
+  private static final String[] ID_PROJECTION = { Constants.ID_COLUMN_VALUE };
+
+  private final ContentResolver contentResolver;
+
+  MediaPathResolver(ContentResolver contentResolver) {
+    this.contentResolver = contentResolver;
+  }
+
+  /*
+   * Read the _data column of the first row matching the selection, null when there is none.
+   * */
+  String queryPath(Uri uri, String selection, String[] selectionArgs) {
+    Cursor cursor = contentResolver.query(uri, PATH_PROJECTION, selection, selectionArgs, null);
+    if (cursor == null) {
+      return null;
+    }
+    try {
+      return cursor.moveToFirst() ? cursor.getString(0) : null;
+    } finally {
+      cursor.close();
+    }
+  }
+
+  String queryPathById(Uri table, String id) {
+    return queryPath(table, Constants.ID_COLUMN_VALUE + " =?", new String[] { id });
+  }
+
+  /*
+   * Read the _data column of every row of the table with one of the given ids, keyed by id.
+   * */
+  Map<String, String> queryPathsById(Uri table, Collection<String> ids) {
+    Map<String, String> paths = new HashMap<>();
+    queryById(table, ids, ID_PATH_PROJECTION, paths);
+    return paths;
+  }
+
+  /*
+   * Keep the ids that have a row in the table.
+   * */
+  Collection<String> queryExistingIds(Uri table, Collection<String> ids) {
+    Map<String, String> existing = new HashMap<>();
+    queryById(table, ids, ID_PROJECTION, existing);
+    return existing.keySet();
+  }
+
+  /*
+   * Resolve the paths of many Uris. Media documents and MediaStore Uris are grouped per table
+   * and resolved with a few IN (...) queries, any other Uri is queried on its own. Uris without
+   * a path are left out of the result.
+   * */
+  Map<Uri, String> resolvePaths(Collection<Uri> uris) {
+    Map<Uri, String> paths = new LinkedHashMap<>();
+    Map<Uri, Map<String, List<Uri>>> urisByTable = new HashMap<>();
+    for (Uri uri : uris) {
+      Uri table = null;
+      String id = null;
+      if (Constants.MEDIA_DOCUMENTS_AUTHORITY.equals(uri.getAuthority())) {
+        String[] split = DocumentsContract.getDocumentId(uri).split(":");
+        table = split.length == 2 ? mediaTable(split[0]) : null;
+        id = table != null ? split[1] : null;
+      } else if (Constants.MEDIA_AUTHORITY.equals(uri.getAuthority())
+          && TextUtils.isDigitsOnly(uri.getLastPathSegment())) {
+        String value = uri.toString();
+        table = Uri.parse(value.substring(0, value.lastIndexOf('/')));
+        id = uri.getLastPathSegment();
+      }
+      if (table == null) {
+        String path = queryPath(uri, null, null);
+        if (path != null) paths.put(uri, path);
+        continue;
+      }
+      Map<String, List<Uri>> urisById = urisByTable.get(table);
+      if (urisById == null) {
+        urisById = new HashMap<>();
+        urisByTable.put(table, urisById);
+      }
+      List<Uri> sameId = urisById.get(id);
+      if (sameId == null) {
+        sameId = new ArrayList<>(1);
+        urisById.put(id, sameId);
+      }
+      sameId.add(uri);
+    }
+    for (Map.Entry<Uri, Map<String, List<Uri>>> table : urisByTable.entrySet()) {
+      Map<String, String> pathsById = queryPathsById(table.getKey(), table.getValue().keySet());
+      for (Map.Entry<String, String> path : pathsById.entrySet()) {
+        if (path.getValue() == null) continue;
+        for (Uri uri : table.getValue().get(path.getKey())) {
+          paths.put(uri, path.getValue());
+        }
+      }
+    }
+    return paths;
+  }
+
+  /*
+   * The MediaStore table of a media document type, as found before the ':' of its id.
+   * */
+  static Uri mediaTable(String type) {
+    if (Constants.IMAGE.equals(type)) {
+      return MediaStore.Images.Media.EXTERNAL_CONTENT_URI;
+    } else if (Constants.VIDEO.equals(type)) {
+      return MediaStore.Video.Media.EXTERNAL_CONTENT_URI;
+    } else if (Constants.AUDIO.equals(type)) {
+      return MediaStore.Audio.Media.EXTERNAL_CONTENT_URI;
+    }
+    return null;
+  }
+
+  static String inSelection(String column, int count) {
+    StringBuilder selection = new StringBuilder(column).append(" IN (");
+    for (int i = 0; i < count; i++) {
+      selection.append(i == 0 ? "?" : ",?");
+    }
+    return selection.append(')').toString();
+  }
+
+  /*
+   * Query the rows with the given ids, at most MAX_SELECTION_ARGS at a time, putting the second
+   * projected column, if any, by the id of the first.
+   * */
+  private void queryById(Uri table, Collection<String> ids, String[] projection,
+      Map<String, String> values) {
+    List<String> remaining = new ArrayList<>(ids);
+    for (int start = 0; start < remaining.size(); start += MAX_SELECTION_ARGS) {
+      List<String> chunk =
+          remaining.subList(start, Math.min(remaining.size(), start + MAX_SELECTION_ARGS));
+      Cursor cursor = contentResolver.query(table, projection,
+          inSelection(Constants.ID_COLUMN_VALUE, chunk.size()),
+          chunk.toArray(new String[chunk.size()]), null);
+      if (cursor == null) {
+        continue;
+      }
+      try {
+        while (cursor.moveToNext()) {
+          values.put(cursor.getString(0), projection.length > 1 ? cursor.getString(1) : null);
+        }
+      } finally {
+        cursor.close();
+      }
+    }
+  }
+}
@@ -0,0 +1,274 @@
+package com.pavlospt.rxfile;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.Charset;
+
+/**
+ * Copyright 2015 Pavlos-Petros Tournaris
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/*
+ * Tells the type of a file from the magic numbers of its first bytes, for the common image,
+ * video, audio, document and archive formats.
+ *
+ * Kept free of Android dependencies on purpose, it only reads a ByteBuffer.
+ * */
+final class MimeSniffer {
+
+  /*
+   * How many leading bytes are enough for every signature below, the second frame of an MPEG
+   * audio stream without an ID3 tag being the furthest.
+   * */
+  static final int HEADER_SIZE = 2048;
+
+  private static final Charset ASCII = Charset.forName("US-ASCII");
+
+  // Layer III bitrates in kbit/s and MPEG-1 sample rates in Hz, by their index in the header.
+  private static final int[] MPEG1_BITRATES = {
+      0, 32, 40, 48, 56, 64, 80, 96, 112, 128, 160, 192, 224, 256, 320
+  };
+  private static final int[] MPEG2_BITRATES = {
+      0, 8, 16, 24, 32, 40, 48, 56, 64, 80, 96, 112, 128, 144, 160
+  };
+  private static final int[] MPEG1_SAMPLE_RATES = {44100, 48000, 32000};
+
+  private MimeSniffer() {
+  }
+
+  /*
+   * The mime type told by the bytes between the position and the limit of the header, null when
+   * none of the signatures match. The header is left untouched.
+   * */
+  static String sniff(ByteBuffer header) {
+    Type type = sniffType(header);
+    return type == null ? null : type.mimeType;
+  }
+
+  /*
+   * The type of a file given the sniffed type and the ones told by its name and its provider.
+   *
+   * The bytes only tell the container, so the sniffed type corrects a wrong name or declared
+   * type but does not override a more specific member of the same container: a .docx, .apk or
+   * .epub is a zip and an .m4a is often an MP4 with a generic brand.
+   * */
+  static String resolve(String sniffedType, String nameType, String declaredType) {
+    if (sniffedType == null) return nameType != null ? nameType : declaredType;
+    if (refines(sniffedType, nameType)) return nameType;
+    if (refines(sniffedType, declaredType)) return declaredType;
+    return sniffedType;
+  }
+
+  /*
+   * The usual extension of a mime type sniff() may return, null for any other type.
+   * */
+  static String extensionFor(String mimeType) {
+    for (Type type : Type.values()) {
+      if (type.mimeType.equals(mimeType)) return type.extension;
+    }
+    return null;
+  }
+
+  private static boolean refines(String sniffedType, String claimedType) {
+    if (claimedType == null) return false;
+    for (Type type : Type.values()) {
+      if (!type.mimeType.equals(sniffedType)) continue;
+      for (String member : type.members) {
+        if (claimedType.startsWith(member)) return true;
+      }
+    }
+    return false;
+  }
+
+  private static Type sniffType(ByteBuffer header) {
+    ByteBuffer bytes = header.slice();
+    if (startsWith(bytes, 0, 0xFF, 0xD8, 0xFF)) return Type.JPEG;
+    if (startsWith(bytes, 0, 0x89, 'P', 'N', 'G', 0x0D, 0x0A, 0x1A, 0x0A)) return Type.PNG;
+    if (startsWith(bytes, 0, "GIF87a") || startsWith(bytes, 0, "GIF89a")) return Type.GIF;
+    if (startsWith(bytes, 0, "%PDF-")) return Type.PDF;
+    if (startsWith(bytes, 0, "RIFF")) {
+      if (startsWith(bytes, 8, "WEBP")) return Type.WEBP;
+      if (startsWith(bytes, 8, "WAVE")) return Type.WAV;
+      if (startsWith(bytes, 8, "AVI ")) return Type.AVI;
+      return null;
+    }
+    if (startsWith(bytes, 4, "ftyp")) return sniffFileType(bytes);
+    if (startsWith(bytes, 0, 0x1A, 0x45, 0xDF, 0xA3)) {
+      return contains(bytes, "webm") ? Type.WEBM : Type.MATROSKA;
+    }
+    if (startsWith(bytes, 0, "ID3")) return Type.MP3;
+    if (startsWith(bytes, 0, "OggS")) return Type.OGG;
+    if (startsWith(bytes, 0, "fLaC")) return Type.FLAC;
+    if (startsWith(bytes, 0, "#!AMR")) return Type.AMR;
+    if (startsWith(bytes, 0, "MThd")) return Type.MIDI;
+    if (startsWith(bytes, 0, 'P', 'K', 0x03, 0x04)) return Type.ZIP;
+    if (startsWith(bytes, 0, 0x1F, 0x8B)) return Type.GZIP;
+    if (startsWith(bytes, 0, '7', 'z', 0xBC, 0xAF, 0x27, 0x1C)) return Type.SEVEN_ZIP;
+    if (startsWith(bytes, 0, "Rar!")) return Type.RAR;
+    if (startsWith(bytes, 0, "BZh")) return Type.BZIP2;
+    if (startsWith(bytes, 257, "ustar")) return Type.TAR;
+    if (startsWith(bytes, 0, 'I', 'I', '*', 0x00) || startsWith(bytes, 0, 'M', 'M', 0x00, '*')) {
+      return Type.TIFF;
+    }
+    if (isIcon(bytes)) return Type.ICO;
+    if (isBitmap(bytes)) return Type.BMP;
+    if (isMpegAudio(bytes)) return Type.MP3;
+    return null;
+  }
+
+  /*
+   * "BM" starts plenty of text, the size of the DIB header that follows the file header must be
+   * one of the known ones too.
+   * */
+  private static boolean isBitmap(ByteBuffer bytes) {
+    if (!startsWith(bytes, 0, "BM") || bytes.remaining() < 18) return false;
+    int dibHeaderSize = bytes.duplicate().order(ByteOrder.LITTLE_ENDIAN).getInt(14);
+    return dibHeaderSize == 12 || dibHeaderSize == 40 || dibHeaderSize == 52
+        || dibHeaderSize == 56 || dibHeaderSize == 64 || dibHeaderSize == 108
+        || dibHeaderSize == 124;
+  }
+
+  /*
+   * Four bytes of an icon header are not enough, its first directory entry must be sane too: a
+   * zero reserved byte, at most one color plane and image data after the directory.
+   * */
+  private static boolean isIcon(ByteBuffer bytes) {
+    if (!startsWith(bytes, 0, 0x00, 0x00, 0x01, 0x00) || bytes.remaining() < 22) return false;
+    ByteBuffer icon = bytes.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+    int count = icon.getShort(4) & 0xFFFF;
+    int planes = icon.getShort(10) & 0xFFFF;
+    long dataOffset = icon.getInt(18) & 0xFFFFFFFFL;
+    return count > 0 && icon.get(9) == 0 && planes <= 1 && dataOffset >= 6 + 16 * count;
+  }
+
+  /*
+   * An MPEG audio stream without an ID3 tag, layer III. A frame sync is only 11 set bits, so the
+   * header must be valid and a second one must follow the first frame.
+   * */
+  private static boolean isMpegAudio(ByteBuffer bytes) {
+    int length = mpegAudioFrameLength(bytes, 0);
+    return length > 0 && mpegAudioFrameLength(bytes, length) > 0;
+  }
+
+  /*
+   * The length of the layer III frame whose header is at the offset, 0 when there is none.
+   * */
+  private static int mpegAudioFrameLength(ByteBuffer bytes, int offset) {
+    if (bytes.remaining() < offset + 4) return 0;
+    int sync = bytes.get(offset) & 0xFF;
+    int version = (bytes.get(offset + 1) >> 3) & 0x03;
+    int layer = (bytes.get(offset + 1) >> 1) & 0x03;
+    int bitrateIndex = (bytes.get(offset + 2) >> 4) & 0x0F;
+    int sampleRateIndex = (bytes.get(offset + 2) >> 2) & 0x03;
+    int padding = (bytes.get(offset + 2) >> 1) & 0x01;
+    if (sync != 0xFF || (bytes.get(offset + 1) & 0xE0) != 0xE0 || version == 1 || layer != 1
+        || bitrateIndex == 0 || bitrateIndex == 15 || sampleRateIndex == 3) {
+      return 0;
+    }
+    boolean mpeg1 = version == 3;
+    int bitrate = (mpeg1 ? MPEG1_BITRATES : MPEG2_BITRATES)[bitrateIndex] * 1000;
+    int sampleRate = MPEG1_SAMPLE_RATES[sampleRateIndex] >> (mpeg1 ? 0 : version == 2 ? 1 : 2);
+    return (mpeg1 ? 144 : 72) * bitrate / sampleRate + padding;
+  }
+
+  /*
+   * ISO base media files (MP4, 3GP, QuickTime, HEIF) name their flavour right after "ftyp".
+   * */
+  private static Type sniffFileType(ByteBuffer bytes) {
+    if (bytes.remaining() < 12) return null;
+    String brand = new String(new byte[] {
+        bytes.get(8), bytes.get(9), bytes.get(10), bytes.get(11)
+    }, ASCII);
+    if (brand.equals("heic") || brand.equals("heix") || brand.equals("mif1")
+        || brand.equals("msf1") || brand.equals("heif")) {
+      return Type.HEIF;
+    }
+    if (brand.equals("avif") || brand.equals("avis")) return Type.AVIF;
+    if (brand.startsWith("3g")) return Type.THREE_GPP;
+    if (brand.equals("qt  ")) return Type.QUICKTIME;
+    if (brand.equals("M4A ") || brand.equals("M4B ")) return Type.M4A;
+    return Type.MP4;
+  }
+
+  private static boolean startsWith(ByteBuffer bytes, int offset, String signature) {
+    if (bytes.remaining() < offset + signature.length()) return false;
+    for (int i = 0; i < signature.length(); i++) {
+      if (bytes.get(offset + i) != (byte) signature.charAt(i)) return false;
+    }
+    return true;
+  }
+
+  private static boolean startsWith(ByteBuffer bytes, int offset, int... signature) {
+    if (bytes.remaining() < offset + signature.length) return false;
+    for (int i = 0; i < signature.length; i++) {
+      if (bytes.get(offset + i) != (byte) signature[i]) return false;
+    }
+    return true;
+  }
+
+  private static boolean contains(ByteBuffer bytes, String text) {
+    for (int offset = 0; offset + text.length() <= bytes.remaining(); offset++) {
+      if (startsWith(bytes, offset, text)) return true;
+    }
+    return false;
+  }
+
+  private enum Type {
+    JPEG("image/jpeg", "jpg"),
+    PNG("image/png", "png"),
+    GIF("image/gif", "gif"),
+    WEBP("image/webp", "webp"),
+    HEIF("image/heif", "heic"),
+    AVIF("image/avif", "avif"),
+    BMP("image/bmp", "bmp"),
+    TIFF("image/tiff", "tiff", "image/x-adobe-dng", "image/x-nikon-nef", "image/x-canon-cr2",
+        "image/x-sony-arw"),
+    ICO("image/x-icon", "ico"),
+    MP4("video/mp4", "mp4", "audio/mp4", "audio/x-m4a", "audio/m4a", "video/x-m4v",
+        "video/3gpp", "audio/3gpp"),
+    THREE_GPP("video/3gpp", "3gp", "audio/3gpp"),
+    QUICKTIME("video/quicktime", "mov"),
+    WEBM("video/webm", "webm", "audio/webm"),
+    MATROSKA("video/x-matroska", "mkv", "audio/x-matroska"),
+    AVI("video/x-msvideo", "avi"),
+    M4A("audio/mp4", "m4a"),
+    MP3("audio/mpeg", "mp3"),
+    OGG("audio/ogg", "ogg", "video/ogg", "audio/opus", "application/ogg"),
+    FLAC("audio/flac", "flac"),
+    WAV("audio/x-wav", "wav"),
+    AMR("audio/amr", "amr"),
+    MIDI("audio/midi", "mid"),
+    PDF("application/pdf", "pdf"),
+    ZIP("application/zip", "zip", "application/vnd.openxmlformats-officedocument.",
+        "application/vnd.oasis.opendocument.", "application/vnd.android.package-archive",
+        "application/java-archive", "application/epub+zip", "application/vnd.ms-xpsdocument"),
+    GZIP("application/gzip", "gz"),
+    SEVEN_ZIP("application/x-7z-compressed", "7z"),
+    RAR("application/x-rar-compressed", "rar"),
+    BZIP2("application/x-bzip2", "bz2"),
+    TAR("application/x-tar", "tar");
+
+    final String mimeType;
+    final String extension;
+    // Prefixes of the more specific types stored in this container.
+    final String[] members;
+
+    Type(String mimeType, String extension, String... members) {
+      this.mimeType = mimeType;
+      this.extension = extension;
+      this.members = members;
+    }
+  }
+}
@@ -0,0 +1,118 @@
+package com.pavlospt.rxfile;
+
+import android.net.Uri;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Copyright 2015 Pavlos-Petros Tournaris
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/*
+ * What a read, a mapping, a document tree walk or a path lookup did: how much it went through
+ * and how long it took, or how it failed. Imports and thumbnails have events of their own.
+ * */
+public class OperationEvent {
+
+  /*
+   * The operation, and what its count is made of.
+   * */
+  public enum Operation {
+    // readFromUri(), counting the bytes read.
+    READ,
+    // mapFile() and mapFromUri(), counting the bytes mapped.
+    MAP,
+    // walkDocumentTree(), counting the documents emitted.
+    WALK_DOCUMENT_TREE,
+    // getPathsFromUris() and the getPathFromUriFor*() methods, counting the paths found.
+    RESOLVE_PATHS
+  }
+
+  private final Operation operation;
+  private final Uri uri;
+  private final long count;
+  private final boolean completed;
+  private final long durationNanos;
+  private final Throwable error;
+
+  OperationEvent(Operation operation, Uri uri, long count, boolean completed, long durationNanos,
+      Throwable error) {
+    this.operation = operation;
+    this.uri = uri;
+    this.count = count;
+    this.completed = completed;
+    this.durationNanos = durationNanos;
+    this.error = error;
+  }
+
+  public Operation getOperation() {
+    return operation;
+  }
+
+  /*
+   * The Uri operated on, null for the paths of many Uris.
+   * */
+  public Uri getUri() {
+    return uri;
+  }
+
+  /*
+   * The authority of the Uri, to tell providers apart. Null when there is no Uri.
+   * */
+  public String getAuthority() {
+    return uri == null ? null : uri.getAuthority();
+  }
+
+  /*
+   * How much the operation went through, see Operation.
+   * */
+  public long getCount() {
+    return count;
+  }
+
+  /*
+   * Whether the operation ran to its end, false when it failed or was unsubscribed before.
+   * */
+  public boolean isCompleted() {
+    return completed;
+  }
+
+  /*
+   * From the subscription to the completion, the error or the unsubscription.
+   * */
+  public long getDurationNanos() {
+    return durationNanos;
+  }
+
+  public long getDurationMillis() {
+    return TimeUnit.NANOSECONDS.toMillis(durationNanos);
+  }
+
+  /*
+   * Why the operation failed, null when it did not.
+   * */
+  public Throwable getError() {
+    return error;
+  }
+
+  public boolean isSuccessful() {
+    return error == null;
+  }
+
+  @Override public String toString() {
+    return "OperationEvent{operation=" + operation + ", authority=" + getAuthority() + ", count="
+        + count + ", completed=" + completed + ", durationMillis=" + getDurationMillis()
+        + ", error=" + (error == null ? null : error.getClass().getName()) + "}";
+  }
+}
@@ -0,0 +1,53 @@
+package com.pavlospt.rxfile;
+
+import android.net.Uri;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Copyright 2015 Pavlos-Petros Tournaris
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/*
+ * Collects what one operation goes through while a listener is installed, and turns it into an
+ * OperationEvent once, when it completes, fails or is unsubscribed, whichever comes first.
+ * */
+final class OperationTrace {
+
+  private final OperationEvent.Operation operation;
+  private final Uri uri;
+  private final long startNanos;
+  private final AtomicLong count = new AtomicLong();
+  private final AtomicBoolean finished = new AtomicBoolean();
+
+  OperationTrace(OperationEvent.Operation operation, Uri uri) {
+    this.operation = operation;
+    this.uri = uri;
+    this.startNanos = System.nanoTime();
+  }
+
+  void count(long amount) {
+    count.addAndGet(amount);
+  }
+
+  /*
+   * The event of the operation, null when it has already been finished.
+   * */
+  OperationEvent finish(boolean completed, Throwable error) {
+    if (!finished.compareAndSet(false, true)) return null;
+    return new OperationEvent(operation, uri, count.get(), completed,
+        System.nanoTime() - startNanos, error);
+  }
+}
@@ -0,0 +1,114 @@
+package com.pavlospt.rxfile;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.TimeUnit;
+import rx.Emitter;
+
+/**
+ * Copyright 2015 Pavlos-Petros Tournaris
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/*
+ * Turns the byte counts of a copy into throttled ImportProgress events.
+ *
+ * An event is emitted only once progressIntervalMillis have passed, or progressIntervalBytes have
+ * been copied, since the previous one, so the progress stream does not slow the copy down.
+ * Once the subscriber is gone the next chunk aborts the copy.
+ * */
+final class ProgressTracker implements CopyListener {
+
+  private final Emitter<ImportProgress> emitter;
+  private final String authority;
+  private final long progressIntervalNanos;
+  private final long progressIntervalBytes;
+
+  private volatile boolean cancelled;
+
+  private long totalBytes = -1;
+
+  private long startNanos;
+  private long startBytes;
+  private long lastEventNanos;
+  private long lastEventBytes;
+
+  ProgressTracker(Emitter<ImportProgress> emitter, String authority, long progressIntervalMillis,
+      long progressIntervalBytes) {
+    this.emitter = emitter;
+    this.authority = authority;
+    this.progressIntervalNanos = TimeUnit.MILLISECONDS.toNanos(progressIntervalMillis);
+    this.progressIntervalBytes = progressIntervalBytes;
+  }
+
+  /*
+   * Called once the size of the source is known, right before the copy starts.
+   * */
+  void start(long totalBytes) {
+    start(totalBytes, 0);
+  }
+
+  /*
+   * Same as above, for a copy resumed after resumedBytes, which do not count in the throughput.
+   * */
+  void start(long totalBytes, long resumedBytes) {
+    this.totalBytes = totalBytes > 0 ? totalBytes : -1;
+    startNanos = System.nanoTime();
+    startBytes = resumedBytes;
+    lastEventNanos = startNanos;
+    lastEventBytes = resumedBytes;
+    emitter.onNext(event(resumedBytes, startNanos, null));
+  }
+
+  void cancel() {
+    cancelled = true;
+  }
+
+  @Override public void onBytesCopied(long bytesCopied) throws IOException {
+    if (cancelled) {
+      throw new InterruptedIOException("Import from " + authority + " cancelled");
+    }
+    long now = System.nanoTime();
+    boolean timeElapsed =
+        progressIntervalNanos > 0 && now - lastEventNanos >= progressIntervalNanos;
+    boolean bytesElapsed =
+        progressIntervalBytes > 0 && bytesCopied - lastEventBytes >= progressIntervalBytes;
+    if (timeElapsed || bytesElapsed) {
+      emitter.onNext(event(bytesCopied, now, null));
+    }
+  }
+
+  void complete(ImportResult result) {
+    emitter.onNext(
+        event(result.getResumedBytes() + result.getBytesCopied(), System.nanoTime(), result));
+    emitter.onCompleted();
+  }
+
+  private ImportProgress event(long bytesCopied, long now, ImportResult result) {
+    long elapsedNanos = now - startNanos;
+    long sinceLastNanos = now - lastEventNanos;
+    ImportProgress progress = new ImportProgress(authority, bytesCopied, totalBytes,
+        TimeUnit.NANOSECONDS.toMillis(elapsedNanos),
+        bytesPerSecond(bytesCopied - lastEventBytes, sinceLastNanos),
+        bytesPerSecond(bytesCopied - startBytes, elapsedNanos), result);
+    lastEventNanos = now;
+    lastEventBytes = bytesCopied;
+    return progress;
+  }
+
+  private static long bytesPerSecond(long bytes, long nanos) {
+    if (nanos <= 0) return 0;
+    return (long) (bytes * (double) TimeUnit.SECONDS.toNanos(1) / nanos);
+  }
+}
@@ -0,0 +1,47 @@
+package com.pavlospt.rxfile;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Copyright 2015 Pavlos-Petros Tournaris
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/*
+ * The results of a batch of imports, kept retained until the whole batch is over so the cache
+ * folder does not evict the first copies while the last ones are being made.
+ * */
+final class RetainedImports {
+
+  private final List<ImportResult> results = new ArrayList<>();
+  private boolean released;
+
+  /*
+   * Retain the result until releaseAll(), or release it right away when that already happened.
+   * */
+  synchronized void add(ImportResult importResult) {
+    if (released) return;
+    importResult.retain();
+    results.add(importResult);
+  }
+
+  synchronized void releaseAll() {
+    released = true;
+    for (ImportResult importResult : results) {
+      importResult.release();
+    }
+    results.clear();
+  }
+}
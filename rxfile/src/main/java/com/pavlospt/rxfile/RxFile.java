@@ -3,32 +3,45 @@ package com.pavlospt.rxfile;
 import android.content.ClipData;
 import android.content.Context;
 import android.content.pm.PackageManager;
-import android.database.Cursor;
 import android.graphics.Bitmap;
 import android.graphics.BitmapFactory;
 import android.media.ThumbnailUtils;
 import android.net.Uri;
+import android.os.Build;
 import android.os.ParcelFileDescriptor;
 import android.provider.MediaStore;
-import android.support.v4.provider.DocumentFile;
 import android.util.Log;
 import android.webkit.MimeTypeMap;
 import java.io.File;
-import java.io.FileDescriptor;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
-import java.net.URLConnection;
+import java.io.RandomAccessFile;
 import java.nio.ByteBuffer;
-import java.nio.channels.Channels;
-import java.nio.channels.ReadableByteChannel;
-import java.nio.channels.WritableByteChannel;
+import java.net.URLConnection;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import rx.Emitter;
 import rx.Observable;
+import rx.Observer;
+import rx.Scheduler;
+import rx.functions.Action0;
+import rx.functions.Action1;
+import rx.functions.Cancellable;
 import rx.functions.Func0;
 import rx.functions.Func1;
+import rx.schedulers.Schedulers;
 
 /**
  * Copyright 2015 Pavlos-Petros Tournaris
@@ -51,6 +64,70 @@ public class RxFile {
 
   private static boolean LOGGING_ENABLED = false;
 
+  private static volatile RxFileListener LISTENER;
+
+  private static final long DEFAULT_PROGRESS_INTERVAL_MILLIS = 250;
+
+  private static final String HARDWARE_CONFIG = "HARDWARE";
+
+  private static volatile ImportCachePolicy IMPORT_CACHE_POLICY = ImportCachePolicy.METADATA;
+
+  private static long IMPORT_CACHE_MAX_BYTES = 256 * 1024 * 1024;
+
+  private static DiskCache IMPORT_DISK_CACHE;
+
+  private static final InFlightRequests<String, ImportResult> IN_FLIGHT_IMPORTS =
+      new InFlightRequests<>();
+
+  private static final Set<DigestAlgorithm> NO_DIGESTS =
+      Collections.unmodifiableSet(EnumSet.noneOf(DigestAlgorithm.class));
+
+  private static final InFlightRequests<String, ImportProgress> IN_FLIGHT_RESUMABLE_IMPORTS =
+      new InFlightRequests<>();
+
+  private static final BitmapPool BITMAP_POOL = new BitmapPool(BitmapPool.defaultMaxBytes());
+
+  private static final ThumbnailCache THUMBNAIL_CACHE =
+      new ThumbnailCache(ThumbnailCache.defaultMaxBytes(), BITMAP_POOL);
+
+  private static final InFlightRequests<ThumbnailKey, Bitmap> IN_FLIGHT_THUMBNAILS =
+      new InFlightRequests<>();
+
+  private static final int DEFAULT_THUMBNAIL_QUALITY = 80;
+
+  private static final int DEFAULT_THUMBNAIL_CONCURRENCY = 4;
+
+  private static File THUMBNAIL_DISK_CACHE_DIRECTORY;
+  private static long THUMBNAIL_DISK_CACHE_MAX_BYTES;
+  private static Bitmap.CompressFormat THUMBNAIL_DISK_CACHE_FORMAT;
+  private static int THUMBNAIL_DISK_CACHE_QUALITY;
+  // Kept open across disabling, so the directory never gets a second DiskCache.
+  private static DiskCache THUMBNAIL_DISK_CACHE_ENTRIES;
+  private static ThumbnailDiskCache THUMBNAIL_DISK_CACHE;
+
+  private static final UriResolutionCache URI_RESOLUTION_CACHE =
+      new UriResolutionCache(UriResolutionCache.DEFAULT_MAX_ENTRIES,
+          UriResolutionCache.DEFAULT_TTL_MILLIS);
+
+  private static final ExtensionTypes MIME_TYPE_MAP_TYPES =
+      new ExtensionTypes(new ExtensionTypes.Lookup() {
+        @Override
+        public String typeOf(String extension) {
+          return MimeTypeMap.getSingleton().getMimeTypeFromExtension(extension);
+        }
+      });
+
+  private static final ExtensionTypes URL_CONNECTION_TYPES =
+      new ExtensionTypes(new ExtensionTypes.Lookup() {
+        @Override
+        public String typeOf(String extension) {
+          return URLConnection.guessContentTypeFromName("." + extension);
+        }
+      });
+
+  private static final BufferPool BUFFER_POOL =
+      new BufferPool(BufferPool.DEFAULT_MAX_POOLED_BYTES);
+
   public enum MimeMap {
     MimeTypeMap,
     UrlConnection
@@ -75,17 +152,320 @@ public class RxFile {
    * */
   private static Observable<File> createFileFromUri(final Context context, final Uri data,
       final MimeMap mimeTypeMap) {
-    return Observable.defer(new Func0<Observable<File>>() {
+    return importFromUri(context, data, mimeTypeMap).map(new Func1<ImportResult, File>() {
       @Override
-      public Observable<File> call() {
+      public File call(ImportResult importResult) {
+        return importResult.getFile();
+      }
+    });
+  }
+
+  /*
+   * Create a copy of the file found under the provided Uri, in the Library's cache folder, and
+   * report how the bytes were copied.
+   *
+   * The mime type of the resource will be determined by URLConnection.guessContentTypeFromName() method.
+   * */
+  public static Observable<ImportResult> importFromUri(final Context context, final Uri data) {
+    return importFromUri(context, data, MimeMap.UrlConnection);
+  }
+
+  /*
+   * Create a copy of the file found under the provided Uri, in the Library's cache folder, and
+   * report how the bytes were copied.
+   *
+   * You can supply mime type mapping parameter to choose which map will be used.
+   * */
+  public static Observable<ImportResult> importFromUri(final Context context, final Uri data,
+      final MimeMap mimeTypeMap) {
+    return importFromUri(context, data, mimeTypeMap, NO_DIGESTS);
+  }
+
+  /*
+   * Create a copy of the file found under the provided Uri, in the Library's cache folder, and
+   * compute the requested digests of its bytes, see ImportResult.getDigest().
+   *
+   * The digests are computed on the buffers of the copy as they flow through it, so verifying the
+   * copy costs no second read of the file. Those buffers are skipped by the kernel copy of regular
+   * files, which a digested import therefore gives up. A copy reused from the cache folder is
+   * read once to compute them, except for the SHA-256 already verified by CONTENT_HASH.
+   * */
+  public static Observable<ImportResult> importFromUri(final Context context, final Uri data,
+      final DigestAlgorithm... digestAlgorithms) {
+    Set<DigestAlgorithm> algorithms = EnumSet.noneOf(DigestAlgorithm.class);
+    Collections.addAll(algorithms, digestAlgorithms);
+    return importFromUri(context, data, MimeMap.UrlConnection,
+        Collections.unmodifiableSet(algorithms));
+  }
+
+  private static Observable<ImportResult> importFromUri(final Context context, final Uri data,
+      final MimeMap mimeTypeMap, final Set<DigestAlgorithm> digestAlgorithms) {
+    return Observable.defer(new Func0<Observable<ImportResult>>() {
+      @Override
+      public Observable<ImportResult> call() {
+        return sharedImport(context, data, mimeTypeMap, digestAlgorithms).flatMap(
+            new Func1<ImportResult, Observable<ImportResult>>() {
+              @Override
+              public Observable<ImportResult> call(ImportResult importResult) {
+                return emitImportResult(importResult);
+              }
+            });
+      }
+    });
+  }
+
+  /*
+   * Get the import in flight for the same Uri, or start a new one.
+   *
+   * Every concurrent subscriber shares a single copy, which is only started once and then
+   * forgotten as soon as it terminates. The copy's own pin is dropped once, whether the import
+   * terminates or its last subscriber leaves early, like after first().
+   * */
+  private static Observable<ImportResult> sharedImport(final Context context, final Uri data,
+      final MimeMap mimeTypeMap, final Set<DigestAlgorithm> digestAlgorithms) {
+    return IN_FLIGHT_IMPORTS.share(mimeTypeMap + ":" + digestAlgorithms + ":" + data,
+        Observable.defer(new Func0<Observable<ImportResult>>() {
+          @Override
+          public Observable<ImportResult> call() {
+            try {
+              final ImportResult importResult =
+                  importFileFromUri(context, data, mimeTypeMap, null, false, digestAlgorithms);
+              final AtomicBoolean released = new AtomicBoolean();
+              Action0 release = new Action0() {
+                @Override
+                public void call() {
+                  // Every current subscriber has retained the entry by now, or left without it.
+                  if (released.compareAndSet(false, true)) {
+                    importResult.release();
+                  }
+                }
+              };
+              return Observable.just(importResult).doAfterTerminate(release)
+                  .doOnUnsubscribe(release);
+            } catch (Exception e) {
+              logError(e);
+              return Observable.error(e);
+            }
+          }
+        }));
+  }
+
+
+  /*
+   * Emit a result, keeping its cache entry out of eviction until the subscriber is done with it.
+   * */
+  private static Observable<ImportResult> emitImportResult(final ImportResult importResult) {
+    return Observable.using(new Func0<ImportResult>() {
+      @Override
+      public ImportResult call() {
+        importResult.retain();
+        return importResult;
+      }
+    }, new Func1<ImportResult, Observable<ImportResult>>() {
+      @Override
+      public Observable<ImportResult> call(ImportResult retained) {
+        return Observable.just(retained);
+      }
+    }, new Action1<ImportResult>() {
+      @Override
+      public void call(ImportResult retained) {
+        retained.release();
+      }
+    });
+  }
+
+  /*
+   * Create a copy of the file found under the provided Uri, in the Library's cache folder, and
+   * emit progress events while the bytes are copied.
+   *
+   * Progress events are emitted at most every 250 milliseconds, the last event carries the
+   * ImportResult. Unsubscribing cancels the copy.
+   * */
+  public static Observable<ImportProgress> importFromUriWithProgress(final Context context,
+      final Uri data) {
+    return importFromUriWithProgress(context, data, DEFAULT_PROGRESS_INTERVAL_MILLIS, 0);
+  }
+
+  /*
+   * Create a copy of the file found under the provided Uri, in the Library's cache folder, and
+   * emit progress events while the bytes are copied.
+   *
+   * A progress event is emitted once progressIntervalMillis have passed or progressIntervalBytes
+   * have been copied since the previous one, pass 0 to disable either of them. When the subscriber
+   * is slower than the events only the latest one is kept, the last event carries the
+   * ImportResult. Unsubscribing cancels the copy.
+   * */
+  public static Observable<ImportProgress> importFromUriWithProgress(final Context context,
+      final Uri data, final long progressIntervalMillis, final long progressIntervalBytes) {
+    return trackedImport(context, data, progressIntervalMillis, progressIntervalBytes, false);
+  }
+
+  /*
+   * Create a copy of the file found under the provided Uri, in the Library's cache folder, and
+   * emit progress events while the bytes are copied, resuming the copy an earlier attempt left
+   * partial.
+   *
+   * The bytes written are checkpointed every 8MB and when the copy fails or is cancelled by
+   * unsubscribing, so an import killed with the process or cancelled is resumed where it stopped
+   * by the next one, instead of starting over. A partial copy is only resumed when the provider
+   * reports the same size and last modified time as when it was started and its descriptor can
+   * be seeked, otherwise the copy starts from the beginning.
+   *
+   * Concurrent resumable imports of the same Uri share a single copy, which is only cancelled once
+   * all of them unsubscribed. Those joining one in flight get its latest progress event first.
+   * */
+  public static Observable<ImportProgress> importFromUriResumable(final Context context,
+      final Uri data) {
+    return importFromUriResumable(context, data, DEFAULT_PROGRESS_INTERVAL_MILLIS, 0);
+  }
+
+  /*
+   * Same as above, emitting progress events as importFromUriWithProgress() does.
+   * */
+  public static Observable<ImportProgress> importFromUriResumable(final Context context,
+      final Uri data, final long progressIntervalMillis, final long progressIntervalBytes) {
+    return Observable.defer(new Func0<Observable<ImportProgress>>() {
+      @Override
+      public Observable<ImportProgress> call() {
+        return IN_FLIGHT_RESUMABLE_IMPORTS.share(data.toString(),
+            trackedImport(context, data, progressIntervalMillis, progressIntervalBytes, true))
+            .flatMap(new Func1<ImportProgress, Observable<ImportProgress>>() {
+              @Override
+              public Observable<ImportProgress> call(ImportProgress progress) {
+                return emitImportProgress(progress);
+              }
+            })
+            .onBackpressureLatest();
+      }
+    });
+  }
+
+  /*
+   * Emit a progress event, keeping the cache entry of the result it may carry out of eviction
+   * until the subscriber is done with it.
+   * */
+  private static Observable<ImportProgress> emitImportProgress(final ImportProgress progress) {
+    final ImportResult importResult = progress.getResult();
+    if (importResult == null) {
+      return Observable.just(progress);
+    }
+    return emitImportResult(importResult).map(new Func1<ImportResult, ImportProgress>() {
+      @Override
+      public ImportProgress call(ImportResult retained) {
+        return progress;
+      }
+    });
+  }
+
+  private static Observable<ImportProgress> trackedImport(final Context context, final Uri data,
+      final long progressIntervalMillis, final long progressIntervalBytes,
+      final boolean resumable) {
+    return Observable.create(new Action1<Emitter<ImportProgress>>() {
+      @Override
+      public void call(Emitter<ImportProgress> emitter) {
+        final ProgressTracker progressTracker =
+            new ProgressTracker(emitter, data.getAuthority(), progressIntervalMillis,
+                progressIntervalBytes);
+        final AtomicReference<ImportResult> importResult = new AtomicReference<>();
+        emitter.setCancellation(new Cancellable() {
+          @Override
+          public void cancel() {
+            progressTracker.cancel();
+            ImportResult result = importResult.get();
+            if (result != null) result.release();
+          }
+        });
         try {
-          return Observable.just(fileFromUri(context, data, mimeTypeMap));
+          importResult.set(
+              importFileFromUri(context, data, MimeMap.UrlConnection, progressTracker,
+                  resumable, NO_DIGESTS));
+          progressTracker.complete(importResult.get());
         } catch (Exception e) {
           logError(e);
-          return Observable.error(e);
+          emitter.onError(e);
         }
       }
-    });
+    }, Emitter.BackpressureMode.LATEST);
+  }
+
+  /*
+   * Read the file found under the provided Uri without copying it anywhere, as chunks of bytes
+   * read as they are requested, to upload, hash or parse it in a single pass.
+   *
+   * Chunks are read-only views of pooled buffers, only valid until onNext() returns: consume or
+   * copy them there, do not observeOn() another thread first. The descriptor is opened on the
+   * first request, and closed on completion, error or unsubscription.
+   * */
+  public static Observable<ByteBuffer> readFromUri(final Context context, final Uri data) {
+    return traced(OperationEvent.Operation.READ, data,
+        new Func1<OperationTrace, Observable<ByteBuffer>>() {
+          @Override
+          public Observable<ByteBuffer> call(final OperationTrace trace) {
+            Observable<ByteBuffer> chunks =
+                Observable.create(new ChunkedReader(new Callable<FileInputStream>() {
+                  @Override
+                  public FileInputStream call() throws IOException {
+                    return new ParcelFileDescriptor.AutoCloseInputStream(
+                        openForRead(context, data));
+                  }
+                }, BUFFER_POOL));
+            return trace == null ? chunks : chunks.doOnNext(new Action1<ByteBuffer>() {
+              @Override
+              public void call(ByteBuffer chunk) {
+                trace.count(chunk.remaining());
+              }
+            });
+          }
+        });
+  }
+
+  /*
+   * Map the file for random access, for formats like MP4 or ZIP whose index tables are read out of
+   * order, and hand the view to the reader.
+   *
+   * The view is valid for as long as the Observable returned by the reader is subscribed, it is
+   * closed on completion, error or unsubscription, so do all the reading inside of it.
+   * */
+  public static <T> Observable<T> mapFile(final File file,
+      final Func1<MappedFileView, Observable<T>> reader) {
+    return mapped(Uri.fromFile(file), new Callable<MappedFileView>() {
+      @Override
+      public MappedFileView call() throws IOException {
+        RandomAccessFile randomAccessFile = new RandomAccessFile(file, Constants.READ_MODE);
+        try {
+          return new MappedFileView(randomAccessFile.getChannel(), randomAccessFile);
+        } catch (IOException e) {
+          randomAccessFile.close();
+          throw e;
+        }
+      }
+    }, reader);
+  }
+
+  /*
+   * Map the file found under the provided Uri for random access without copying it first, see
+   * mapFile(). Only seekable descriptors can be mapped, pipes and sockets fail with an IOException.
+   * */
+  public static <T> Observable<T> mapFromUri(final Context context, final Uri data,
+      final Func1<MappedFileView, Observable<T>> reader) {
+    return mapped(data, new Callable<MappedFileView>() {
+      @Override
+      public MappedFileView call() throws IOException {
+        ParcelFileDescriptor parcelFileDescriptor = openForRead(context, data);
+        if (parcelFileDescriptor.getStatSize() < 0) {
+          parcelFileDescriptor.close();
+          throw new IOException("Can not map a descriptor that is not seekable: " + data);
+        }
+        FileInputStream inputStream =
+            new ParcelFileDescriptor.AutoCloseInputStream(parcelFileDescriptor);
+        try {
+          return new MappedFileView(inputStream.getChannel(), inputStream);
+        } catch (IOException e) {
+          inputStream.close();
+          throw e;
+        }
+      }
+    }, reader);
   }
 
   /*
@@ -108,22 +488,73 @@ public class RxFile {
    * */
   private static Observable<List<File>> createFileFromUri(final Context context,
       final ArrayList<Uri> uris, final MimeMap mimeTypeMap) {
-    return Observable.defer(new Func0<Observable<List<File>>>() {
-      @Override
-      public Observable<List<File>> call() {
-
-        List<File> filesRetrieved = new ArrayList<>(uris.size());
+    return importAllRetained(context, uris, mimeTypeMap);
+  }
 
-        for (Uri data : uris) {
-          try {
-            filesRetrieved.add(fileFromUri(context, data, mimeTypeMap));
-          } catch (Exception e) {
-            logError(e);
-            return Observable.error(e);
+  /*
+   * Copy the Uris one after the other and emit their Files as a single List.
+   *
+   * Every copy stays pinned in the Library's cache folder until the List has been emitted, or the
+   * batch failed or was unsubscribed, so a batch larger than the cache budget never gets the
+   * copies it made first evicted before it is handed out.
+   * */
+  private static Observable<List<File>> importAllRetained(final Context context,
+      final List<Uri> uris, final MimeMap mimeTypeMap) {
+    return Observable.using(new Func0<RetainedImports>() {
+      @Override
+      public RetainedImports call() {
+        return new RetainedImports();
+      }
+    }, new Func1<RetainedImports, Observable<List<File>>>() {
+      @Override
+      public Observable<List<File>> call(final RetainedImports retained) {
+        return Observable.from(uris).concatMap(new Func1<Uri, Observable<File>>() {
+          @Override
+          public Observable<File> call(Uri data) {
+            return importFromUri(context, data, mimeTypeMap).map(
+                new Func1<ImportResult, File>() {
+                  @Override
+                  public File call(ImportResult importResult) {
+                    // Still pinned by its emission, pinned once more for the rest of the batch.
+                    retained.add(importResult);
+                    return importResult.getFile();
+                  }
+                });
           }
-        }
+        }).toList();
+      }
+    }, new Action1<RetainedImports>() {
+      @Override
+      public void call(RetainedImports retained) {
+        retained.releaseAll();
+      }
+    });
+  }
+
+  /*
+   * Create a copy of the files found under the provided List of Uris, in the Library's cache folder,
+   * emitting every File as soon as it has been copied.
+   *
+   * The Uris are copied one after the other and only as fast as the subscriber requests Files.
+   * The mime type of the resource will be determined by URLConnection.guessContentTypeFromName() method.
+   * */
+  public static Observable<File> createFileStreamFromUri(final Context context,
+      final List<Uri> uris) {
+    return createFileStreamFromUri(context, uris, MimeMap.UrlConnection);
+  }
 
-        return Observable.just(filesRetrieved);
+  /*
+   * Create a copy of the files found under the provided List of Uris, in the Library's cache folder,
+   * emitting every File as soon as it has been copied.
+   *
+   * You can supply mime type mapping parameter to choose which map will be used.
+   * */
+  private static Observable<File> createFileStreamFromUri(final Context context,
+      final List<Uri> uris, final MimeMap mimeTypeMap) {
+    return Observable.from(uris).concatMap(new Func1<Uri, Observable<File>>() {
+      @Override
+      public Observable<File> call(Uri data) {
+        return createFileFromUri(context, data, mimeTypeMap);
       }
     });
   }
@@ -153,25 +584,170 @@ public class RxFile {
     return Observable.defer(new Func0<Observable<List<File>>>() {
       @Override
       public Observable<List<File>> call() {
-        int numOfUris = clipData.getItemCount();
-        List<File> filesRetrieved = new ArrayList<>(numOfUris);
+        return importAllRetained(context, urisFromClipData(clipData), mimeTypeMap);
+      }
+    });
+  }
 
-        for (int i = 0; i < numOfUris; i++) {
-          Uri data = clipData.getItemAt(i).getUri();
-          if (data != null) {
-            try {
-              filesRetrieved.add(fileFromUri(context, data, mimeTypeMap));
-            } catch (Exception e) {
-              logError(e);
-              return Observable.error(e);
+  /*
+   * Create a copy of the files found under the ClipData item passed from MultiSelection, in the Library's cache folder,
+   * emitting every File as soon as it has been copied.
+   *
+   * The items are copied one after the other and only as fast as the subscriber requests Files.
+   * The mime type of the resource will be determined by URLConnection.guessContentTypeFromName() method.
+   * */
+  public static Observable<File> createFileStreamFromClipData(final Context context,
+      final ClipData clipData) {
+    return createFileStreamFromClipData(context, clipData, MimeMap.UrlConnection);
+  }
+
+  /*
+   * Create a copy of the files found under the ClipData item passed from MultiSelection, in the Library's cache folder,
+   * emitting every File as soon as it has been copied.
+   *
+   * You can supply mime type mapping parameter to choose which map will be used.
+   * */
+  private static Observable<File> createFileStreamFromClipData(final Context context,
+      final ClipData clipData, final MimeMap mimeTypeMap) {
+    return Observable.defer(new Func0<Observable<File>>() {
+      @Override
+      public Observable<File> call() {
+        return createFileStreamFromUri(context, urisFromClipData(clipData), mimeTypeMap);
+      }
+    });
+  }
+
+  /*
+   * Create a copy of the files found under the provided List of Uris, in the Library's cache folder,
+   * running the copies concurrently.
+   *
+   * Every File is emitted as soon as it lands, or in the order of the Uris when the options ask
+   * for it. See BatchOptions for the Scheduler, concurrency and error handling settings.
+   * */
+  public static Observable<File> importFiles(final Context context, final List<Uri> uris,
+      final BatchOptions options) {
+    return importFilesConcurrently(context, uris, options);
+  }
+
+  /*
+   * Create a copy of the files found under the ClipData item passed from MultiSelection, in the
+   * Library's cache folder, running the copies concurrently.
+   *
+   * Every File is emitted as soon as it lands, or in the order of the items when the options ask
+   * for it. See BatchOptions for the Scheduler, concurrency and error handling settings.
+   * */
+  public static Observable<File> importFiles(final Context context, final ClipData clipData,
+      final BatchOptions options) {
+    return Observable.defer(new Func0<Observable<File>>() {
+      @Override
+      public Observable<File> call() {
+        return importFilesConcurrently(context, urisFromClipData(clipData), options);
+      }
+    });
+  }
+
+  /*
+   * Walk the document tree picked through ACTION_OPEN_DOCUMENT_TREE, emitting every document found
+   * under it, however deep.
+   *
+   * Each directory is listed with a single query projected on the columns a DocumentEntry holds,
+   * subdirectories are listed concurrently and entries are read as they are requested, so large
+   * trees stream in bounded memory. Needs Lollipop, when document trees were introduced.
+   * */
+  public static Observable<DocumentEntry> walkDocumentTree(final Context context,
+      final Uri treeUri) {
+    return walkDocumentTree(context, treeUri, TreeWalkOptions.defaults());
+  }
+
+  /*
+   * Same as above, see TreeWalkOptions for the Scheduler, concurrency and filtering settings.
+   * */
+  public static Observable<DocumentEntry> walkDocumentTree(final Context context,
+      final Uri treeUri, final TreeWalkOptions options) {
+    if (Build.VERSION.SDK_INT < Build.VERSION_CODES.LOLLIPOP) {
+      return Observable.error(
+          new UnsupportedOperationException("Document trees are only available from Lollipop on"));
+    }
+    return traced(OperationEvent.Operation.WALK_DOCUMENT_TREE, treeUri,
+        new Func1<OperationTrace, Observable<DocumentEntry>>() {
+          @Override
+          public Observable<DocumentEntry> call(final OperationTrace trace) {
+            Observable<DocumentEntry> entries =
+                new DocumentTreeWalker(context.getContentResolver(), treeUri, options).walk();
+            return trace == null ? entries : entries.doOnNext(new Action1<DocumentEntry>() {
+              @Override
+              public void call(DocumentEntry entry) {
+                trace.count(1);
+              }
+            });
+          }
+        });
+  }
+
+  private static Observable<File> importFilesConcurrently(final Context context,
+      final List<Uri> uris, final BatchOptions options) {
+    return Observable.defer(new Func0<Observable<File>>() {
+      @Override
+      public Observable<File> call() {
+        final List<BatchImportException.Failure> failures =
+            Collections.synchronizedList(new ArrayList<BatchImportException.Failure>());
+
+        Func1<Integer, Observable<File>> importer = new Func1<Integer, Observable<File>>() {
+          @Override
+          public Observable<File> call(final Integer index) {
+            final Uri data = uris.get(index);
+            Observable<File> file = createFileFromUri(context, data, options.getMimeMap())
+                .subscribeOn(options.getScheduler());
+            if (!options.isDelayErrors()) {
+              return file;
             }
+            return file.onErrorResumeNext(new Func1<Throwable, Observable<File>>() {
+              @Override
+              public Observable<File> call(Throwable throwable) {
+                failures.add(new BatchImportException.Failure(index, data, throwable));
+                return Observable.empty();
+              }
+            });
           }
+        };
+
+        // Imported by position, so a Uri listed twice is told apart in the failures.
+        Observable<Integer> source = Observable.range(0, uris.size());
+        Observable<File> files = options.isPreserveOrder()
+            ? source.concatMapEager(importer, options.getMaxConcurrency(),
+            options.getMaxConcurrency())
+            : source.flatMap(importer, options.getMaxConcurrency());
+
+        if (!options.isDelayErrors()) {
+          return files;
         }
-        return Observable.just(filesRetrieved);
+        return files.concatWith(Observable.defer(new Func0<Observable<File>>() {
+          @Override
+          public Observable<File> call() {
+            synchronized (failures) {
+              if (failures.isEmpty()) {
+                return Observable.empty();
+              }
+              return Observable.error(new BatchImportException(new ArrayList<>(failures)));
+            }
+          }
+        }));
       }
     });
   }
 
+  private static List<Uri> urisFromClipData(ClipData clipData) {
+    int numOfUris = clipData.getItemCount();
+    List<Uri> uris = new ArrayList<>(numOfUris);
+    for (int i = 0; i < numOfUris; i++) {
+      Uri data = clipData.getItemAt(i).getUri();
+      if (data != null) {
+        uris.add(data);
+      }
+    }
+    return uris;
+  }
+
   /*
    * Get a thumbnail from the provided Image or Video Uri.
    * */
@@ -196,6 +772,18 @@ public class RxFile {
     return getThumbnailFromUriWithSizeAndKind(context, uri, requiredWidth, requiredHeight, kind);
   }
 
+  /*
+   * Get a thumbnail from the provided Image or Video Uri in the specified size, kind and
+   * Bitmap.Config. Bitmap.Config.RGB_565 halves the memory of opaque thumbnails,
+   * Bitmap.Config.HARDWARE keeps them out of the Java heap on Oreo and newer.
+   * Kind is a value of MediaStore.Images.Thumbnails.MICRO_KIND or MediaStore.Images.Thumbnails.MINI_KIND
+   * */
+  public static Observable<Bitmap> getThumbnail(Context context, Uri uri, int requiredWidth,
+      int requiredHeight, int kind, Bitmap.Config config) {
+    return getThumbnailFromUriWithSizeAndKind(context, uri, requiredWidth, requiredHeight, kind,
+        config);
+  }
+
   /*
    * Get a thumbnail from the provided Image or Video Uri.
    * */
@@ -219,84 +807,75 @@ public class RxFile {
    * */
   private static Observable<Bitmap> getThumbnailFromUriWithSizeAndKind(final Context context,
       final Uri data, final int requiredWidth, final int requiredHeight, final int kind) {
+    return getThumbnailFromUriWithSizeAndKind(context, data, requiredWidth, requiredHeight, kind,
+        null);
+  }
+
+  /*
+   * Get a thumbnail from the provided Image or Video Uri in the specified size, kind and
+   * Bitmap.Config.
+   * Kind is a value of MediaStore.Images.Thumbnails.MICRO_KIND or MediaStore.Images.Thumbnails.MINI_KIND
+   * */
+  private static Observable<Bitmap> getThumbnailFromUriWithSizeAndKind(final Context context,
+      final Uri data, final int requiredWidth, final int requiredHeight, final int kind,
+      final Bitmap.Config config) {
+    return cachedThumbnail(thumbnailKey(data, requiredWidth, requiredHeight, kind, config),
+        sourceStamp(context, data), config, new Func1<ThumbnailTrace, Observable<Bitmap>>() {
+          @Override
+          public Observable<Bitmap> call(ThumbnailTrace trace) {
+            return decodeThumbnailFromUri(context, data, requiredWidth, requiredHeight, kind,
+                config, trace);
+          }
+        });
+  }
+
+  private static Observable<Bitmap> decodeThumbnailFromUri(final Context context,
+      final Uri data, final int requiredWidth, final int requiredHeight, final int kind,
+      final Bitmap.Config config, final ThumbnailTrace trace) {
     return Observable.fromCallable(new Func0<Bitmap>() {
       @Override
       public Bitmap call() {
         Bitmap bitmap = null;
-        ParcelFileDescriptor parcelFileDescriptor;
-        final BitmapFactory.Options options = new BitmapFactory.Options();
-        if (requiredWidth > 0 && requiredHeight > 0) {
-          options.inJustDecodeBounds = true;
-          options.inSampleSize = calculateInSampleSize(options, requiredWidth, requiredHeight);
-          options.inJustDecodeBounds = false;
-        }
         if (!isMediaUri(data)) {
           logDebug("Not a media uri:" + data);
           if (isGoogleDriveDocument(data)) {
             logDebug("Google Drive Uri:" + data);
-            DocumentFile file = DocumentFile.fromSingleUri(context, data);
-            if (file.getType().startsWith(Constants.IMAGE_TYPE) || file.getType()
-                .startsWith(Constants.VIDEO_TYPE)) {
-              logDebug("Google Drive Uri:" + data + " (Video or Image)");
-              try {
-                parcelFileDescriptor = context.getContentResolver().
-                    openFileDescriptor(data, Constants.READ_MODE);
-                FileDescriptor fileDescriptor = parcelFileDescriptor.getFileDescriptor();
-                bitmap = BitmapFactory.decodeFileDescriptor(fileDescriptor, null, options);
-                parcelFileDescriptor.close();
-                return bitmap;
-              } catch (IOException e) {
-                logError(e);
-              }
-            }
-          } else if (data.getScheme().equals(Constants.FILE)) {
-            logDebug("Dropbox or other DocumentsProvider Uri:" + data);
+            String fileType = null;
             try {
-              parcelFileDescriptor = context.getContentResolver().
-                  openFileDescriptor(data, Constants.READ_MODE);
-              FileDescriptor fileDescriptor = parcelFileDescriptor.getFileDescriptor();
-              bitmap = BitmapFactory.decodeFileDescriptor(fileDescriptor, null, options);
-              parcelFileDescriptor.close();
-              return bitmap;
-            } catch (IOException e) {
+              fileType = URI_RESOLUTION_CACHE.metadata(context, data).getMimeType();
+            } catch (Exception e) {
               logError(e);
             }
+            if (fileType != null && (fileType.startsWith(Constants.IMAGE_TYPE)
+                || fileType.startsWith(Constants.VIDEO_TYPE))) {
+              logDebug("Google Drive Uri:" + data + " (Video or Image)");
+              try {
+                return decodeSampledBitmap(context, data, requiredWidth, requiredHeight, config,
+                    trace);
+              } catch (IOException e) {
+                logError(e);
+              }
+            }
           } else {
+            if (Constants.FILE.equals(data.getScheme())) {
+              logDebug("Dropbox or other DocumentsProvider Uri:" + data);
+            }
             try {
-              parcelFileDescriptor = context.getContentResolver().
-                  openFileDescriptor(data, Constants.READ_MODE);
-              FileDescriptor fileDescriptor = parcelFileDescriptor.getFileDescriptor();
-              bitmap = BitmapFactory.decodeFileDescriptor(fileDescriptor, null, options);
-              parcelFileDescriptor.close();
-              return bitmap;
+              return decodeSampledBitmap(context, data, requiredWidth, requiredHeight, config,
+                  trace);
             } catch (IOException e) {
               logError(e);
             }
           }
         } else {
           logDebug("Uri for thumbnail:" + data);
-          String[] parts = data.getLastPathSegment().split(":");
-          String fileId = parts[1];
-          Cursor cursor = null;
           try {
-            cursor = context.getContentResolver().query(data, null, null, null, null);
-            if (cursor != null) {
-              logDebug("Cursor size:" + cursor.getCount());
-              if (cursor.moveToFirst()) {
-                if (data.toString().contains(Constants.VIDEO)) {
-                  bitmap = MediaStore.Video.Thumbnails.getThumbnail(context.getContentResolver(),
-                      Long.parseLong(fileId), kind, options);
-                } else if (data.toString().contains(Constants.IMAGE)) {
-                  bitmap = MediaStore.Images.Thumbnails.getThumbnail(context.getContentResolver(),
-                      Long.parseLong(fileId), kind, options);
-                }
-              }
+            if (URI_RESOLUTION_CACHE.metadata(context, data).exists()) {
+              bitmap = getMediaStoreThumbnail(context, data, kind, config);
             }
             return bitmap;
           } catch (Exception e) {
             logError(e);
-          } finally {
-            if (cursor != null) cursor.close();
           }
         }
         return bitmap;
@@ -304,6 +883,367 @@ public class RxFile {
     });
   }
 
+  /*
+   * Get the thumbnail MediaStore keeps for a media Uri known to exist.
+   * MediaStore thumbnails are already bounded by their kind, only the config applies.
+   * */
+  private static Bitmap getMediaStoreThumbnail(Context context, Uri data, int kind,
+      Bitmap.Config config) {
+    final BitmapFactory.Options options = new BitmapFactory.Options();
+    applyPreferredConfig(options, config);
+    long fileId = Long.parseLong(getMediaStoreId(data));
+    if (data.toString().contains(Constants.VIDEO)) {
+      return MediaStore.Video.Thumbnails.getThumbnail(context.getContentResolver(), fileId, kind,
+          options);
+    } else if (data.toString().contains(Constants.IMAGE)) {
+      return MediaStore.Images.Thumbnails.getThumbnail(context.getContentResolver(), fileId, kind,
+          options);
+    }
+    return null;
+  }
+
+  /*
+   * The MediaStore id of a media Uri, either a media document ("image:42") or a MediaStore
+   * item (content://media/external/images/media/42).
+   * */
+  private static String getMediaStoreId(Uri data) {
+    String lastPathSegment = data.getLastPathSegment();
+    return lastPathSegment.substring(lastPathSegment.indexOf(':') + 1);
+  }
+
+  /*
+   * Emit the thumbnail from the memory cache when it is there, otherwise from the disk cache if
+   * it is enabled, otherwise decode it. The lookup or decode is shared with every concurrent
+   * request for the same thumbnail, and its result cached.
+   * */
+  private static Observable<Bitmap> cachedThumbnail(ThumbnailKey key,
+      Func0<SourceStamp> sourceStamp, Bitmap.Config config, final Observable<Bitmap> decode) {
+    return cachedThumbnail(key, sourceStamp, config,
+        new Func1<ThumbnailTrace, Observable<Bitmap>>() {
+          @Override
+          public Observable<Bitmap> call(ThumbnailTrace trace) {
+            return decode;
+          }
+        });
+  }
+
+  /*
+   * Same as above, for decoders that record the bounds and sample size of what they decode in
+   * the trace of the request, which is null unless a listener is installed.
+   * */
+  private static Observable<Bitmap> cachedThumbnail(final ThumbnailKey key,
+      final Func0<SourceStamp> sourceStamp, final Bitmap.Config config,
+      final Func1<ThumbnailTrace, Observable<Bitmap>> decoder) {
+    return Observable.defer(new Func0<Observable<Bitmap>>() {
+      @Override
+      public Observable<Bitmap> call() {
+        RxFileListener listener = LISTENER;
+        ThumbnailTrace trace = listener == null ? null : new ThumbnailTrace(key);
+        Bitmap cached = THUMBNAIL_CACHE.get(key);
+        if (cached != null) {
+          if (trace != null) {
+            trace.setOrigin(ThumbnailEvent.Origin.MEMORY_CACHE);
+            notifyThumbnailFinished(listener, trace.finish(cached, null));
+          }
+          return Observable.just(cached);
+        }
+        Observable<Bitmap> thumbnail = IN_FLIGHT_THUMBNAILS.share(key,
+            diskCachedThumbnail(key, sourceStamp, config, decoder.call(trace), trace).doOnNext(
+                new Action1<Bitmap>() {
+                  @Override
+                  public void call(Bitmap bitmap) {
+                    THUMBNAIL_CACHE.put(key, bitmap);
+                  }
+                })).doOnNext(new Action1<Bitmap>() {
+                  @Override
+                  public void call(Bitmap bitmap) {
+                    // Every subscriber sharing the decode is a hand-out of its own.
+                    THUMBNAIL_CACHE.retain(bitmap);
+                  }
+                });
+        return trace == null ? thumbnail : traced(thumbnail, listener, trace);
+      }
+    });
+  }
+
+  private static Observable<Bitmap> diskCachedThumbnail(final ThumbnailKey key,
+      final Func0<SourceStamp> sourceStamp, final Bitmap.Config config,
+      final Observable<Bitmap> decode, final ThumbnailTrace trace) {
+    return Observable.defer(new Func0<Observable<Bitmap>>() {
+      @Override
+      public Observable<Bitmap> call() {
+        final ThumbnailDiskCache diskCache = getThumbnailDiskCache();
+        if (diskCache == null) {
+          if (trace != null) trace.setOrigin(ThumbnailEvent.Origin.DECODED);
+          return decode;
+        }
+        final SourceStamp stamp = sourceStamp.call();
+        try {
+          Bitmap cached = diskCache.get(key, stamp, config);
+          if (cached != null) {
+            logDebug("Thumbnail read from disk: " + key);
+            if (trace != null) trace.setOrigin(ThumbnailEvent.Origin.DISK_CACHE);
+            return Observable.just(cached);
+          }
+        } catch (IOException e) {
+          logError(e);
+        }
+        if (trace != null) trace.setOrigin(ThumbnailEvent.Origin.DECODED);
+        return decode.doOnNext(new Action1<Bitmap>() {
+          @Override
+          public void call(Bitmap bitmap) {
+            try {
+              diskCache.put(key, stamp, bitmap);
+            } catch (IOException e) {
+              logError(e);
+            }
+          }
+        });
+      }
+    });
+  }
+
+  /*
+   * Tell the listener about the thumbnail once it is emitted, or once it fails.
+   * */
+  private static Observable<Bitmap> traced(Observable<Bitmap> thumbnail,
+      final RxFileListener listener, final ThumbnailTrace trace) {
+    return thumbnail.doOnEach(new Observer<Bitmap>() {
+      @Override
+      public void onCompleted() {
+      }
+
+      @Override
+      public void onError(Throwable e) {
+        notifyThumbnailFinished(listener, trace.finish(null, e));
+      }
+
+      @Override
+      public void onNext(Bitmap bitmap) {
+        notifyThumbnailFinished(listener, trace.finish(bitmap, null));
+      }
+    });
+  }
+
+  private static Func0<SourceStamp> sourceStamp(final Context context, final Uri data) {
+    return new Func0<SourceStamp>() {
+      @Override
+      public SourceStamp call() {
+        try {
+          return URI_RESOLUTION_CACHE.metadata(context, data).toSourceStamp();
+        } catch (Exception e) {
+          logError(e);
+          return SourceStamp.UNKNOWN;
+        }
+      }
+    };
+  }
+
+  private static Func0<SourceStamp> sourceStamp(final String path) {
+    return new Func0<SourceStamp>() {
+      @Override
+      public SourceStamp call() {
+        File file = new File(path);
+        return new SourceStamp(file.length(), file.lastModified());
+      }
+    };
+  }
+
+  private static ThumbnailKey thumbnailKey(Uri data, int requiredWidth, int requiredHeight,
+      int kind, Bitmap.Config config) {
+    return new ThumbnailKey(data.toString(), requiredWidth, requiredHeight, kind,
+        config == null ? null : config.name());
+  }
+
+  /*
+   * Get the thumbnail of the provided Image or Video Uri from the memory cache, without doing any
+   * work. Returns null when it has not been generated yet.
+   *
+   * The thumbnail is shared with every other subscriber it was served to, do not recycle it,
+   * see releaseThumbnail().
+   * */
+  public static Bitmap getCachedThumbnail(Uri uri, int requiredWidth, int requiredHeight) {
+    return getCachedThumbnail(uri, requiredWidth, requiredHeight,
+        MediaStore.Images.Thumbnails.MINI_KIND, null);
+  }
+
+  /*
+   * Get the thumbnail of the provided Image or Video Uri in the specified size, kind and
+   * Bitmap.Config from the memory cache, without doing any work. Returns null when it has not
+   * been generated yet.
+   * */
+  public static Bitmap getCachedThumbnail(Uri uri, int requiredWidth, int requiredHeight,
+      int kind, Bitmap.Config config) {
+    return THUMBNAIL_CACHE.get(thumbnailKey(uri, requiredWidth, requiredHeight, kind, config));
+  }
+
+  /*
+   * Get thumbnails for the provided Image or Video Uris in the specified size, for a grid.
+   * */
+  public static Observable<Thumbnail> getThumbnails(Context context, List<Uri> uris,
+      int requiredWidth, int requiredHeight) {
+    return getThumbnails(context, Observable.just(uris), requiredWidth, requiredHeight,
+        DEFAULT_THUMBNAIL_CONCURRENCY, Schedulers.io());
+  }
+
+  /*
+   * Get thumbnails for the Image or Video Uris visible in a grid, in the specified size.
+   *
+   * Every List emitted by visibleUris is the current visible window, in priority order. Uris
+   * that just became visible are decoded first, at most maxConcurrency at a time on the given
+   * Scheduler, Uris that scroll off-screen have their pending or running decode cancelled.
+   * The media Uris of a window are resolved against MediaStore in a single query per table.
+   * */
+  public static Observable<Thumbnail> getThumbnails(final Context context,
+      final Observable<List<Uri>> visibleUris, final int requiredWidth, final int requiredHeight,
+      final int maxConcurrency, final Scheduler scheduler) {
+    return Observable.defer(new Func0<Observable<Thumbnail>>() {
+      @Override
+      public Observable<Thumbnail> call() {
+        final AtomicReference<Set<Uri>> visible =
+            new AtomicReference<Set<Uri>>(Collections.<Uri>emptySet());
+        return visibleUris.map(new Func1<List<Uri>, Set<Uri>>() {
+          @Override
+          public Set<Uri> call(List<Uri> uris) {
+            return new LinkedHashSet<>(uris);
+          }
+        }).doOnNext(new Action1<Set<Uri>>() {
+          @Override
+          public void call(Set<Uri> window) {
+            visible.set(window);
+          }
+        }).publish(new Func1<Observable<Set<Uri>>, Observable<Thumbnail>>() {
+          @Override
+          public Observable<Thumbnail> call(final Observable<Set<Uri>> windows) {
+            final AtomicReference<Set<Uri>> requested =
+                new AtomicReference<Set<Uri>>(Collections.<Uri>emptySet());
+            Observable<Observable<Thumbnail>> loads = windows.onBackpressureLatest()
+                .concatMap(new Func1<Set<Uri>, Observable<Observable<Thumbnail>>>() {
+                  @Override
+                  public Observable<Observable<Thumbnail>> call(Set<Uri> window) {
+                    final List<Uri> newlyVisible = new ArrayList<>(window);
+                    newlyVisible.removeAll(requested.getAndSet(window));
+                    return resolveMediaStoreIds(context, newlyVisible).subscribeOn(scheduler)
+                        .flatMapIterable(new Func1<Set<Uri>, List<Observable<Thumbnail>>>() {
+                          @Override
+                          public List<Observable<Thumbnail>> call(Set<Uri> existingMediaUris) {
+                            List<Observable<Thumbnail>> thumbnails =
+                                new ArrayList<>(newlyVisible.size());
+                            for (Uri data : newlyVisible) {
+                              thumbnails.add(loadVisibleThumbnail(context, data, requiredWidth,
+                                  requiredHeight, existingMediaUris, visible, windows, scheduler));
+                            }
+                            return thumbnails;
+                          }
+                        });
+                  }
+                });
+            return Observable.merge(loads, maxConcurrency);
+          }
+        });
+      }
+    });
+  }
+
+  private static Observable<Thumbnail> loadVisibleThumbnail(final Context context, final Uri data,
+      final int requiredWidth, final int requiredHeight, final Set<Uri> existingMediaUris,
+      final AtomicReference<Set<Uri>> visible, Observable<Set<Uri>> windows,
+      Scheduler scheduler) {
+    final Observable<Bitmap> thumbnail;
+    if (isMediaUri(data)) {
+      if (!existingMediaUris.contains(data)) {
+        return Observable.empty();
+      }
+      // Known to exist already, no need for the per item query of getThumbnail().
+      thumbnail = cachedThumbnail(
+          thumbnailKey(data, requiredWidth, requiredHeight, MediaStore.Images.Thumbnails.MINI_KIND,
+              null), sourceStamp(context, data), null, Observable.fromCallable(new Func0<Bitmap>() {
+            @Override
+            public Bitmap call() {
+              return getMediaStoreThumbnail(context, data, MediaStore.Images.Thumbnails.MINI_KIND,
+                  null);
+            }
+          }));
+    } else {
+      thumbnail = getThumbnailFromUriWithSize(context, data, requiredWidth, requiredHeight);
+    }
+    return Observable.defer(new Func0<Observable<Bitmap>>() {
+      @Override
+      public Observable<Bitmap> call() {
+        // Skip the Uris that went off-screen while they were waiting for their turn.
+        return visible.get().contains(data) ? thumbnail : Observable.<Bitmap>empty();
+      }
+    }).subscribeOn(scheduler).filter(new Func1<Bitmap, Boolean>() {
+      @Override
+      public Boolean call(Bitmap bitmap) {
+        return bitmap != null;
+      }
+    }).map(new Func1<Bitmap, Thumbnail>() {
+      @Override
+      public Thumbnail call(Bitmap bitmap) {
+        return new Thumbnail(data, bitmap);
+      }
+    }).takeUntil(offScreen(windows, data));
+  }
+
+  /*
+   * Emits once the Uri is no longer in the visible window. The windows completing is not the Uri
+   * going off-screen, the last window stays visible until its thumbnails are loaded.
+   * */
+  private static Observable<Set<Uri>> offScreen(Observable<Set<Uri>> windows, final Uri data) {
+    return windows.filter(new Func1<Set<Uri>, Boolean>() {
+      @Override
+      public Boolean call(Set<Uri> window) {
+        return !window.contains(data);
+      }
+    }).concatWith(Observable.<Set<Uri>>never());
+  }
+
+  /*
+   * Find which of the media Uris exist in MediaStore, with one query per media table and per
+   * 999 Uris.
+   * */
+  private static Observable<Set<Uri>> resolveMediaStoreIds(final Context context,
+      final List<Uri> uris) {
+    return Observable.fromCallable(new Func0<Set<Uri>>() {
+      @Override
+      public Set<Uri> call() {
+        Map<String, Uri> images = new HashMap<>();
+        Map<String, Uri> videos = new HashMap<>();
+        for (Uri data : uris) {
+          if (!isMediaUri(data)) continue;
+          if (data.toString().contains(Constants.VIDEO)) {
+            videos.put(getMediaStoreId(data), data);
+          } else if (data.toString().contains(Constants.IMAGE)) {
+            images.put(getMediaStoreId(data), data);
+          }
+        }
+        Set<Uri> existing = new HashSet<>();
+        existing.addAll(existingMediaStoreIds(context,
+            MediaStore.Images.Media.EXTERNAL_CONTENT_URI, images));
+        existing.addAll(existingMediaStoreIds(context,
+            MediaStore.Video.Media.EXTERNAL_CONTENT_URI, videos));
+        return existing;
+      }
+    });
+  }
+
+  private static List<Uri> existingMediaStoreIds(Context context, Uri table,
+      Map<String, Uri> urisById) {
+    List<Uri> existing = new ArrayList<>();
+    if (urisById.isEmpty()) return existing;
+    try {
+      for (String id : new MediaPathResolver(context.getContentResolver())
+          .queryExistingIds(table, urisById.keySet())) {
+        Uri data = urisById.get(id);
+        if (data != null) existing.add(data);
+      }
+    } catch (Exception e) {
+      logError(e);
+    }
+    return existing;
+  }
+
   /*
    * Get a file extension based on the given file name.
    * */
@@ -331,7 +1271,7 @@ public class RxFile {
   /*
    * Get thumbnail from a File path.
    * */
-  public static Observable<Bitmap> getThumbnail(String filePath) {
+  public static Observable<Bitmap> getThumbnail(final String filePath) {
     return getFileType(filePath).filter(new Func1<String, Boolean>() {
       @Override
       public Boolean call(String s) {
@@ -340,10 +1280,10 @@ public class RxFile {
     }).flatMap(new Func1<String, Observable<Bitmap>>() {
       @Override
       public Observable<Bitmap> call(String s) {
-        if (s.equalsIgnoreCase(Constants.VIDEO)) {
-          return getVideoThumbnail(s);
-        } else if (s.equalsIgnoreCase(Constants.IMAGE)) return getThumbnailFromPath(s);
-        return null;
+        if (s.startsWith(Constants.VIDEO_TYPE)) {
+          return getVideoThumbnail(filePath);
+        } else if (s.startsWith(Constants.IMAGE_TYPE)) return getThumbnailFromPath(filePath);
+        return Observable.empty();
       }
     });
   }
@@ -352,13 +1292,15 @@ public class RxFile {
    * Get video thumbnail from a video file, by path.
    * */
   public static Observable<Bitmap> getVideoThumbnail(final String filePath) {
-    return Observable.fromCallable(new Func0<Bitmap>() {
-      @Override
-      public Bitmap call() {
-        return ThumbnailUtils.createVideoThumbnail(filePath,
-            MediaStore.Images.Thumbnails.MINI_KIND);
-      }
-    });
+    return cachedThumbnail(
+        new ThumbnailKey(filePath, 0, 0, MediaStore.Images.Thumbnails.MINI_KIND, null),
+        sourceStamp(filePath), null, Observable.fromCallable(new Func0<Bitmap>() {
+          @Override
+          public Bitmap call() {
+            return ThumbnailUtils.createVideoThumbnail(filePath,
+                MediaStore.Images.Thumbnails.MINI_KIND);
+          }
+        }));
   }
 
   /*
@@ -367,60 +1309,152 @@ public class RxFile {
    * */
   public static Observable<Bitmap> getVideoThumbnailFromPathWithKind(final String path,
       final int kind) {
-    return Observable.defer(new Func0<Observable<Bitmap>>() {
-      @Override
-      public Observable<Bitmap> call() {
-        return Observable.just(ThumbnailUtils.createVideoThumbnail(path, kind));
-      }
-    });
+    return cachedThumbnail(new ThumbnailKey(path, 0, 0, kind, null), sourceStamp(path), null,
+        Observable.defer(new Func0<Observable<Bitmap>>() {
+          @Override
+          public Observable<Bitmap> call() {
+            return Observable.just(ThumbnailUtils.createVideoThumbnail(path, kind));
+          }
+        }));
   }
 
   /*
    * Get image thumbnail from an image file, by path.
    * */
   public static Observable<Bitmap> getThumbnailFromPath(String filePath) {
-    final Bitmap sourceBitmap = BitmapFactory.decodeFile(filePath);
-    return Observable.fromCallable(new Func0<Bitmap>() {
+    return getThumbnailFromPath(filePath, 0, 0);
+  }
+
+  /*
+   * Get image thumbnail from an image file, by path, in the specified size.
+   *
+   * Nothing is decoded until subscription. The bounds are decoded first and the image is sampled
+   * down close to the specified size, keeping its aspect ratio, so the memory used depends on the
+   * specified size only. Unsubscribing cancels the decode.
+   * */
+  public static Observable<Bitmap> getThumbnailFromPath(final String filePath,
+      final int requiredWidth, final int requiredHeight) {
+    return cachedThumbnail(new ThumbnailKey(filePath, requiredWidth, requiredHeight, 0, null),
+        sourceStamp(filePath), null, new Func1<ThumbnailTrace, Observable<Bitmap>>() {
+          @Override
+          public Observable<Bitmap> call(final ThumbnailTrace trace) {
+            return Observable.create(new Action1<Emitter<Bitmap>>() {
+              @Override
+              public void call(Emitter<Bitmap> emitter) {
+                decodeThumbnailFromPath(emitter, filePath, requiredWidth, requiredHeight, trace);
+              }
+            }, Emitter.BackpressureMode.BUFFER);
+          }
+        });
+  }
+
+  @SuppressWarnings("deprecation")
+  private static void decodeThumbnailFromPath(Emitter<Bitmap> emitter, String filePath,
+      int requiredWidth, int requiredHeight, ThumbnailTrace trace) {
+    final BitmapFactory.Options options = new BitmapFactory.Options();
+    final AtomicBoolean cancelled = new AtomicBoolean();
+    emitter.setCancellation(new Cancellable() {
       @Override
-      public Bitmap call() {
-        return ThumbnailUtils.
-            extractThumbnail(sourceBitmap, sourceBitmap.getWidth(), sourceBitmap.getHeight());
+      public void cancel() {
+        if (cancelled.compareAndSet(false, true)) {
+          options.requestCancelDecode();
+        }
       }
     });
+    boolean sized = requiredWidth > 0 && requiredHeight > 0;
+    if (sized) {
+      options.inJustDecodeBounds = true;
+      BitmapFactory.decodeFile(filePath, options);
+      options.inJustDecodeBounds = false;
+      if (options.outWidth <= 0 || options.outHeight <= 0) {
+        emitter.onError(new IOException("Could not decode bounds for: " + filePath));
+        return;
+      }
+      applyRequiredSize(options, requiredWidth, requiredHeight);
+      applyPooledBitmap(options);
+      if (trace != null) trace.decoded(options.outWidth, options.outHeight, options.inSampleSize);
+    }
+    if (cancelled.get()) {
+      BITMAP_POOL.put(options.inBitmap);
+      return;
+    }
+    Bitmap bitmap;
+    try {
+      bitmap = BitmapFactory.decodeFile(filePath, options);
+    } catch (IllegalArgumentException e) {
+      // The pooled bitmap could not hold the decode after all, decode into a new one.
+      BITMAP_POOL.put(options.inBitmap);
+      options.inBitmap = null;
+      bitmap = BitmapFactory.decodeFile(filePath, options);
+    }
+    if (bitmap == null) {
+      BITMAP_POOL.put(options.inBitmap);
+      if (!cancelled.get()) emitter.onError(new IOException("Could not decode: " + filePath));
+      return;
+    }
+    if (trace != null && !sized) trace.decoded(bitmap.getWidth(), bitmap.getHeight(), 1);
+    if (cancelled.get()) {
+      BITMAP_POOL.put(bitmap);
+      return;
+    }
+    emitter.onNext(bitmap);
+    emitter.onCompleted();
   }
 
-  public static Observable<String> getFileType(String filePath) {
+
+  /*
+   * Get the mime type of a file, by path. The first bytes of the file are sniffed for the common
+   * formats, the file name is used for the others and for the more specific types stored in a
+   * common container, like a .docx in a zip.
+   * */
+  public static Observable<String> getFileType(final String filePath) {
     logDebug("Filepath in getFileType: " + filePath);
-    final String[] parts = filePath.split("/");
     return Observable.fromCallable(new Func0<String>() {
       @Override
       public String call() {
-        return parts.length > 0 ? URLConnection.guessContentTypeFromName(parts[0]) : null;
+        File file = new File(filePath);
+        return MimeSniffer.resolve(sniffType(file), getTypeWithURLConnection(file.getName()),
+            null);
       }
     });
   }
 
+  private static String sniffType(File file) {
+    if (!file.isFile()) {
+      return null;
+    }
+    FileInputStream from = null;
+    try {
+      from = new FileInputStream(file);
+      return MimeSniffer.sniff(FileCopier.readHead(from, MimeSniffer.HEADER_SIZE));
+    } catch (IOException e) {
+      logError(e);
+      return null;
+    } finally {
+      if (from != null) {
+        try {
+          from.close();
+        } catch (IOException e) {
+          logError(e);
+        }
+      }
+    }
+  }
+
   /*
    * Get path from Uri, for a FileDocument.
    * */
   public static Observable<String> getPathFromUriForFileDocument(final Context context,
       final Uri contentUri) {
-    return Observable.fromCallable(new Func0<String>() {
+    return tracedPath(contentUri, Observable.fromCallable(new Func0<String>() {
       @Override
       public String call() {
-        String pathFound = null;
-        Cursor cursor = context.getContentResolver().query(contentUri, null, null, null, null);
-        if (cursor != null) {
-          if (cursor.moveToFirst()) {
-            pathFound =
-                cursor.getString(cursor.getColumnIndexOrThrow(MediaStore.Files.FileColumns.DATA));
-          }
-          cursor.close();
-          logDebug("Path found:" + pathFound);
-        }
+        String pathFound = URI_RESOLUTION_CACHE.path(context, contentUri,
+            new MediaPathResolver(context.getContentResolver()));
+        logDebug("Path found:" + pathFound);
         return pathFound;
       }
-    });
+    }));
   }
 
   /*
@@ -428,24 +1462,7 @@ public class RxFile {
    * */
   public static Observable<String> getPathFromUriForMediaDocument(final Context context,
       final Uri mediaUri, final String mediaDocumentId) {
-    return Observable.fromCallable(new Func0<String>() {
-      @Override
-      public String call() {
-        String pathFound = null;
-        Cursor cursor = context.getContentResolver()
-            .query(mediaUri, null, Constants.ID_COLUMN_VALUE + " =?",
-                new String[] { mediaDocumentId }, null);
-        if (cursor != null) {
-          if (cursor.moveToFirst()) {
-            pathFound =
-                cursor.getString(cursor.getColumnIndexOrThrow(MediaStore.MediaColumns.DATA));
-          }
-          cursor.close();
-          logDebug("Path found:" + pathFound);
-        }
-        return pathFound;
-      }
-    });
+    return getPathFromMediaStore(context, mediaUri, mediaDocumentId);
   }
 
   /*
@@ -453,24 +1470,8 @@ public class RxFile {
    * */
   public static Observable<String> getPathFromUriForImageDocument(final Context context,
       final String mediaDocumentId) {
-    return Observable.fromCallable(new Func0<String>() {
-      @Override
-      public String call() {
-        String pathFound = null;
-        Cursor cursor = context.getContentResolver()
-            .query(MediaStore.Images.Media.EXTERNAL_CONTENT_URI, null,
-                Constants.ID_COLUMN_VALUE + " =?", new String[] { mediaDocumentId }, null);
-        if (cursor != null) {
-          if (cursor.moveToFirst()) {
-            pathFound =
-                cursor.getString(cursor.getColumnIndexOrThrow(MediaStore.MediaColumns.DATA));
-          }
-          cursor.close();
-          logDebug("Path found:" + pathFound);
-        }
-        return pathFound;
-      }
-    });
+    return getPathFromMediaStore(context, MediaStore.Images.Media.EXTERNAL_CONTENT_URI,
+        mediaDocumentId);
   }
 
   /*
@@ -478,48 +1479,70 @@ public class RxFile {
    * */
   public static Observable<String> getPathFromUriForVideoDocument(final Context context,
       final String mediaDocumentId) {
-    return Observable.fromCallable(new Func0<String>() {
-      @Override
-      public String call() {
-        String pathFound = null;
-        Cursor cursor = context.getContentResolver()
-            .query(MediaStore.Video.Media.EXTERNAL_CONTENT_URI, null,
-                Constants.ID_COLUMN_VALUE + " =?", new String[] { mediaDocumentId }, null);
-        if (cursor != null) {
-          if (cursor.moveToFirst()) {
-            pathFound =
-                cursor.getString(cursor.getColumnIndexOrThrow(MediaStore.MediaColumns.DATA));
-          }
-          cursor.close();
-          logDebug("Path found:" + pathFound);
-        }
-        return pathFound;
-      }
-    });
+    return getPathFromMediaStore(context, MediaStore.Video.Media.EXTERNAL_CONTENT_URI,
+        mediaDocumentId);
   }
 
-  private static boolean isExternalStorageDocument(Uri uri) {
-    return Constants.EXTERNAL_STORAGE_AUTHORITY.equals(uri.getAuthority());
+  /*
+   * Get the paths of many Uris at once, keyed by Uri. Media documents and MediaStore Uris are
+   * resolved with one query per media table and per 999 Uris, instead of one query each. Uris
+   * without a path are left out.
+   * */
+  public static Observable<Map<Uri, String>> getPathsFromUris(final Context context,
+      final List<Uri> uris) {
+    return traced(OperationEvent.Operation.RESOLVE_PATHS, null,
+        new Func1<OperationTrace, Observable<Map<Uri, String>>>() {
+          @Override
+          public Observable<Map<Uri, String>> call(final OperationTrace trace) {
+            return Observable.fromCallable(new Func0<Map<Uri, String>>() {
+              @Override
+              public Map<Uri, String> call() {
+                Map<Uri, String> pathsFound = URI_RESOLUTION_CACHE.paths(context, uris,
+                    new MediaPathResolver(context.getContentResolver()));
+                logDebug("Paths found: " + pathsFound.size() + " of " + uris.size());
+                if (trace != null) trace.count(pathsFound.size());
+                return pathsFound;
+              }
+            });
+          }
+        });
   }
 
-  private static boolean isDownloadsDocument(Uri uri) {
-    return Constants.DOWNLOADS_DIRECTORY_AUTHORITY.equals(uri.getAuthority());
+  private static Observable<String> getPathFromMediaStore(final Context context,
+      final Uri mediaUri, final String mediaDocumentId) {
+    final Uri contentUri = Uri.withAppendedPath(mediaUri, mediaDocumentId);
+    return tracedPath(contentUri, Observable.fromCallable(new Func0<String>() {
+      @Override
+      public String call() {
+        String pathFound = URI_RESOLUTION_CACHE.path(context, contentUri,
+            new MediaPathResolver(context.getContentResolver()));
+        logDebug("Path found:" + pathFound);
+        return pathFound;
+      }
+    }));
   }
 
-  private static boolean isMediaDocument(Uri uri) {
-    return Constants.MEDIA_DOCUMENTS_AUTHORITY.equals(uri.getAuthority());
+  private static Observable<String> tracedPath(Uri data, final Observable<String> path) {
+    return traced(OperationEvent.Operation.RESOLVE_PATHS, data,
+        new Func1<OperationTrace, Observable<String>>() {
+          @Override
+          public Observable<String> call(final OperationTrace trace) {
+            return trace == null ? path : path.doOnNext(new Action1<String>() {
+              @Override
+              public void call(String pathFound) {
+                if (pathFound != null) trace.count(1);
+              }
+            });
+          }
+        });
   }
 
   private static boolean isGoogleDriveDocument(Uri uri) {
-    return Constants.GOOGLE_DRIVE_DOCUMENT_AUTHORITY.equals(uri.getAuthority());
+    return URI_RESOLUTION_CACHE.kind(uri) == UriKind.GOOGLE_DRIVE_DOCUMENT;
   }
 
   private static boolean isMediaUri(Uri uri) {
-    if (uri.getAuthority().equals(Constants.MEDIA_DOCUMENTS_AUTHORITY)) {
-      return uri.getLastPathSegment().contains(Constants.IMAGE) || uri.getLastPathSegment()
-          .contains(Constants.VIDEO);
-    }
-    return Constants.MEDIA_AUTHORITY.equals(uri.getAuthority());
+    return URI_RESOLUTION_CACHE.kind(uri).isMedia();
   }
 
   private static boolean checkWriteExternalPermission(Context context) {
@@ -527,48 +1550,37 @@ public class RxFile {
     return (res == PackageManager.PERMISSION_GRANTED);
   }
 
+  /*
+   * Get the mime type MimeTypeMap tells for the extension of the file name. Results are
+   * remembered per extension.
+   * */
   public static String getTypeWithMimeTypeMap(String fileName) {
-    String fileExtension = fileName.substring((fileName.lastIndexOf('.')) + 1);
-    return MimeTypeMap.getSingleton().getMimeTypeFromExtension(fileExtension);
+    return MIME_TYPE_MAP_TYPES.typeOfName(fileName);
   }
 
+  /*
+   * Get the mime type URLConnection guesses from the file name. Results are remembered per
+   * extension.
+   * */
   public static String getTypeWithURLConnection(String fileName) {
-    return URLConnection.guessContentTypeFromName(fileName);
-  }
-
-  private static boolean createFile(String path) throws IOException {
-    if (!checkExistence(path)) {
-      File temp = new File(path);
-      if (!temp.createNewFile()) {
-        logDebug("Something went wrong while creating file: " + path);
-      } else {
-        logDebug("File: " + path + " created.");
-      }
-    } else {
-      logDebug("File: " + path + " already exists.");
-      return false;
+    if (fileName.indexOf('.') < 0) {
+      return URLConnection.guessContentTypeFromName(fileName);
     }
-    return true;
-  }
-
-  private static boolean checkExistence(String path) {
-    logDebug("Check path: " + path);
-    File temp = new File(path);
-    return temp.exists();
+    return URL_CONNECTION_TYPES.typeOfName(fileName);
   }
 
-  private static void fastChannelCopy(final ReadableByteChannel src, final WritableByteChannel dest)
-      throws IOException {
-    final ByteBuffer buffer = ByteBuffer.allocateDirect(16 * 1024);
-    while (src.read(buffer) != -1) {
-      buffer.flip();
-      dest.write(buffer);
-      buffer.compact();
+  /*
+   * The file name followed by the extension of the mime type, when one is known.
+   * */
+  private static String withExtensionFor(String fileName, String mimeType) {
+    if (mimeType == null) {
+      return fileName;
     }
-    buffer.flip();
-    while (buffer.hasRemaining()) {
-      dest.write(buffer);
+    String extension = MimeSniffer.extensionFor(mimeType);
+    if (extension == null) {
+      extension = MimeTypeMap.getSingleton().getExtensionFromMimeType(mimeType);
     }
+    return extension == null ? fileName : fileName + "." + extension;
   }
 
   private static int calculateInSampleSize(BitmapFactory.Options options, int reqWidth,
@@ -576,60 +1588,791 @@ public class RxFile {
     final int height = options.outHeight;
     final int width = options.outWidth;
     logDebug("Height: " + height + " Width: " + width);
-    int inSampleSize = 1;
-
-    if (height > reqHeight || width > reqWidth) {
+    return ThumbnailSizing.calculateInSampleSize(width, height, reqWidth, reqHeight);
+  }
 
-      final int halfHeight = height / 2;
-      final int halfWidth = width / 2;
+  /*
+   * Once the bounds are known, set up the options so the decoded bitmap is scaled close to the
+   * requested size: a power of two sample size first, then a density based fine scaling of
+   * what is left, so the result still covers the requested size.
+   * */
+  private static void applyRequiredSize(BitmapFactory.Options options, int reqWidth,
+      int reqHeight) {
+    options.inSampleSize = calculateInSampleSize(options, reqWidth, reqHeight);
+    int sampledWidth = ThumbnailSizing.sampledSize(options.outWidth, options.inSampleSize);
+    int sampledHeight = ThumbnailSizing.sampledSize(options.outHeight, options.inSampleSize);
+    if (sampledWidth <= 0 || sampledHeight <= 0) {
+      return;
+    }
+    boolean scaleByWidth =
+        (float) reqWidth / sampledWidth >= (float) reqHeight / sampledHeight;
+    int density = scaleByWidth ? sampledWidth : sampledHeight;
+    int targetDensity = scaleByWidth ? reqWidth : reqHeight;
+    if (targetDensity < density) {
+      options.inScaled = true;
+      options.inDensity = density;
+      options.inTargetDensity = targetDensity;
+    }
+  }
 
-      while ((halfHeight / inSampleSize) > reqHeight && (halfWidth / inSampleSize) > reqWidth) {
-        inSampleSize *= 2;
+  /*
+   * Decode a bitmap from the descriptor of the Uri, scaled close to the required size when there
+   * is one. The bounds are decoded first, so memory depends on the required size only.
+   * */
+  private static Bitmap decodeSampledBitmap(Context context, Uri data, int requiredWidth,
+      int requiredHeight, Bitmap.Config config, ThumbnailTrace trace) throws IOException {
+    final BitmapFactory.Options options = new BitmapFactory.Options();
+    applyPreferredConfig(options, config);
+    boolean sized = requiredWidth > 0 && requiredHeight > 0;
+    ParcelFileDescriptor parcelFileDescriptor = openForRead(context, data);
+    try {
+      if (sized) {
+        options.inJustDecodeBounds = true;
+        BitmapFactory.decodeFileDescriptor(parcelFileDescriptor.getFileDescriptor(), null,
+            options);
+        options.inJustDecodeBounds = false;
+        if (options.outWidth <= 0 || options.outHeight <= 0) {
+          logDebug("Could not decode bounds for: " + data);
+          return null;
+        }
+        applyRequiredSize(options, requiredWidth, requiredHeight);
+        applyPooledBitmap(options);
+        if (trace != null) {
+          trace.decoded(options.outWidth, options.outHeight, options.inSampleSize);
+        }
+        // Seekable descriptors are left where they were, pipes are consumed by the bounds pass.
+        if (parcelFileDescriptor.getStatSize() < 0) {
+          parcelFileDescriptor.close();
+          parcelFileDescriptor = openForRead(context, data);
+        }
       }
+      Bitmap bitmap;
+      try {
+        bitmap = BitmapFactory.decodeFileDescriptor(parcelFileDescriptor.getFileDescriptor(),
+            null, options);
+      } catch (IllegalArgumentException e) {
+        // The pooled bitmap could not hold the decode after all, decode into a new one.
+        BITMAP_POOL.put(options.inBitmap);
+        options.inBitmap = null;
+        parcelFileDescriptor.close();
+        parcelFileDescriptor = openForRead(context, data);
+        bitmap = BitmapFactory.decodeFileDescriptor(parcelFileDescriptor.getFileDescriptor(),
+            null, options);
+      }
+      if (bitmap == null) {
+        BITMAP_POOL.put(options.inBitmap);
+      } else if (trace != null && !sized) {
+        trace.decoded(bitmap.getWidth(), bitmap.getHeight(), 1);
+      }
+      return bitmap;
+    } finally {
+      parcelFileDescriptor.close();
     }
+  }
 
-    return inSampleSize;
+  /*
+   * Once the bounds and scaling are known, let the decode reuse a pooled bitmap large enough for
+   * the bitmap it will produce. Hardware bitmaps can not be decoded into, they are left alone.
+   * */
+  private static void applyPooledBitmap(BitmapFactory.Options options) {
+    Bitmap.Config config = options.inPreferredConfig != null
+        ? options.inPreferredConfig : Bitmap.Config.ARGB_8888;
+    if (!BitmapPool.isPoolable(config)) {
+      return;
+    }
+    int width = ThumbnailSizing.sampledSize(options.outWidth, options.inSampleSize);
+    int height = ThumbnailSizing.sampledSize(options.outHeight, options.inSampleSize);
+    if (options.inScaled && options.inDensity > 0 && options.inTargetDensity > 0) {
+      double scale = (double) options.inTargetDensity / options.inDensity;
+      width = (int) Math.ceil(width * scale);
+      height = (int) Math.ceil(height * scale);
+    }
+    options.inMutable = true;
+    options.inBitmap = BITMAP_POOL.get(width, height, config);
   }
 
-  private static File fileFromUri(Context context, Uri data, MimeMap mimeTypeMap) throws Exception {
-    DocumentFile file = DocumentFile.fromSingleUri(context, data);
-    String fileType = file.getType();
-    String fileName = file.getName();
-    File fileCreated;
+  /*
+   * Open the view on subscription and close it before the terminal event, or on unsubscription.
+   * */
+  private static <T> Observable<T> mapped(final Uri data, final Callable<MappedFileView> opener,
+      final Func1<MappedFileView, Observable<T>> reader) {
+    return traced(OperationEvent.Operation.MAP, data, new Func1<OperationTrace, Observable<T>>() {
+      @Override
+      public Observable<T> call(OperationTrace trace) {
+        final MappedFileView view;
+        try {
+          view = opener.call();
+        } catch (Exception e) {
+          logError(e);
+          return Observable.error(e);
+        }
+        if (trace != null) trace.count(view.size());
+        return Observable.using(new Func0<MappedFileView>() {
+          @Override
+          public MappedFileView call() {
+            return view;
+          }
+        }, reader, new Action1<MappedFileView>() {
+          @Override
+          public void call(MappedFileView mappedView) {
+            try {
+              mappedView.close();
+            } catch (IOException e) {
+              logError(e);
+            }
+          }
+        }, true);
+      }
+    });
+  }
+
+  /*
+   * Subscribe to the operation, telling the listener about it once it completes, fails or is
+   * unsubscribed. The operation gets a trace to count what it goes through, null unless a
+   * listener is installed.
+   * */
+  private static <T> Observable<T> traced(final OperationEvent.Operation operation,
+      final Uri data, final Func1<OperationTrace, Observable<T>> operator) {
+    return Observable.defer(new Func0<Observable<T>>() {
+      @Override
+      public Observable<T> call() {
+        final RxFileListener listener = LISTENER;
+        if (listener == null) {
+          return operator.call(null);
+        }
+        final OperationTrace trace = new OperationTrace(operation, data);
+        return operator.call(trace).doOnEach(new Observer<T>() {
+          @Override
+          public void onCompleted() {
+            notifyOperationFinished(listener, trace.finish(true, null));
+          }
+
+          @Override
+          public void onError(Throwable e) {
+            notifyOperationFinished(listener, trace.finish(false, e));
+          }
+
+          @Override
+          public void onNext(T t) {
+          }
+        }).doOnUnsubscribe(new Action0() {
+          @Override
+          public void call() {
+            notifyOperationFinished(listener, trace.finish(false, null));
+          }
+        });
+      }
+    });
+  }
+
+  private static ParcelFileDescriptor openForRead(Context context, Uri data) throws IOException {
     ParcelFileDescriptor parcelFileDescriptor =
         context.getContentResolver().openFileDescriptor(data, Constants.READ_MODE);
-    InputStream inputStream = new FileInputStream(parcelFileDescriptor.getFileDescriptor());
-    logDebug("External cache dir:" + context.getExternalCacheDir());
-    String filePath = context.getExternalCacheDir() + Constants.FOLDER_SEPARATOR + fileName;
-    String fileExtension = fileName.substring((fileName.lastIndexOf('.')) + 1);
+    if (parcelFileDescriptor == null) {
+      throw new IOException("Could not open file descriptor for: " + data);
+    }
+    return parcelFileDescriptor;
+  }
+
+  /*
+   * Hardware bitmaps only exist from Oreo on, older versions fall back to ARGB_8888.
+   * */
+  private static void applyPreferredConfig(BitmapFactory.Options options, Bitmap.Config config) {
+    if (config == null) {
+      return;
+    }
+    if (Build.VERSION.SDK_INT < Build.VERSION_CODES.O && HARDWARE_CONFIG.equals(config.name())) {
+      options.inPreferredConfig = Bitmap.Config.ARGB_8888;
+    } else {
+      options.inPreferredConfig = config;
+    }
+  }
+
+
+  private static ImportResult importFileFromUri(Context context, Uri data, MimeMap mimeTypeMap,
+      ProgressTracker progressTracker, boolean resumable, Set<DigestAlgorithm> digestAlgorithms)
+      throws Exception {
+    RxFileListener listener = LISTENER;
+    if (listener == null) {
+      return importIntoCache(context, data, mimeTypeMap, progressTracker, resumable,
+          digestAlgorithms);
+    }
+    long startNanos = System.nanoTime();
+    notifyImportStarted(listener, data);
+    try {
+      ImportResult importResult = importIntoCache(context, data, mimeTypeMap, progressTracker,
+          resumable, digestAlgorithms);
+      notifyImportFinished(listener,
+          new ImportEvent(data, importResult, System.nanoTime() - startNanos, null));
+      return importResult;
+    } catch (Exception e) {
+      notifyImportFinished(listener,
+          new ImportEvent(data, null, System.nanoTime() - startNanos, e));
+      throw e;
+    }
+  }
+
+  private static ImportResult importIntoCache(Context context, Uri data, MimeMap mimeTypeMap,
+      ProgressTracker progressTracker, boolean resumable, Set<DigestAlgorithm> digestAlgorithms)
+      throws Exception {
+    UriMetadata metadata = UriMetadata.MISSING;
+    try {
+      metadata = URI_RESOLUTION_CACHE.freshMetadata(context, data);
+    } catch (Exception e) {
+      logError(e);
+    }
+    String fileType = metadata.getMimeType();
+    String fileName = metadata.getDisplayName();
+    long fileSize = metadata.getSize();
+    long lastModified = metadata.getLastModified();
+    // Without a size and a modification time a changed source looks the same, its copy goes to
+    // a fresh entry that is never looked up, instead of one shared with stale copies.
+    String key = ImportCache.isVersioned(fileSize, lastModified)
+        ? ImportCache.key(data.toString(), fileSize, lastModified)
+        : ImportCache.uniqueKey(data.toString());
+    if (fileName == null) {
+      fileName = key;
+    }
+    String fileExtension = ExtensionTypes.extensionOf(fileName);
     String mimeType = mimeTypeMap == MimeMap.MimeTypeMap ? getTypeWithMimeTypeMap(fileName)
         : getTypeWithURLConnection(fileName);
 
     logDebug("From Google Drive guessed type: " + mimeType);
     logDebug("Extension: " + fileExtension);
 
-    if (fileType.equals(Constants.APPLICATION_PDF) && mimeType == null) {
-      filePath += "." + Constants.PDF_EXTENSION;
+    DiskCache diskCache = getImportDiskCache(context);
+    File entryDirectory = diskCache.entryDirectory(key);
+    ImportCachePolicy cachePolicy = IMPORT_CACHE_POLICY;
+
+    diskCache.pin(key);
+    // Imports of the same entry with other digests, progress or resumability are not shared, so
+    // they take turns and the later ones are served the copy of the first.
+    diskCache.beginWrite(key);
+    boolean handedOut = false;
+    try {
+      ImportResult importResult;
+      if (resumable && ImportCheckpoint.isResumable(fileSize, lastModified)) {
+        importResult = resumeIntoCache(context, data, entryDirectory, fileName, mimeType, fileType,
+            fileSize, lastModified, cachePolicy, progressTracker, diskCache, key);
+      } else {
+        if (progressTracker != null) progressTracker.start(fileSize);
+        importResult = copyIntoCache(context, data, entryDirectory, fileName, mimeType, fileType,
+            fileSize, lastModified, cachePolicy, progressTracker, diskCache, key,
+            digestAlgorithms);
+      }
+      handedOut = true;
+      return importResult;
+    } finally {
+      diskCache.endWrite(key);
+      if (!handedOut) diskCache.unpin(key);
+    }
+  }
+
+  /*
+   * Get the valid copy of the source already in its cache entry, null when there is none. The
+   * requested digests are read from the copy, but the SHA-256 CONTENT_HASH has just verified.
+   * */
+  private static ImportResult findCachedCopy(Uri data, File entryDirectory, String fileName,
+      String nameType, String declaredType, long fileSize, long lastModified,
+      ImportCachePolicy cachePolicy, DiskCache diskCache, String key,
+      Set<DigestAlgorithm> digestAlgorithms) throws IOException {
+    if (!ImportCache.isCacheable(cachePolicy, fileSize, lastModified)) {
+      return null;
+    }
+    File cached = ImportCache.findCopy(entryDirectory, fileName, nameType != null);
+    if (!ImportCache.isValidHit(cachePolicy, cached, fileSize)) {
+      return null;
+    }
+    logDebug("Cached copy found for: " + data + " at: " + cached.getAbsolutePath());
+    diskCache.recordAccess(key);
+    String cachedType = nameType != null ? nameType : getTypeWithMimeTypeMap(cached.getName());
+    Map<DigestAlgorithm, String> digests = Collections.emptyMap();
+    if (!digestAlgorithms.isEmpty()) {
+      Set<DigestAlgorithm> unknown = EnumSet.copyOf(digestAlgorithms);
+      Map<DigestAlgorithm, String> known = new EnumMap<>(DigestAlgorithm.class);
+      if (cachePolicy == ImportCachePolicy.CONTENT_HASH
+          && unknown.remove(DigestAlgorithm.SHA_256)) {
+        known.put(DigestAlgorithm.SHA_256, ImportCache.readContentHash(entryDirectory));
+      }
+      if (!unknown.isEmpty()) known.putAll(ImportCache.digests(cached, unknown));
+      digests = Collections.unmodifiableMap(known);
+    }
+    return new ImportResult(cached, CopyMethod.CACHED, 0,
+        cachedType != null ? cachedType : declaredType, 0, digests, diskCache, key);
+  }
+
+  /*
+   * Copy the source into its cache entry, unless a valid copy is there already. When the name
+   * does not tell the type, the one sniffed from the first bytes, or else the one declared by the
+   * provider, gives the copy its extension.
+   *
+   * The requested digests, and the SHA-256 CONTENT_HASH records, are computed by the copy itself.
+   * */
+  private static ImportResult copyIntoCache(Context context, Uri data, File entryDirectory,
+      String fileName, String nameType, String declaredType, long fileSize, long lastModified,
+      ImportCachePolicy cachePolicy, ProgressTracker progressTracker, DiskCache diskCache,
+      String key, Set<DigestAlgorithm> digestAlgorithms) throws IOException {
+    ImportResult cachedCopy = findCachedCopy(data, entryDirectory, fileName, nameType,
+        declaredType, fileSize, lastModified, cachePolicy, diskCache, key, digestAlgorithms);
+    if (cachedCopy != null) {
+      return cachedCopy;
+    }
+
+    if (!entryDirectory.isDirectory() && !entryDirectory.mkdirs()) {
+      throw new IOException("Could not create cache directory: " + entryDirectory);
+    }
+    File contentHash = new File(entryDirectory, ImportCache.CONTENT_HASH_FILE_NAME);
+    if (contentHash.exists() && !contentHash.delete()) {
+      throw new IOException("Could not delete stale content hash: " + contentHash);
+    }
+
+    ParcelFileDescriptor parcelFileDescriptor =
+        context.getContentResolver().openFileDescriptor(data, Constants.READ_MODE);
+    if (parcelFileDescriptor == null) {
+      throw new IOException("Could not open file descriptor for: " + data);
+    }
+    FileInputStream from = new FileInputStream(parcelFileDescriptor.getFileDescriptor());
+    FileOutputStream to = null;
+    // Copy into a temporary file and rename it into place, so nobody ever sees a partial copy.
+    File temp = null;
+    File fileCreated = null;
+    String mimeType = null;
+    CopyMethod copyMethod = null;
+    Set<DigestAlgorithm> computedDigests = EnumSet.noneOf(DigestAlgorithm.class);
+    computedDigests.addAll(digestAlgorithms);
+    if (cachePolicy == ImportCachePolicy.CONTENT_HASH) computedDigests.add(DigestAlgorithm.SHA_256);
+    CopyDigester digester = computedDigests.isEmpty() ? null : new CopyDigester(computedDigests);
+    Map<DigestAlgorithm, String> digests = Collections.emptyMap();
+    try {
+      // The head is sniffed, then written out by the copy, so the source is read only once.
+      ByteBuffer head = FileCopier.readHead(from, MimeSniffer.HEADER_SIZE);
+      String sniffedType = MimeSniffer.sniff(head);
+      logDebug("Sniffed type: " + sniffedType);
+      mimeType = MimeSniffer.resolve(sniffedType, nameType, declaredType);
+      fileCreated = new File(entryDirectory,
+          nameType != null ? fileName : withExtensionFor(fileName, mimeType));
+      temp = File.createTempFile(ImportCache.TEMP_FILE_PREFIX, ImportCache.TEMP_FILE_SUFFIX,
+          entryDirectory);
+      to = new FileOutputStream(temp);
+      // getStatSize() is -1 when the descriptor is a pipe or a socket rather than a file.
+      copyMethod = FileCopier.copy(from, to, head, parcelFileDescriptor.getStatSize() >= 0,
+          BUFFER_POOL, fileSize, progressTracker, digester);
+      to.close();
+      to = null;
+      if (digester != null) {
+        Map<DigestAlgorithm, String> computed = digester.digests();
+        if (cachePolicy == ImportCachePolicy.CONTENT_HASH) {
+          ImportCache.recordContentHash(temp, computed.get(DigestAlgorithm.SHA_256));
+        }
+        Map<DigestAlgorithm, String> requested = new EnumMap<>(computed);
+        requested.keySet().retainAll(digestAlgorithms);
+        digests = Collections.unmodifiableMap(requested);
+      }
+      if (!temp.renameTo(fileCreated)) {
+        copyMethod = null;
+        throw new IOException("Could not move copy into place: " + fileCreated);
+      }
+    } finally {
+      if (to != null) to.close();
+      from.close();
+      parcelFileDescriptor.close();
+      if (copyMethod == null && temp != null && !temp.delete()) {
+        logDebug("Could not delete partial file: " + temp.getAbsolutePath());
+      }
+    }
+    diskCache.recordWrite(key);
+    logDebug("Path for made file: " + fileCreated.getAbsolutePath() + " (" + copyMethod + ")");
+    return new ImportResult(fileCreated, copyMethod, fileCreated.length(), mimeType, 0, digests,
+        diskCache, key);
+  }
+
+  /*
+   * Copy the source into the partial copy of its cache entry, from where an earlier attempt
+   * stopped when the descriptor can be seeked, then move it into place. A failed or cancelled
+   * copy commits what it has written and leaves the partial copy behind for the next attempt.
+   * */
+  private static ImportResult resumeIntoCache(Context context, Uri data, File entryDirectory,
+      String fileName, String nameType, String declaredType, long fileSize, long lastModified,
+      ImportCachePolicy cachePolicy, ProgressTracker progressTracker, DiskCache diskCache,
+      String key) throws IOException {
+    ImportResult cachedCopy = findCachedCopy(data, entryDirectory, fileName, nameType,
+        declaredType, fileSize, lastModified, cachePolicy, diskCache, key, NO_DIGESTS);
+    if (cachedCopy != null) {
+      if (progressTracker != null) progressTracker.start(fileSize);
+      return cachedCopy;
+    }
+    return resumeCopy(context, data, entryDirectory, fileName, nameType, declaredType, fileSize,
+        lastModified, cachePolicy, progressTracker, diskCache, key);
+  }
+
+  private static ImportResult resumeCopy(Context context, Uri data, File entryDirectory,
+      String fileName, String nameType, String declaredType, long fileSize, long lastModified,
+      ImportCachePolicy cachePolicy, ProgressTracker progressTracker, DiskCache diskCache,
+      String key) throws IOException {
+    if (!entryDirectory.isDirectory() && !entryDirectory.mkdirs()) {
+      throw new IOException("Could not create cache directory: " + entryDirectory);
+    }
+    File contentHash = new File(entryDirectory, ImportCache.CONTENT_HASH_FILE_NAME);
+    if (contentHash.exists() && !contentHash.delete()) {
+      throw new IOException("Could not delete stale content hash: " + contentHash);
+    }
+
+    ParcelFileDescriptor parcelFileDescriptor =
+        context.getContentResolver().openFileDescriptor(data, Constants.READ_MODE);
+    if (parcelFileDescriptor == null) {
+      throw new IOException("Could not open file descriptor for: " + data);
+    }
+    FileInputStream from = new FileInputStream(parcelFileDescriptor.getFileDescriptor());
+    FileOutputStream to = null;
+    File partial = new File(entryDirectory, ImportCheckpoint.PARTIAL_FILE_NAME);
+    ImportCheckpoint checkpoint = null;
+    File fileCreated = null;
+    String mimeType = null;
+    CopyMethod copyMethod = null;
+    boolean sourceChanged = false;
+    try {
+      // getStatSize() is -1 when the descriptor is a pipe or a socket, which can not be seeked.
+      boolean seekable = parcelFileDescriptor.getStatSize() >= 0;
+      long offset = 0;
+      if (seekable) {
+        offset = ImportCheckpoint.resumeOffset(entryDirectory, fileSize, lastModified);
+      } else {
+        ImportCheckpoint.discard(entryDirectory);
+      }
+      ByteBuffer head;
+      if (offset > 0) {
+        logDebug("Resuming import of: " + data + " at: " + offset);
+        from.getChannel().position(offset);
+        // The head of the source is the head of the partial copy.
+        FileInputStream partialHead = new FileInputStream(partial);
+        try {
+          head = FileCopier.readHead(partialHead, MimeSniffer.HEADER_SIZE);
+        } finally {
+          partialHead.close();
+        }
+      } else {
+        head = FileCopier.readHead(from, MimeSniffer.HEADER_SIZE);
+      }
+      String sniffedType = MimeSniffer.sniff(head);
+      logDebug("Sniffed type: " + sniffedType);
+      mimeType = MimeSniffer.resolve(sniffedType, nameType, declaredType);
+      fileCreated = new File(entryDirectory,
+          nameType != null ? fileName : withExtensionFor(fileName, mimeType));
+      to = new FileOutputStream(partial, true);
+      checkpoint = new ImportCheckpoint(entryDirectory, fileSize, lastModified, offset,
+          to.getChannel(), progressTracker);
+      if (progressTracker != null) progressTracker.start(fileSize, offset);
+      copyMethod = FileCopier.copy(from, to, offset > 0 ? null : head, seekable, BUFFER_POOL,
+          fileSize - offset, checkpoint);
+      to.close();
+      to = null;
+      if (partial.length() != fileSize) {
+        copyMethod = null;
+        sourceChanged = true;
+        throw new IOException("Source changed while being imported: " + data);
+      }
+      if (cachePolicy == ImportCachePolicy.CONTENT_HASH) {
+        ImportCache.recordContentHash(partial);
+      }
+      if (!partial.renameTo(fileCreated)) {
+        copyMethod = null;
+        throw new IOException("Could not move copy into place: " + fileCreated);
+      }
+      checkpoint.delete();
+    } finally {
+      if (copyMethod == null && to != null && checkpoint != null) {
+        // Failed or cancelled halfway, keep what made it to disk for the next attempt.
+        try {
+          checkpoint.commit();
+        } catch (IOException e) {
+          logError(e);
+        }
+      }
+      if (to != null) to.close();
+      from.close();
+      parcelFileDescriptor.close();
+      if (copyMethod == null) {
+        // The partial copy is part of the entry, evictable like any other.
+        try {
+          if (sourceChanged) ImportCheckpoint.discard(entryDirectory);
+          diskCache.recordWrite(key);
+        } catch (IOException e) {
+          logError(e);
+        }
+      }
+    }
+    diskCache.recordWrite(key);
+    long resumedBytes = checkpoint.getOffset();
+    logDebug("Path for made file: " + fileCreated.getAbsolutePath() + " (" + copyMethod
+        + ", resumed at " + resumedBytes + ")");
+    return new ImportResult(fileCreated, copyMethod, fileSize - resumedBytes, mimeType,
+        resumedBytes, Collections.<DigestAlgorithm, String>emptyMap(), diskCache, key);
+  }
+
+  private static synchronized DiskCache getImportDiskCache(Context context) throws IOException {
+    File cacheDirectory = getCacheDirectory(context);
+    if (IMPORT_DISK_CACHE == null || !IMPORT_DISK_CACHE.getDirectory().equals(cacheDirectory)) {
+      IMPORT_DISK_CACHE = DiskCache.open(cacheDirectory, IMPORT_CACHE_MAX_BYTES);
+    }
+    return IMPORT_DISK_CACHE;
+  }
+
+  /*
+   * Set the byte budget of the Library's cache folder, defaults to 256MB.
+   *
+   * Once over budget, the least recently used copies are evicted in the background. A copy is
+   * never evicted while it is being emitted to a subscriber, nor while the List import that made
+   * it is still running.
+   * */
+  public static synchronized void setImportCacheMaxBytes(long maxBytes) {
+    if (maxBytes < 0) throw new IllegalArgumentException("maxBytes < 0: " + maxBytes);
+    IMPORT_CACHE_MAX_BYTES = maxBytes;
+    if (IMPORT_DISK_CACHE != null) IMPORT_DISK_CACHE.setMaxBytes(maxBytes);
+  }
+
+  /*
+   * Get the bytes currently used by the copies in the Library's cache folder.
+   * */
+  public static Observable<Long> getImportCacheSize(final Context context) {
+    return Observable.fromCallable(new Callable<Long>() {
+      @Override
+      public Long call() throws Exception {
+        return getImportDiskCache(context).size();
+      }
+    });
+  }
+
+  /*
+   * The Library's cache folder, inside the external cache directory when there is one.
+   * */
+  private static File getCacheDirectory(Context context) {
+    File cacheDirectory = context.getExternalCacheDir();
+    if (cacheDirectory == null) {
+      cacheDirectory = context.getCacheDir();
+    }
+    logDebug("Cache dir:" + cacheDirectory);
+    return new File(cacheDirectory, Constants.DEFAULT_CACHE_DIRECTORY_NAME);
+  }
+
+  /*
+   * Choose how imports reuse copies already in the Library's cache folder, defaults to
+   * ImportCachePolicy.METADATA.
+   * */
+  public static void setImportCachePolicy(ImportCachePolicy importCachePolicy) {
+    if (importCachePolicy == null) throw new IllegalArgumentException("importCachePolicy == null");
+    IMPORT_CACHE_POLICY = importCachePolicy;
+  }
+
+  /*
+   * Cap the bytes kept by the pool of copy buffers shared by every import, buffers released
+   * above this cap are dropped. Defaults to 4MB, 0 disables pooling.
+   * */
+  public static void setBufferPoolMaxBytes(long maxPooledBytes) {
+    BUFFER_POOL.setMaxPooledBytes(maxPooledBytes);
+  }
+
+  /*
+   * Get a snapshot of the counters of the pool of copy buffers.
+   * */
+  public static BufferPoolStats getBufferPoolStats() {
+    return BUFFER_POOL.getStats();
+  }
+
+  /*
+   * Drop every pooled copy buffer, for example from ComponentCallbacks2.onTrimMemory().
+   * */
+  public static void clearBufferPool() {
+    BUFFER_POOL.clear();
+  }
+
+  /*
+   * Set the byte budget of the in-memory thumbnail cache, defaults to an eighth of the heap.
+   *
+   * Thumbnails emitted by getThumbnail() may be served to other subscribers from this cache, do
+   * not recycle them yourself.
+   * */
+  public static void setThumbnailCacheMaxBytes(int maxBytes) {
+    THUMBNAIL_CACHE.resize(maxBytes);
+  }
+
+  /*
+   * Get a snapshot of the hit, miss and eviction counters of the in-memory thumbnail cache.
+   * */
+  public static ThumbnailCacheStats getThumbnailCacheStats() {
+    return THUMBNAIL_CACHE.getStats(IN_FLIGHT_THUMBNAILS.coalescedCount());
+  }
+
+  /*
+   * Drop every thumbnail of the in-memory cache, for example from
+   * ComponentCallbacks2.onTrimMemory().
+   * */
+  public static void clearThumbnailCache() {
+    THUMBNAIL_CACHE.clear();
+  }
+
+  /*
+   * Set how long the kind, metadata and path of a Uri are trusted before querying them again,
+   * defaults to 30 seconds. MediaStore Uris are queried again as soon as MediaStore changes.
+   * Imports always query the metadata of their Uri again.
+   * */
+  public static void setUriResolutionCacheTtl(long ttlMillis) {
+    URI_RESOLUTION_CACHE.setTtlMillis(ttlMillis);
+  }
+
+  /*
+   * Forget the metadata and paths of every Uri, for example after the app changed a source.
+   * */
+  public static void clearUriResolutionCache() {
+    URI_RESOLUTION_CACHE.clear();
+  }
+
+  /*
+   * Hand back a thumbnail you are done with, so a later decode can reuse its memory.
+   *
+   * Only release a thumbnail once nothing displays it anymore, once per time you received it.
+   * Thumbnails still in the in-memory cache may be served to other subscribers, they are pooled
+   * once evicted from it and released by every one of them. Immutable and hardware bitmaps are
+   * ignored.
+   * */
+  public static void releaseThumbnail(Bitmap bitmap) {
+    if (bitmap == null) {
+      return;
     }
+    THUMBNAIL_CACHE.release(bitmap);
+  }
 
-    if (!createFile(filePath)) {
-      return new File(filePath);
+  /*
+   * Set the byte budget of the pool of bitmaps reused by thumbnail decodes, defaults to a
+   * sixteenth of the heap.
+   * */
+  public static void setBitmapPoolMaxBytes(long maxBytes) {
+    BITMAP_POOL.setMaxBytes(maxBytes);
+  }
+
+  /*
+   * Get a snapshot of the hit rate and retained bytes of the bitmap pool.
+   * */
+  public static BitmapPoolStats getBitmapPoolStats() {
+    return BITMAP_POOL.getStats();
+  }
+
+  /*
+   * Recycle every pooled bitmap, for example from ComponentCallbacks2.onTrimMemory().
+   * */
+  public static void clearBitmapPool() {
+    BITMAP_POOL.clear();
+  }
+
+  /*
+   * Keep generated thumbnails in a journaled directory of the app's cache, as WebP at quality 80,
+   * so they survive process death. The directory is kept under maxBytes, evicting the least
+   * recently used thumbnails.
+   * */
+  public static void enableThumbnailDiskCache(Context context, long maxBytes) {
+    enableThumbnailDiskCache(context, maxBytes, Bitmap.CompressFormat.WEBP,
+        DEFAULT_THUMBNAIL_QUALITY);
+  }
+
+  /*
+   * Keep generated thumbnails in a journaled directory of the app's cache, encoded with the given
+   * format and quality, so they survive process death. The directory is kept under maxBytes,
+   * evicting the least recently used thumbnails.
+   * */
+  public static synchronized void enableThumbnailDiskCache(Context context, long maxBytes,
+      Bitmap.CompressFormat format, int quality) {
+    if (maxBytes <= 0) throw new IllegalArgumentException("maxBytes <= 0: " + maxBytes);
+    if (quality < 0 || quality > 100) {
+      throw new IllegalArgumentException("quality must be within 0 and 100: " + quality);
+    }
+    THUMBNAIL_DISK_CACHE_DIRECTORY =
+        new File(context.getCacheDir(), Constants.THUMBNAIL_CACHE_DIRECTORY_NAME);
+    THUMBNAIL_DISK_CACHE_MAX_BYTES = maxBytes;
+    THUMBNAIL_DISK_CACHE_FORMAT = format;
+    THUMBNAIL_DISK_CACHE_QUALITY = quality;
+    if (THUMBNAIL_DISK_CACHE_ENTRIES != null
+        && THUMBNAIL_DISK_CACHE_ENTRIES.getDirectory().equals(THUMBNAIL_DISK_CACHE_DIRECTORY)) {
+      THUMBNAIL_DISK_CACHE_ENTRIES.setMaxBytes(maxBytes);
     }
+    // Opened lazily, off the calling thread, by the first thumbnail request.
+    THUMBNAIL_DISK_CACHE = null;
+  }
 
-    ReadableByteChannel from = Channels.newChannel(inputStream);
-    WritableByteChannel to = Channels.newChannel(new FileOutputStream(filePath));
-    fastChannelCopy(from, to);
-    from.close();
-    to.close();
-    fileCreated = new File(filePath);
-    logDebug("Path for made file: " + fileCreated.getAbsolutePath());
-    return fileCreated;
+  /*
+   * Stop reading and writing thumbnails on disk, the ones already there are kept. Enabling the
+   * disk cache again picks up where it stopped.
+   * */
+  public static synchronized void disableThumbnailDiskCache() {
+    THUMBNAIL_DISK_CACHE_DIRECTORY = null;
+    THUMBNAIL_DISK_CACHE = null;
+  }
+
+  private static synchronized ThumbnailDiskCache getThumbnailDiskCache() {
+    if (THUMBNAIL_DISK_CACHE == null && THUMBNAIL_DISK_CACHE_DIRECTORY != null) {
+      try {
+        // Thumbnails still being read or written may hold the entries, reuse them.
+        DiskCache entries = THUMBNAIL_DISK_CACHE_ENTRIES;
+        if (entries == null || !entries.getDirectory().equals(THUMBNAIL_DISK_CACHE_DIRECTORY)) {
+          entries = DiskCache.open(THUMBNAIL_DISK_CACHE_DIRECTORY, THUMBNAIL_DISK_CACHE_MAX_BYTES);
+          THUMBNAIL_DISK_CACHE_ENTRIES = entries;
+        }
+        THUMBNAIL_DISK_CACHE = new ThumbnailDiskCache(entries, THUMBNAIL_DISK_CACHE_FORMAT,
+            THUMBNAIL_DISK_CACHE_QUALITY);
+      } catch (IOException e) {
+        logError(e);
+        THUMBNAIL_DISK_CACHE_DIRECTORY = null;
+      }
+    }
+    return THUMBNAIL_DISK_CACHE;
   }
 
   public static void setLoggingEnabled(boolean loggingEnabled) {
     LOGGING_ENABLED = loggingEnabled;
   }
 
+  /*
+   * Install a listener told about every import and thumbnail, with its timing, bytes, cache hits,
+   * decode sizes and errors, and about every read, mapping, document tree walk and path lookup,
+   * or pass null to remove it. Nothing is measured while there is none.
+   * */
+  public static void setListener(RxFileListener listener) {
+    LISTENER = listener;
+  }
+
+  private static void notifyImportStarted(RxFileListener listener, Uri data) {
+    try {
+      listener.onImportStarted(data);
+    } catch (RuntimeException e) {
+      logError(e);
+    }
+  }
+
+  private static void notifyImportFinished(RxFileListener listener, ImportEvent event) {
+    try {
+      listener.onImportFinished(event);
+    } catch (RuntimeException e) {
+      logError(e);
+    }
+  }
+
+  private static void notifyOperationFinished(RxFileListener listener, OperationEvent event) {
+    if (event == null) {
+      return;
+    }
+    try {
+      listener.onOperationFinished(event);
+    } catch (RuntimeException e) {
+      logError(e);
+    }
+  }
+
+  private static void notifyThumbnailFinished(RxFileListener listener, ThumbnailEvent event) {
+    try {
+      listener.onThumbnailFinished(event);
+    } catch (RuntimeException e) {
+      logError(e);
+    }
+  }
+
   private static void logDebug(String message) {
     if (LOGGING_ENABLED) Log.d(TAG, message);
   }
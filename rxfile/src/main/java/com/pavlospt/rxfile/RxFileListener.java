@@ -0,0 +1,56 @@
+package com.pavlospt.rxfile;
+
+import android.net.Uri;
+
+/**
+ * Copyright 2015 Pavlos-Petros Tournaris
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/*
+ * Told about every import, thumbnail, read, mapping, document tree walk and path lookup RxFile
+ * does, to feed copy throughput, decode times and slow providers into metrics or traces.
+ * Install one with RxFile.setListener().
+ *
+ * Methods are called on the thread doing the work, right after it, so they have to be cheap.
+ * Only override the ones you need, an exception thrown by any of them is logged and ignored.
+ * */
+public abstract class RxFileListener {
+
+  /*
+   * An import of the Uri has started, before its metadata is queried.
+   * */
+  public void onImportStarted(Uri uri) {
+  }
+
+  /*
+   * An import has completed, served from the cache, or failed.
+   * */
+  public void onImportFinished(ImportEvent event) {
+  }
+
+  /*
+   * A thumbnail has been emitted, from the memory cache, the disk cache or a decode, or it has
+   * failed.
+   * */
+  public void onThumbnailFinished(ThumbnailEvent event) {
+  }
+
+  /*
+   * A read, a mapping, a document tree walk or a path lookup has completed, failed or been
+   * unsubscribed.
+   * */
+  public void onOperationFinished(OperationEvent event) {
+  }
+}
@@ -0,0 +1,48 @@
+package com.pavlospt.rxfile;
+
+/**
+ * Copyright 2015 Pavlos-Petros Tournaris
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/*
+ * The size and last modified time of a thumbnail source, to notice when it changes.
+ * */
+final class SourceStamp {
+
+  static final SourceStamp UNKNOWN = new SourceStamp(0, 0);
+
+  private final long size;
+  private final long lastModified;
+
+  SourceStamp(long size, long lastModified) {
+    this.size = size;
+    this.lastModified = lastModified;
+  }
+
+  long getSize() {
+    return size;
+  }
+
+  long getLastModified() {
+    return lastModified;
+  }
+
+  /*
+   * Without a size or a last modified time a changed source would go unnoticed.
+   * */
+  boolean isKnown() {
+    return size > 0 && lastModified > 0;
+  }
+}
@@ -0,0 +1,42 @@
+package com.pavlospt.rxfile;
+
+import android.graphics.Bitmap;
+import android.net.Uri;
+
+/**
+ * Copyright 2015 Pavlos-Petros Tournaris
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/*
+ * A thumbnail emitted by a batch request, along with the Uri it was generated for.
+ * */
+public class Thumbnail {
+
+  private final Uri uri;
+  private final Bitmap bitmap;
+
+  Thumbnail(Uri uri, Bitmap bitmap) {
+    this.uri = uri;
+    this.bitmap = bitmap;
+  }
+
+  public Uri getUri() {
+    return uri;
+  }
+
+  public Bitmap getBitmap() {
+    return bitmap;
+  }
+}
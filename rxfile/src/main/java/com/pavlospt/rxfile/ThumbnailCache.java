@@ -0,0 +1,158 @@
+package com.pavlospt.rxfile;
+
+import android.graphics.Bitmap;
+import android.support.v4.util.LruCache;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+/**
+ * Copyright 2015 Pavlos-Petros Tournaris
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/*
+ * An in-memory cache of generated thumbnails, sized in bytes and evicting the least recently
+ * used ones.
+ *
+ * Every time a cached thumbnail is handed to a subscriber it is counted, and every release
+ * uncounts it. A thumbnail only goes to the bitmap pool once it has left the cache and every
+ * subscriber it was handed to has released it, so a decode never reuses the memory of a bitmap
+ * still displayed. Subscribers that never release simply keep their thumbnails out of the pool.
+ * */
+final class ThumbnailCache {
+
+  private final LruCache<ThumbnailKey, Bitmap> bitmaps;
+  private final BitmapPool bitmapPool;
+
+  private final Set<Bitmap> cached =
+      Collections.newSetFromMap(new IdentityHashMap<Bitmap, Boolean>());
+  /*
+   * Hand-outs not released yet, weakly held so thumbnails that are never released are not leaked.
+   * Bitmap does not override equals(), the keys compare by identity.
+   * */
+  private final Map<Bitmap, Integer> handedOut = new WeakHashMap<>();
+
+  ThumbnailCache(int maxBytes, BitmapPool bitmapPool) {
+    this.bitmapPool = bitmapPool;
+    bitmaps = new LruCache<ThumbnailKey, Bitmap>(Math.max(1, maxBytes)) {
+      @Override protected int sizeOf(ThumbnailKey key, Bitmap value) {
+        return value.getAllocationByteCount();
+      }
+
+      @Override protected void entryRemoved(boolean evicted, ThumbnailKey key, Bitmap oldValue,
+          Bitmap newValue) {
+        if (oldValue != newValue) {
+          onRemoved(oldValue);
+        }
+      }
+    };
+  }
+
+  /*
+   * Default to an eighth of the heap the app may use.
+   * */
+  static int defaultMaxBytes() {
+    return (int) Math.min(Integer.MAX_VALUE, Runtime.getRuntime().maxMemory() / 8);
+  }
+
+  /*
+   * The cached thumbnail, counted as handed out until it is released. It is shared with every
+   * other subscriber it is handed to, so it must be released rather than recycled. One recycled
+   * anyway is dropped from the cache and reported as missing.
+   * */
+  Bitmap get(ThumbnailKey key) {
+    // Held across the lookup, so an eviction racing with it sees the hand-out before pooling.
+    synchronized (cached) {
+      Bitmap bitmap = bitmaps.get(key);
+      if (bitmap != null && bitmap.isRecycled()) {
+        bitmaps.remove(key);
+        return null;
+      }
+      if (bitmap != null) retainLocked(bitmap);
+      return bitmap;
+    }
+  }
+
+  void put(ThumbnailKey key, Bitmap bitmap) {
+    if (bitmap == null || bitmap.isRecycled()) return;
+    synchronized (cached) {
+      cached.add(bitmap);
+    }
+    bitmaps.put(key, bitmap);
+  }
+
+  /*
+   * Count one more hand-out of a thumbnail that went through the cache.
+   * */
+  void retain(Bitmap bitmap) {
+    synchronized (cached) {
+      retainLocked(bitmap);
+    }
+  }
+
+  private void retainLocked(Bitmap bitmap) {
+    Integer count = handedOut.get(bitmap);
+    handedOut.put(bitmap, count == null ? 1 : count + 1);
+  }
+
+  /*
+   * Uncount a hand-out, and hand the thumbnail to the bitmap pool once it is neither cached nor
+   * handed out anymore. Thumbnails that never went through the cache are pooled right away.
+   * */
+  void release(Bitmap bitmap) {
+    synchronized (cached) {
+      Integer count = handedOut.get(bitmap);
+      if (count != null && count > 1) {
+        handedOut.put(bitmap, count - 1);
+        return;
+      }
+      handedOut.remove(bitmap);
+      if (cached.contains(bitmap)) {
+        // Pooled on eviction, unless handed out again by then.
+        handedOut.put(bitmap, 0);
+        return;
+      }
+    }
+    bitmapPool.put(bitmap);
+  }
+
+  private void onRemoved(Bitmap bitmap) {
+    boolean unused;
+    synchronized (cached) {
+      cached.remove(bitmap);
+      Integer count = handedOut.get(bitmap);
+      unused = count != null && count == 0;
+      if (unused) handedOut.remove(bitmap);
+    }
+    if (unused) {
+      bitmapPool.put(bitmap);
+    }
+  }
+
+  void resize(int maxBytes) {
+    bitmaps.resize(Math.max(1, maxBytes));
+  }
+
+  void clear() {
+    bitmaps.evictAll();
+  }
+
+  ThumbnailCacheStats getStats(long coalescedCount) {
+    return new ThumbnailCacheStats(bitmaps.hitCount(), bitmaps.missCount(),
+        bitmaps.evictionCount(), coalescedCount, bitmaps.size(), bitmaps.maxSize());
+  }
+}
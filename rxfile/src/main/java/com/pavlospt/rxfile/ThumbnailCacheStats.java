@@ -0,0 +1,73 @@
+package com.pavlospt.rxfile;
+
+/**
+ * Copyright 2015 Pavlos-Petros Tournaris
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/*
+ * A snapshot of the counters of the in-memory thumbnail cache.
+ * */
+public class ThumbnailCacheStats {
+
+  private final long hitCount;
+  private final long missCount;
+  private final long evictionCount;
+  private final long coalescedCount;
+  private final long sizeBytes;
+  private final long maxSizeBytes;
+
+  ThumbnailCacheStats(long hitCount, long missCount, long evictionCount, long coalescedCount,
+      long sizeBytes, long maxSizeBytes) {
+    this.hitCount = hitCount;
+    this.missCount = missCount;
+    this.evictionCount = evictionCount;
+    this.coalescedCount = coalescedCount;
+    this.sizeBytes = sizeBytes;
+    this.maxSizeBytes = maxSizeBytes;
+  }
+
+  public long getHitCount() {
+    return hitCount;
+  }
+
+  public long getMissCount() {
+    return missCount;
+  }
+
+  public long getEvictionCount() {
+    return evictionCount;
+  }
+
+  /*
+   * Number of requests that joined a decode already in flight for the same thumbnail.
+   * */
+  public long getCoalescedCount() {
+    return coalescedCount;
+  }
+
+  public long getSizeBytes() {
+    return sizeBytes;
+  }
+
+  public long getMaxSizeBytes() {
+    return maxSizeBytes;
+  }
+
+  @Override public String toString() {
+    return "ThumbnailCacheStats{hitCount=" + hitCount + ", missCount=" + missCount
+        + ", evictionCount=" + evictionCount + ", coalescedCount=" + coalescedCount
+        + ", sizeBytes=" + sizeBytes + ", maxSizeBytes=" + maxSizeBytes + "}";
+  }
+}
@@ -0,0 +1,105 @@
+package com.pavlospt.rxfile;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+/**
+ * Copyright 2015 Pavlos-Petros Tournaris
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/*
+ * The second tier of the thumbnail cache, encoded thumbnails kept on disk across process deaths.
+ *
+ * Entries are keyed on the thumbnail key and the size and last modified time of its source, so
+ * a changed source never gets a stale thumbnail, its old entry just ages out of the budget.
+ * */
+final class ThumbnailDiskCache {
+
+  private static final String THUMBNAIL_FILE_NAME = "thumbnail";
+
+  private final DiskCache diskCache;
+  private final Bitmap.CompressFormat format;
+  private final int quality;
+
+  ThumbnailDiskCache(DiskCache diskCache, Bitmap.CompressFormat format, int quality) {
+    this.diskCache = diskCache;
+    this.format = format;
+    this.quality = quality;
+  }
+
+  File getDirectory() {
+    return diskCache.getDirectory();
+  }
+
+  Bitmap get(ThumbnailKey key, SourceStamp stamp, Bitmap.Config config) throws IOException {
+    if (!stamp.isKnown()) return null;
+    String entryKey = entryKey(key, stamp);
+    diskCache.pin(entryKey);
+    try {
+      File thumbnail = new File(diskCache.entryDirectory(entryKey), THUMBNAIL_FILE_NAME);
+      if (!thumbnail.isFile()) return null;
+      BitmapFactory.Options options = new BitmapFactory.Options();
+      if (config != null) options.inPreferredConfig = config;
+      Bitmap bitmap = BitmapFactory.decodeFile(thumbnail.getAbsolutePath(), options);
+      if (bitmap != null) diskCache.recordAccess(entryKey);
+      return bitmap;
+    } finally {
+      diskCache.unpin(entryKey);
+    }
+  }
+
+  void put(ThumbnailKey key, SourceStamp stamp, Bitmap bitmap) throws IOException {
+    if (!stamp.isKnown() || bitmap == null || bitmap.isRecycled()) return;
+    String entryKey = entryKey(key, stamp);
+    diskCache.pin(entryKey);
+    try {
+      File entryDirectory = diskCache.entryDirectory(entryKey);
+      if (!entryDirectory.isDirectory() && !entryDirectory.mkdirs()) {
+        throw new IOException("Could not create cache directory: " + entryDirectory);
+      }
+      File temp = File.createTempFile(ImportCache.TEMP_FILE_PREFIX, ImportCache.TEMP_FILE_SUFFIX,
+          entryDirectory);
+      boolean written = false;
+      try {
+        FileOutputStream out = new FileOutputStream(temp);
+        try {
+          written = bitmap.compress(format, quality, out);
+        } finally {
+          out.close();
+        }
+        written = written && temp.renameTo(new File(entryDirectory, THUMBNAIL_FILE_NAME));
+      } finally {
+        if (!written) {
+          //noinspection ResultOfMethodCallIgnored
+          temp.delete();
+        }
+      }
+      if (written) diskCache.recordWrite(entryKey);
+    } finally {
+      diskCache.unpin(entryKey);
+    }
+  }
+
+  void setMaxBytes(long maxBytes) {
+    diskCache.setMaxBytes(maxBytes);
+  }
+
+  private static String entryKey(ThumbnailKey key, SourceStamp stamp) {
+    return ImportCache.key(key.toString(), stamp.getSize(), stamp.getLastModified());
+  }
+}
@@ -0,0 +1,164 @@
+package com.pavlospt.rxfile;
+
+import android.net.Uri;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Copyright 2015 Pavlos-Petros Tournaris
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/*
+ * What a thumbnail request did: where the thumbnail came from, how big the source was and how
+ * much it was sampled down, what came out and how long it took, or how it failed.
+ * */
+public class ThumbnailEvent {
+
+  /*
+   * Where a thumbnail came from.
+   * */
+  public enum Origin {
+    MEMORY_CACHE,
+    DISK_CACHE,
+    DECODED,
+    // Joined the disk read or decode another request for the same thumbnail had in flight.
+    SHARED
+  }
+
+  private final String source;
+  private final int requestedWidth;
+  private final int requestedHeight;
+  private final Origin origin;
+  private final int sourceWidth;
+  private final int sourceHeight;
+  private final int sampleSize;
+  private final int width;
+  private final int height;
+  private final int byteCount;
+  private final long durationNanos;
+  private final Throwable error;
+
+  ThumbnailEvent(String source, int requestedWidth, int requestedHeight, Origin origin,
+      int sourceWidth, int sourceHeight, int sampleSize, int width, int height, int byteCount,
+      long durationNanos, Throwable error) {
+    this.source = source;
+    this.requestedWidth = requestedWidth;
+    this.requestedHeight = requestedHeight;
+    this.origin = origin;
+    this.sourceWidth = sourceWidth;
+    this.sourceHeight = sourceHeight;
+    this.sampleSize = sampleSize;
+    this.width = width;
+    this.height = height;
+    this.byteCount = byteCount;
+    this.durationNanos = durationNanos;
+    this.error = error;
+  }
+
+  /*
+   * The Uri or the path the thumbnail was requested for.
+   * */
+  public String getSource() {
+    return source;
+  }
+
+  /*
+   * The authority of the source Uri, to tell providers apart. Null for paths.
+   * */
+  public String getAuthority() {
+    return Uri.parse(source).getAuthority();
+  }
+
+  /*
+   * The requested width, 0 when no size was requested.
+   * */
+  public int getRequestedWidth() {
+    return requestedWidth;
+  }
+
+  public int getRequestedHeight() {
+    return requestedHeight;
+  }
+
+  public Origin getOrigin() {
+    return origin;
+  }
+
+  /*
+   * The width of the decoded image before sampling, -1 when it was not decoded here or its
+   * bounds are not known, as for MediaStore and video thumbnails.
+   * */
+  public int getSourceWidth() {
+    return sourceWidth;
+  }
+
+  public int getSourceHeight() {
+    return sourceHeight;
+  }
+
+  /*
+   * The power of two the image was sampled down by while decoding, 1 when it was not.
+   * */
+  public int getSampleSize() {
+    return sampleSize;
+  }
+
+  /*
+   * The width of the emitted thumbnail, -1 when there is none.
+   * */
+  public int getWidth() {
+    return width;
+  }
+
+  public int getHeight() {
+    return height;
+  }
+
+  /*
+   * The bytes of the pixels of the emitted thumbnail, 0 when there is none.
+   * */
+  public int getByteCount() {
+    return byteCount;
+  }
+
+  /*
+   * From the subscription to the thumbnail being emitted.
+   * */
+  public long getDurationNanos() {
+    return durationNanos;
+  }
+
+  public long getDurationMillis() {
+    return TimeUnit.NANOSECONDS.toMillis(durationNanos);
+  }
+
+  /*
+   * Why the thumbnail failed, null when it did not.
+   * */
+  public Throwable getError() {
+    return error;
+  }
+
+  public boolean isSuccessful() {
+    return error == null;
+  }
+
+  @Override public String toString() {
+    return "ThumbnailEvent{authority=" + getAuthority() + ", origin=" + origin + ", requested="
+        + requestedWidth + "x" + requestedHeight + ", source=" + sourceWidth + "x" + sourceHeight
+        + ", sampleSize=" + sampleSize + ", size=" + width + "x" + height + ", byteCount="
+        + byteCount + ", durationMillis=" + getDurationMillis() + ", error="
+        + (error == null ? null : error.getClass().getName()) + "}";
+  }
+}
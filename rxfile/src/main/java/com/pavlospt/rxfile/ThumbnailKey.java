@@ -0,0 +1,81 @@
+package com.pavlospt.rxfile;
+
+/**
+ * Copyright 2015 Pavlos-Petros Tournaris
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/*
+ * Identifies a generated thumbnail: its source, Uri or path, and how it was requested.
+ * */
+final class ThumbnailKey {
+
+  private final String source;
+  private final int width;
+  private final int height;
+  private final int kind;
+  private final String config;
+
+  ThumbnailKey(String source, int width, int height, int kind, String config) {
+    this.source = source;
+    this.width = width;
+    this.height = height;
+    this.kind = kind;
+    this.config = config;
+  }
+
+  String getSource() {
+    return source;
+  }
+
+  int getWidth() {
+    return width;
+  }
+
+  int getHeight() {
+    return height;
+  }
+
+  int getKind() {
+    return kind;
+  }
+
+  String getConfig() {
+    return config;
+  }
+
+  @Override public boolean equals(Object o) {
+    if (this == o) return true;
+    if (!(o instanceof ThumbnailKey)) return false;
+    ThumbnailKey that = (ThumbnailKey) o;
+    return width == that.width
+        && height == that.height
+        && kind == that.kind
+        && source.equals(that.source)
+        && (config == null ? that.config == null : config.equals(that.config));
+  }
+
+  @Override public int hashCode() {
+    int result = source.hashCode();
+    result = 31 * result + width;
+    result = 31 * result + height;
+    result = 31 * result + kind;
+    result = 31 * result + (config != null ? config.hashCode() : 0);
+    return result;
+  }
+
+  @Override public String toString() {
+    return source + " " + width + "x" + height + " kind=" + kind + " config=" + config;
+  }
+}
@@ -0,0 +1,55 @@
+package com.pavlospt.rxfile;
+
+/**
+ * Copyright 2015 Pavlos-Petros Tournaris
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/*
+ * The arithmetic of decoding a bitmap close to a requested size.
+ *
+ * Kept free of Android dependencies on purpose, it only deals with dimensions.
+ * */
+final class ThumbnailSizing {
+
+  private ThumbnailSizing() {
+  }
+
+  /*
+   * The largest power of two sample size that keeps both dimensions at or above the requested
+   * ones.
+   * */
+  static int calculateInSampleSize(int width, int height, int reqWidth, int reqHeight) {
+    int inSampleSize = 1;
+
+    if (height > reqHeight || width > reqWidth) {
+
+      final int halfHeight = height / 2;
+      final int halfWidth = width / 2;
+
+      while ((halfHeight / inSampleSize) > reqHeight && (halfWidth / inSampleSize) > reqWidth) {
+        inSampleSize *= 2;
+      }
+    }
+
+    return inSampleSize;
+  }
+
+  /*
+   * The size of a dimension once decoded with the given sample size.
+   * */
+  static int sampledSize(int size, int inSampleSize) {
+    return (size + inSampleSize - 1) / inSampleSize;
+  }
+}
@@ -0,0 +1,61 @@
+package com.pavlospt.rxfile;
+
+import android.graphics.Bitmap;
+
+/**
+ * Copyright 2015 Pavlos-Petros Tournaris
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/*
+ * Collects what happens to one thumbnail request while a listener is installed, from the cache
+ * lookups down to the decode, and turns it into a ThumbnailEvent once the thumbnail is emitted.
+ *
+ * It is filled in on the thread of the request, the fields are volatile because the decode of a
+ * shared request may run elsewhere.
+ * */
+final class ThumbnailTrace {
+
+  private final ThumbnailKey key;
+  private final long startNanos;
+  private volatile ThumbnailEvent.Origin origin = ThumbnailEvent.Origin.SHARED;
+  private volatile int sourceWidth = -1;
+  private volatile int sourceHeight = -1;
+  private volatile int sampleSize = 1;
+
+  ThumbnailTrace(ThumbnailKey key) {
+    this.key = key;
+    this.startNanos = System.nanoTime();
+  }
+
+  void setOrigin(ThumbnailEvent.Origin origin) {
+    this.origin = origin;
+  }
+
+  /*
+   * Record the bounds of the image being decoded and the sample size applied to them.
+   * */
+  void decoded(int sourceWidth, int sourceHeight, int sampleSize) {
+    this.sourceWidth = sourceWidth;
+    this.sourceHeight = sourceHeight;
+    this.sampleSize = Math.max(1, sampleSize);
+  }
+
+  ThumbnailEvent finish(Bitmap bitmap, Throwable error) {
+    return new ThumbnailEvent(key.getSource(), key.getWidth(), key.getHeight(), origin,
+        sourceWidth, sourceHeight, sampleSize, bitmap == null ? -1 : bitmap.getWidth(),
+        bitmap == null ? -1 : bitmap.getHeight(), bitmap == null ? 0 : bitmap.getByteCount(),
+        System.nanoTime() - startNanos, error);
+  }
+}
@@ -0,0 +1,135 @@
+package com.pavlospt.rxfile;
+
+import rx.Scheduler;
+import rx.functions.Func1;
+import rx.schedulers.Schedulers;
+
+/**
+ * Copyright 2015 Pavlos-Petros Tournaris
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/*
+ * Settings of a document tree walk, see RxFile.walkDocumentTree().
+ *
+ * scheduler - The Scheduler directories are listed on, defaults to Schedulers.io().
+ * maxConcurrency - The maximum number of directories listed at once across the whole tree,
+ * defaults to 4.
+ * include - Which documents other than directories are emitted, defaults to all of them.
+ * exclude - Which documents are skipped, an excluded directory is not walked into either.
+ * Defaults to none.
+ * emitDirectories - Emit the directories walked into as well, defaults to false.
+ * */
+public class TreeWalkOptions {
+
+  private final Scheduler scheduler;
+  private final int maxConcurrency;
+  private final Func1<DocumentEntry, Boolean> include;
+  private final Func1<DocumentEntry, Boolean> exclude;
+  private final boolean emitDirectories;
+
+  private TreeWalkOptions(Builder builder) {
+    this.scheduler = builder.scheduler;
+    this.maxConcurrency = builder.maxConcurrency;
+    this.include = builder.include;
+    this.exclude = builder.exclude;
+    this.emitDirectories = builder.emitDirectories;
+  }
+
+  public static TreeWalkOptions defaults() {
+    return new Builder().build();
+  }
+
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  public Scheduler getScheduler() {
+    return scheduler;
+  }
+
+  public int getMaxConcurrency() {
+    return maxConcurrency;
+  }
+
+  public Func1<DocumentEntry, Boolean> getInclude() {
+    return include;
+  }
+
+  public Func1<DocumentEntry, Boolean> getExclude() {
+    return exclude;
+  }
+
+  public boolean isEmitDirectories() {
+    return emitDirectories;
+  }
+
+  public static class Builder {
+
+    private static final Func1<DocumentEntry, Boolean> ALL = new Func1<DocumentEntry, Boolean>() {
+      @Override
+      public Boolean call(DocumentEntry entry) {
+        return true;
+      }
+    };
+
+    private static final Func1<DocumentEntry, Boolean> NONE = new Func1<DocumentEntry, Boolean>() {
+      @Override
+      public Boolean call(DocumentEntry entry) {
+        return false;
+      }
+    };
+
+    private Scheduler scheduler = Schedulers.io();
+    private int maxConcurrency = 4;
+    private Func1<DocumentEntry, Boolean> include = ALL;
+    private Func1<DocumentEntry, Boolean> exclude = NONE;
+    private boolean emitDirectories = false;
+
+    public Builder scheduler(Scheduler scheduler) {
+      if (scheduler == null) throw new IllegalArgumentException("scheduler == null");
+      this.scheduler = scheduler;
+      return this;
+    }
+
+    public Builder maxConcurrency(int maxConcurrency) {
+      if (maxConcurrency <= 0) {
+        throw new IllegalArgumentException("maxConcurrency must be positive: " + maxConcurrency);
+      }
+      this.maxConcurrency = maxConcurrency;
+      return this;
+    }
+
+    public Builder include(Func1<DocumentEntry, Boolean> include) {
+      if (include == null) throw new IllegalArgumentException("include == null");
+      this.include = include;
+      return this;
+    }
+
+    public Builder exclude(Func1<DocumentEntry, Boolean> exclude) {
+      if (exclude == null) throw new IllegalArgumentException("exclude == null");
+      this.exclude = exclude;
+      return this;
+    }
+
+    public Builder emitDirectories(boolean emitDirectories) {
+      this.emitDirectories = emitDirectories;
+      return this;
+    }
+
+    public TreeWalkOptions build() {
+      return new TreeWalkOptions(this);
+    }
+  }
+}
@@ -0,0 +1,68 @@
+package com.pavlospt.rxfile;
+
+import android.net.Uri;
+
+/**
+ * Copyright 2015 Pavlos-Petros Tournaris
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/*
+ * What kind of source a Uri points to, as told by its scheme, authority and document id.
+ * */
+enum UriKind {
+  FILE,
+  MEDIA_STORE,
+  IMAGE_OR_VIDEO_DOCUMENT,
+  MEDIA_DOCUMENT,
+  EXTERNAL_STORAGE_DOCUMENT,
+  DOWNLOADS_DOCUMENT,
+  GOOGLE_DRIVE_DOCUMENT,
+  OTHER;
+
+  static UriKind of(Uri uri) {
+    if (Constants.FILE.equals(uri.getScheme())) {
+      return FILE;
+    }
+    String authority = uri.getAuthority();
+    if (Constants.MEDIA_AUTHORITY.equals(authority)) {
+      return MEDIA_STORE;
+    } else if (Constants.MEDIA_DOCUMENTS_AUTHORITY.equals(authority)) {
+      String lastPathSegment = uri.getLastPathSegment();
+      return lastPathSegment != null && (lastPathSegment.contains(Constants.IMAGE)
+          || lastPathSegment.contains(Constants.VIDEO)) ? IMAGE_OR_VIDEO_DOCUMENT : MEDIA_DOCUMENT;
+    } else if (Constants.EXTERNAL_STORAGE_AUTHORITY.equals(authority)) {
+      return EXTERNAL_STORAGE_DOCUMENT;
+    } else if (Constants.DOWNLOADS_DIRECTORY_AUTHORITY.equals(authority)) {
+      return DOWNLOADS_DOCUMENT;
+    } else if (Constants.GOOGLE_DRIVE_DOCUMENT_AUTHORITY.equals(authority)) {
+      return GOOGLE_DRIVE_DOCUMENT;
+    }
+    return OTHER;
+  }
+
+  /*
+   * Image or video rows of MediaStore, which have MediaStore thumbnails.
+   * */
+  boolean isMedia() {
+    return this == MEDIA_STORE || this == IMAGE_OR_VIDEO_DOCUMENT;
+  }
+
+  /*
+   * Sources backed by MediaStore, whose changes are notified under content://media.
+   * */
+  boolean isMediaStoreBacked() {
+    return this == MEDIA_STORE || this == IMAGE_OR_VIDEO_DOCUMENT || this == MEDIA_DOCUMENT;
+  }
+}
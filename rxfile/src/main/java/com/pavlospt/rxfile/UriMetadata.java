@@ -0,0 +1,65 @@
+package com.pavlospt.rxfile;
+
+/**
+ * Copyright 2015 Pavlos-Petros Tournaris
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/*
+ * What a single query tells about the source of a Uri: whether it exists, its display name,
+ * mime type, size and last modified time.
+ * */
+final class UriMetadata {
+
+  static final UriMetadata MISSING = new UriMetadata(false, null, null, 0, 0);
+
+  private final boolean exists;
+  private final String displayName;
+  private final String mimeType;
+  private final long size;
+  private final long lastModified;
+
+  UriMetadata(boolean exists, String displayName, String mimeType, long size,
+      long lastModified) {
+    this.exists = exists;
+    this.displayName = displayName;
+    this.mimeType = mimeType;
+    this.size = size;
+    this.lastModified = lastModified;
+  }
+
+  boolean exists() {
+    return exists;
+  }
+
+  String getDisplayName() {
+    return displayName;
+  }
+
+  String getMimeType() {
+    return mimeType;
+  }
+
+  long getSize() {
+    return size;
+  }
+
+  long getLastModified() {
+    return lastModified;
+  }
+
+  SourceStamp toSourceStamp() {
+    return exists ? new SourceStamp(size, lastModified) : SourceStamp.UNKNOWN;
+  }
+}
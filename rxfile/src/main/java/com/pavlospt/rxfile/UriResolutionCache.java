@@ -0,0 +1,264 @@
+package com.pavlospt.rxfile;
+
+import android.content.Context;
+import android.database.ContentObserver;
+import android.database.Cursor;
+import android.net.Uri;
+import android.os.SystemClock;
+import android.provider.DocumentsContract;
+import android.provider.MediaStore;
+import android.provider.OpenableColumns;
+import android.support.v4.util.LruCache;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Copyright 2015 Pavlos-Petros Tournaris
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/*
+ * A bounded cache of what is known about recently used Uris: their kind, metadata and path, so
+ * repeated operations on the same Uri skip the ContentResolver.
+ *
+ * The kind of a Uri never changes. Metadata and paths are trusted for ttlMillis, and those of
+ * MediaStore backed Uris are dropped as soon as MediaStore notifies a change.
+ * */
+final class UriResolutionCache {
+
+  static final int DEFAULT_MAX_ENTRIES = 512;
+  static final long DEFAULT_TTL_MILLIS = 30 * 1000;
+
+  private static final Uri MEDIA_STORE_URI =
+      Uri.parse(Constants.CONTENT + "://" + Constants.MEDIA_AUTHORITY);
+
+  private static final String[] DOCUMENT_PROJECTION = {
+      DocumentsContract.Document.COLUMN_DISPLAY_NAME, DocumentsContract.Document.COLUMN_MIME_TYPE,
+      DocumentsContract.Document.COLUMN_SIZE, DocumentsContract.Document.COLUMN_LAST_MODIFIED
+  };
+
+  private final LruCache<Uri, Entry> entries;
+  private final AtomicBoolean observing = new AtomicBoolean();
+  private volatile long ttlMillis;
+
+  UriResolutionCache(int maxEntries, long ttlMillis) {
+    this.entries = new LruCache<>(maxEntries);
+    this.ttlMillis = ttlMillis;
+  }
+
+  UriKind kind(Uri uri) {
+    return entry(uri).kind;
+  }
+
+  /*
+   * The metadata of the Uri, queried once per ttlMillis. File Uris are read from the file system
+   * every time.
+   * */
+  UriMetadata metadata(Context context, Uri uri) {
+    Entry entry = entry(uri);
+    if (entry.kind == UriKind.FILE) {
+      return fileMetadata(uri);
+    }
+    Timed<UriMetadata> metadata = entry.metadata;
+    if (isFresh(metadata)) {
+      return metadata.value;
+    }
+    observe(context);
+    UriMetadata queried = queryMetadata(context, uri);
+    entry.metadata = new Timed<>(queried);
+    return queried;
+  }
+
+  /*
+   * The metadata of the Uri, always queried. Imports key their copies on size and last
+   * modification time, and only MediaStore notifies changes, so a document rewritten within
+   * ttlMillis would otherwise be served from a stale copy. The cached entry is refreshed on the
+   * way.
+   * */
+  UriMetadata freshMetadata(Context context, Uri uri) {
+    Entry entry = entry(uri);
+    if (entry.kind == UriKind.FILE) {
+      return fileMetadata(uri);
+    }
+    UriMetadata queried = queryMetadata(context, uri);
+    entry.metadata = new Timed<>(queried);
+    return queried;
+  }
+
+  /*
+   * The path of the Uri, queried once per ttlMillis.
+   * */
+  String path(Context context, Uri uri, MediaPathResolver resolver) {
+    Entry entry = entry(uri);
+    if (entry.kind == UriKind.FILE) {
+      return uri.getPath();
+    }
+    Timed<String> path = entry.path;
+    if (isFresh(path)) {
+      return path.value;
+    }
+    observe(context);
+    String queried = resolver.queryPath(uri, null, null);
+    entry.path = new Timed<>(queried);
+    return queried;
+  }
+
+  /*
+   * The paths of many Uris, only resolving the ones not known already in bulk.
+   * */
+  Map<Uri, String> paths(Context context, Collection<Uri> uris, MediaPathResolver resolver) {
+    Map<Uri, String> paths = new LinkedHashMap<>();
+    List<Uri> unknown = new ArrayList<>();
+    for (Uri uri : uris) {
+      Entry entry = entry(uri);
+      Timed<String> path = entry.path;
+      if (entry.kind == UriKind.FILE) {
+        paths.put(uri, uri.getPath());
+      } else if (isFresh(path)) {
+        if (path.value != null) paths.put(uri, path.value);
+      } else {
+        unknown.add(uri);
+      }
+    }
+    if (unknown.isEmpty()) {
+      return paths;
+    }
+    observe(context);
+    Map<Uri, String> resolved = resolver.resolvePaths(unknown);
+    for (Uri uri : unknown) {
+      String path = resolved.get(uri);
+      entry(uri).path = new Timed<>(path);
+      if (path != null) paths.put(uri, path);
+    }
+    return paths;
+  }
+
+  void setTtlMillis(long ttlMillis) {
+    this.ttlMillis = Math.max(0, ttlMillis);
+  }
+
+  /*
+   * Forget what is known about MediaStore backed Uris.
+   * */
+  void invalidateMediaStore() {
+    for (Map.Entry<Uri, Entry> entry : entries.snapshot().entrySet()) {
+      if (entry.getValue().kind.isMediaStoreBacked()) {
+        entries.remove(entry.getKey());
+      }
+    }
+  }
+
+  void clear() {
+    entries.evictAll();
+  }
+
+  private Entry entry(Uri uri) {
+    Entry entry = entries.get(uri);
+    if (entry == null) {
+      entry = new Entry(UriKind.of(uri));
+      entries.put(uri, entry);
+    }
+    return entry;
+  }
+
+  private boolean isFresh(Timed<?> timed) {
+    return timed != null && SystemClock.elapsedRealtime() - timed.resolvedAt < ttlMillis;
+  }
+
+  private void observe(Context context) {
+    if (!observing.compareAndSet(false, true)) {
+      return;
+    }
+    context.getApplicationContext().getContentResolver()
+        .registerContentObserver(MEDIA_STORE_URI, true, new ContentObserver(null) {
+          @Override
+          public void onChange(boolean selfChange) {
+            invalidateMediaStore();
+          }
+        });
+  }
+
+  private static UriMetadata fileMetadata(Uri uri) {
+    File file = new File(uri.getPath());
+    return file.exists() ? new UriMetadata(true, file.getName(), null, file.length(),
+        file.lastModified()) : UriMetadata.MISSING;
+  }
+
+  /*
+   * Document Uris are queried for the columns DocumentsContract guarantees, any other provider
+   * for all its columns since they differ from one provider to the other.
+   * */
+  private static UriMetadata queryMetadata(Context context, Uri uri) {
+    boolean document = DocumentsContract.isDocumentUri(context, uri);
+    Cursor cursor = context.getContentResolver()
+        .query(uri, document ? DOCUMENT_PROJECTION : null, null, null, null);
+    if (cursor == null) {
+      return UriMetadata.MISSING;
+    }
+    try {
+      if (!cursor.moveToFirst()) {
+        return UriMetadata.MISSING;
+      }
+      String mimeType = getString(cursor, DocumentsContract.Document.COLUMN_MIME_TYPE);
+      if (DocumentsContract.Document.MIME_TYPE_DIR.equals(mimeType)) {
+        mimeType = null;
+      }
+      long lastModified = getLong(cursor, DocumentsContract.Document.COLUMN_LAST_MODIFIED);
+      if (lastModified <= 0) {
+        // MediaStore keeps seconds.
+        lastModified = getLong(cursor, MediaStore.MediaColumns.DATE_MODIFIED) * 1000;
+      }
+      return new UriMetadata(true, getString(cursor, OpenableColumns.DISPLAY_NAME), mimeType,
+          getLong(cursor, OpenableColumns.SIZE), lastModified);
+    } finally {
+      cursor.close();
+    }
+  }
+
+  private static String getString(Cursor cursor, String column) {
+    int index = cursor.getColumnIndex(column);
+    return index < 0 || cursor.isNull(index) ? null : cursor.getString(index);
+  }
+
+  private static long getLong(Cursor cursor, String column) {
+    int index = cursor.getColumnIndex(column);
+    return index < 0 || cursor.isNull(index) ? 0 : cursor.getLong(index);
+  }
+
+  private static final class Entry {
+
+    final UriKind kind;
+    volatile Timed<UriMetadata> metadata;
+    volatile Timed<String> path;
+
+    Entry(UriKind kind) {
+      this.kind = kind;
+    }
+  }
+
+  private static final class Timed<T> {
+
+    final T value;
+    final long resolvedAt = SystemClock.elapsedRealtime();
+
+    Timed(T value) {
+      this.value = value;
+    }
+  }
+}
@@ -0,0 +1,51 @@
+package com.pavlospt.rxfile;
+
+import android.content.Context;
+import android.net.Uri;
+import java.io.File;
+import org.junit.Before;
+import org.robolectric.Robolectric;
+import org.robolectric.RuntimeEnvironment;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Copyright 2015 Pavlos-Petros Tournaris
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/*
+ * A FakeContentProvider serving the documents the tests add under DOCUMENTS, from source files
+ * written in the sources directory. Uris are resolved afresh by every test.
+ * */
+public abstract class DocumentsFixture {
+
+  static final Uri DOCUMENTS =
+      Uri.parse("content://" + FakeContentProvider.AUTHORITY + "/document");
+
+  Context context;
+  FakeContentProvider provider;
+  File sources;
+
+  @Before
+  public void setUpDocuments() {
+    context = RuntimeEnvironment.application;
+    provider = Robolectric.buildContentProvider(FakeContentProvider.class)
+        .create(FakeContentProvider.AUTHORITY)
+        .get();
+    sources = new File(context.getFilesDir(), "sources");
+    assertTrue(sources.isDirectory() || sources.mkdirs());
+    RxFile.clearUriResolutionCache();
+  }
+}
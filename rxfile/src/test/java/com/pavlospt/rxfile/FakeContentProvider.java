@@ -0,0 +1,161 @@
+package com.pavlospt.rxfile;
+
+import android.content.ContentProvider;
+import android.content.ContentValues;
+import android.database.Cursor;
+import android.database.MatrixCursor;
+import android.net.Uri;
+import android.os.ParcelFileDescriptor;
+import android.provider.MediaStore;
+import android.provider.OpenableColumns;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Copyright 2015 Pavlos-Petros Tournaris
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/*
+ * A ContentProvider serving local files the way document and MediaStore providers do: rows with
+ * the usual columns, queried by item Uri or by _id selection on a table Uri, and descriptors
+ * opened on the files. Counts the queries it answers.
+ * */
+public class FakeContentProvider extends ContentProvider {
+
+  static final String AUTHORITY = "com.pavlospt.rxfile.test.documents";
+
+  private static final String LAST_MODIFIED = "last_modified";
+
+  private static final String[] COLUMNS = {
+      MediaStore.MediaColumns._ID, OpenableColumns.DISPLAY_NAME, OpenableColumns.SIZE,
+      MediaStore.MediaColumns.MIME_TYPE, LAST_MODIFIED, MediaStore.MediaColumns.DATE_MODIFIED,
+      MediaStore.MediaColumns.DATA
+  };
+
+  private final Map<String, Row> rows = new ConcurrentHashMap<>();
+  private final AtomicInteger queryCount = new AtomicInteger();
+  private final AtomicInteger openCount = new AtomicInteger();
+
+  @Override
+  public boolean onCreate() {
+    return true;
+  }
+
+  /*
+   * Serve the file as the row id of the table, returning the Uri of the row.
+   * */
+  Uri add(Uri table, String id, String displayName, String mimeType, File file) {
+    Uri uri = Uri.withAppendedPath(table, id);
+    rows.put(uri.toString(), new Row(id, displayName, mimeType, file));
+    return uri;
+  }
+
+  int getQueryCount() {
+    return queryCount.get();
+  }
+
+  int getOpenCount() {
+    return openCount.get();
+  }
+
+  @Override
+  public Cursor query(Uri uri, String[] projection, String selection, String[] selectionArgs,
+      String sortOrder) {
+    queryCount.incrementAndGet();
+    String[] columns = projection != null ? projection : COLUMNS;
+    MatrixCursor cursor = new MatrixCursor(columns);
+    List<Row> matches = new ArrayList<>();
+    if (selection == null) {
+      Row row = rows.get(uri.toString());
+      if (row != null) matches.add(row);
+    } else {
+      // Both "_id =?" and "_id IN (?,?)" list the ids as arguments.
+      for (String id : selectionArgs) {
+        Row row = rows.get(Uri.withAppendedPath(uri, id).toString());
+        if (row != null) matches.add(row);
+      }
+    }
+    for (Row row : matches) {
+      Object[] values = new Object[columns.length];
+      for (int i = 0; i < columns.length; i++) {
+        values[i] = row.get(columns[i]);
+      }
+      cursor.addRow(values);
+    }
+    return cursor;
+  }
+
+  @Override
+  public ParcelFileDescriptor openFile(Uri uri, String mode) throws FileNotFoundException {
+    Row row = rows.get(uri.toString());
+    if (row == null) {
+      throw new FileNotFoundException("No file for: " + uri);
+    }
+    openCount.incrementAndGet();
+    return ParcelFileDescriptor.open(row.file, ParcelFileDescriptor.MODE_READ_ONLY);
+  }
+
+  @Override
+  public String getType(Uri uri) {
+    Row row = rows.get(uri.toString());
+    return row == null ? null : row.mimeType;
+  }
+
+  @Override
+  public Uri insert(Uri uri, ContentValues values) {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public int delete(Uri uri, String selection, String[] selectionArgs) {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public int update(Uri uri, ContentValues values, String selection, String[] selectionArgs) {
+    throw new UnsupportedOperationException();
+  }
+
+  private static final class Row {
+
+    final String id;
+    final String displayName;
+    final String mimeType;
+    final File file;
+
+    Row(String id, String displayName, String mimeType, File file) {
+      this.id = id;
+      this.displayName = displayName;
+      this.mimeType = mimeType;
+      this.file = file;
+    }
+
+    Object get(String column) {
+      if (MediaStore.MediaColumns._ID.equals(column)) return id;
+      if (OpenableColumns.DISPLAY_NAME.equals(column)) return displayName;
+      if (OpenableColumns.SIZE.equals(column)) return file.length();
+      if (MediaStore.MediaColumns.MIME_TYPE.equals(column)) return mimeType;
+      if (LAST_MODIFIED.equals(column)) return file.lastModified();
+      if (MediaStore.MediaColumns.DATE_MODIFIED.equals(column)) return file.lastModified() / 1000;
+      if (MediaStore.MediaColumns.DATA.equals(column)) return file.getAbsolutePath();
+      return null;
+    }
+  }
+}
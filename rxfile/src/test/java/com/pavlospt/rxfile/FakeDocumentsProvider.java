@@ -0,0 +1,158 @@
+package com.pavlospt.rxfile;
+
+import android.content.ContentProvider;
+import android.content.ContentValues;
+import android.database.Cursor;
+import android.database.MatrixCursor;
+import android.net.Uri;
+import android.provider.DocumentsContract;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Copyright 2015 Pavlos-Petros Tournaris
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/*
+ * A provider of document trees for the tests, answering the children queries of
+ * DocumentsContract and counting the queries, cursors and rows it served.
+ * */
+public class FakeDocumentsProvider extends ContentProvider {
+
+  static final String AUTHORITY = "com.pavlospt.rxfile.test.tree";
+
+  private final Map<String, List<Object[]>> children = new ConcurrentHashMap<>();
+  private final AtomicInteger queryCount = new AtomicInteger();
+  private final AtomicInteger openCursors = new AtomicInteger();
+  private final AtomicInteger maxOpenCursors = new AtomicInteger();
+  private final AtomicInteger rowsRead = new AtomicInteger();
+
+  @Override
+  public boolean onCreate() {
+    return true;
+  }
+
+  /*
+   * The tree Uri granting access to the document, as ACTION_OPEN_DOCUMENT_TREE returns it.
+   * */
+  Uri tree(String rootId) {
+    children.put(rootId, new ArrayList<Object[]>());
+    return DocumentsContract.buildTreeDocumentUri(AUTHORITY, rootId);
+  }
+
+  void addDirectory(String parentId, String id, String name) {
+    add(parentId, id, name, DocumentsContract.Document.MIME_TYPE_DIR, 0);
+    children.put(id, new ArrayList<Object[]>());
+  }
+
+  void addFile(String parentId, String id, String name, String mimeType, long size) {
+    add(parentId, id, name, mimeType, size);
+  }
+
+  private void add(String parentId, String id, String name, String mimeType, long size) {
+    children.get(parentId).add(new Object[] {id, name, mimeType, size, 1000L});
+  }
+
+  int getQueryCount() {
+    return queryCount.get();
+  }
+
+  int getOpenCursors() {
+    return openCursors.get();
+  }
+
+  int getMaxOpenCursors() {
+    return maxOpenCursors.get();
+  }
+
+  int getRowsRead() {
+    return rowsRead.get();
+  }
+
+  @Override
+  public Cursor query(Uri uri, String[] projection, String selection, String[] selectionArgs,
+      String sortOrder) {
+    queryCount.incrementAndGet();
+    List<Object[]> rows = children.get(DocumentsContract.getDocumentId(uri));
+    MatrixCursor cursor = new CountingCursor(projection);
+    for (Object[] row : rows) {
+      Object[] values = new Object[projection.length];
+      for (int i = 0; i < projection.length; i++) {
+        values[i] = get(row, projection[i]);
+      }
+      cursor.addRow(values);
+    }
+    int open = openCursors.incrementAndGet();
+    int max;
+    do {
+      max = maxOpenCursors.get();
+    } while (open > max && !maxOpenCursors.compareAndSet(max, open));
+    return cursor;
+  }
+
+  private static Object get(Object[] row, String column) {
+    if (DocumentsContract.Document.COLUMN_DOCUMENT_ID.equals(column)) return row[0];
+    if (DocumentsContract.Document.COLUMN_DISPLAY_NAME.equals(column)) return row[1];
+    if (DocumentsContract.Document.COLUMN_MIME_TYPE.equals(column)) return row[2];
+    if (DocumentsContract.Document.COLUMN_SIZE.equals(column)) return row[3];
+    if (DocumentsContract.Document.COLUMN_LAST_MODIFIED.equals(column)) return row[4];
+    return null;
+  }
+
+  @Override
+  public String getType(Uri uri) {
+    return null;
+  }
+
+  @Override
+  public Uri insert(Uri uri, ContentValues values) {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public int delete(Uri uri, String selection, String[] selectionArgs) {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public int update(Uri uri, ContentValues values, String selection, String[] selectionArgs) {
+    throw new UnsupportedOperationException();
+  }
+
+  private final class CountingCursor extends MatrixCursor {
+
+    private final AtomicBoolean closed = new AtomicBoolean();
+
+    CountingCursor(String[] columns) {
+      super(columns);
+    }
+
+    @Override
+    public boolean onMove(int oldPosition, int newPosition) {
+      rowsRead.incrementAndGet();
+      return super.onMove(oldPosition, newPosition);
+    }
+
+    @Override
+    public void close() {
+      if (closed.compareAndSet(false, true)) openCursors.decrementAndGet();
+      super.close();
+    }
+  }
+}
@@ -0,0 +1,57 @@
+package com.pavlospt.rxfile;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Copyright 2015 Pavlos-Petros Tournaris
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/*
+ * Latency distribution of repeated operations, reported rather than asserted since wall-clock
+ * time depends on the machine running the tests.
+ * */
+final class Measurements {
+
+  private final String name;
+  private final List<Long> latencies = new ArrayList<>();
+
+  Measurements(String name) {
+    this.name = name;
+  }
+
+  synchronized void record(long startNanos) {
+    latencies.add(System.nanoTime() - startNanos);
+  }
+
+  synchronized long percentileMillis(double percentile) {
+    List<Long> sorted = new ArrayList<>(latencies);
+    Collections.sort(sorted);
+    int index = (int) Math.ceil(percentile / 100 * sorted.size()) - 1;
+    return TimeUnit.NANOSECONDS.toMillis(sorted.get(Math.max(0, index)));
+  }
+
+  synchronized String summary() {
+    return String.format(Locale.US, "%s: n=%d p50=%dms p95=%dms p99=%dms", name,
+        latencies.size(), percentileMillis(50), percentileMillis(95), percentileMillis(99));
+  }
+
+  void report() {
+    System.out.println(summary());
+  }
+}
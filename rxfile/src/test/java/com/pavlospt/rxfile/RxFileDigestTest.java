@@ -0,0 +1,128 @@
+package com.pavlospt.rxfile;
+
+import android.net.Uri;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import rx.observers.TestSubscriber;
+import rx.schedulers.Schedulers;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Copyright 2015 Pavlos-Petros Tournaris
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+@RunWith(RobolectricTestRunner.class)
+public class RxFileDigestTest extends DocumentsFixture {
+
+  @After
+  public void tearDown() {
+    RxFile.setImportCachePolicy(ImportCachePolicy.METADATA);
+  }
+
+  @Test
+  public void digestsAreComputedWhileCopying() throws Exception {
+    File source = TestFiles.create(sources, "attachment.pdf", 3 * 1024 * 1024 + 11, null);
+    byte[] bytes = Files.readAllBytes(source.toPath());
+    Uri uri = provider.add(DOCUMENTS, "attachment", source.getName(), null, source);
+
+    ImportResult result = RxFile.importFromUri(context, uri, DigestAlgorithm.SHA_256,
+        DigestAlgorithm.CRC32).toBlocking().single();
+
+    assertEquals(CopyMethod.BUFFERED, result.getCopyMethod());
+    assertEquals(sha256(bytes), result.getDigest(DigestAlgorithm.SHA_256));
+    assertEquals(crc32(bytes), result.getDigest(DigestAlgorithm.CRC32));
+    assertNull(result.getDigest(DigestAlgorithm.MD5));
+    assertEquals(1, provider.getOpenCount());
+  }
+
+  @Test
+  public void undigestedImportsKeepTheKernelCopy() throws IOException {
+    File source = TestFiles.create(sources, "plain.bin", 256 * 1024, null);
+    Uri uri = provider.add(DOCUMENTS, "plain", source.getName(), null, source);
+
+    ImportResult result = RxFile.importFromUri(context, uri).toBlocking().single();
+
+    assertEquals(CopyMethod.TRANSFER, result.getCopyMethod());
+    assertTrue(result.getDigests().isEmpty());
+  }
+
+  @Test
+  public void cachedCopiesReuseTheVerifiedContentHash() throws Exception {
+    RxFile.setImportCachePolicy(ImportCachePolicy.CONTENT_HASH);
+    File source = TestFiles.create(sources, "report.pdf", 512 * 1024, null);
+    byte[] bytes = Files.readAllBytes(source.toPath());
+    Uri uri = provider.add(DOCUMENTS, "report", source.getName(), null, source);
+
+    ImportResult copied = RxFile.importFromUri(context, uri, DigestAlgorithm.SHA_256)
+        .toBlocking().single();
+    ImportResult cached = RxFile.importFromUri(context, uri, DigestAlgorithm.SHA_256,
+        DigestAlgorithm.CRC32).toBlocking().single();
+
+    assertEquals(sha256(bytes), copied.getDigest(DigestAlgorithm.SHA_256));
+    assertEquals(CopyMethod.CACHED, cached.getCopyMethod());
+    assertEquals(sha256(bytes), cached.getDigest(DigestAlgorithm.SHA_256));
+    assertEquals(crc32(bytes), cached.getDigest(DigestAlgorithm.CRC32));
+    assertEquals(1, provider.getOpenCount());
+  }
+
+  @Test
+  public void concurrentImportsOfTheSameEntryTakeTurns() throws Exception {
+    RxFile.setImportCachePolicy(ImportCachePolicy.CONTENT_HASH);
+    File source = TestFiles.create(sources, "shared.pdf", 8 * 1024 * 1024, null);
+    byte[] bytes = Files.readAllBytes(source.toPath());
+    Uri uri = provider.add(DOCUMENTS, "shared", source.getName(), null, source);
+
+    // Different digests are not shared in flight, but still write into the same entry.
+    TestSubscriber<ImportResult> plain = new TestSubscriber<>();
+    TestSubscriber<ImportResult> digested = new TestSubscriber<>();
+    RxFile.importFromUri(context, uri).subscribeOn(Schedulers.io()).subscribe(plain);
+    RxFile.importFromUri(context, uri, DigestAlgorithm.SHA_256).subscribeOn(Schedulers.io())
+        .subscribe(digested);
+    plain.awaitTerminalEvent(10, TimeUnit.SECONDS);
+    digested.awaitTerminalEvent(10, TimeUnit.SECONDS);
+
+    plain.assertNoErrors();
+    digested.assertNoErrors();
+    File copy = plain.getOnNextEvents().get(0).getFile();
+    assertEquals(copy, digested.getOnNextEvents().get(0).getFile());
+    assertTrue(Arrays.equals(bytes, Files.readAllBytes(copy.toPath())));
+    assertEquals(sha256(bytes), digested.getOnNextEvents().get(0)
+        .getDigest(DigestAlgorithm.SHA_256));
+    assertEquals(1, provider.getOpenCount());
+  }
+
+  private static String sha256(byte[] bytes) throws NoSuchAlgorithmException {
+    return CopyDigester.toHex(MessageDigest.getInstance("SHA-256").digest(bytes));
+  }
+
+  private static String crc32(byte[] bytes) {
+    CRC32 crc32 = new CRC32();
+    crc32.update(bytes);
+    return String.format("%08x", crc32.getValue());
+  }
+}
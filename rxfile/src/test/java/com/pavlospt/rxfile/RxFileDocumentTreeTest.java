@@ -0,0 +1,150 @@
+package com.pavlospt.rxfile;
+
+import android.content.Context;
+import android.net.Uri;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import rx.functions.Func1;
+import rx.observers.TestSubscriber;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Copyright 2015 Pavlos-Petros Tournaris
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+@RunWith(RobolectricTestRunner.class)
+public class RxFileDocumentTreeTest {
+
+  private Context context;
+  private FakeDocumentsProvider provider;
+
+  @Before
+  public void setUp() {
+    context = RuntimeEnvironment.application;
+    provider = Robolectric.buildContentProvider(FakeDocumentsProvider.class)
+        .create(FakeDocumentsProvider.AUTHORITY)
+        .get();
+  }
+
+  @Test
+  public void everyDocumentIsFoundWithOneQueryPerDirectory() {
+    Uri tree = provider.tree("root");
+    provider.addFile("root", "readme", "README.md", "text/markdown", 10);
+    for (int i = 0; i < 3; i++) {
+      provider.addDirectory("root", "album" + i, "Album " + i);
+      for (int j = 0; j < 2; j++) {
+        String day = "album" + i + "/day" + j;
+        provider.addDirectory("album" + i, day, "Day " + j);
+        for (int k = 0; k < 5; k++) {
+          provider.addFile(day, day + "/" + k, "IMG_" + k + ".jpg", "image/jpeg", 1024);
+        }
+      }
+    }
+
+    List<DocumentEntry> entries = RxFile.walkDocumentTree(context, tree).toList()
+        .toBlocking().single();
+
+    List<String> paths = paths(entries);
+    assertEquals(1 + 3 * 2 * 5, paths.size());
+    assertTrue(paths.contains("README.md"));
+    assertTrue(paths.contains("Album 2/Day 1/IMG_4.jpg"));
+    assertEquals(1 + 3 + 3 * 2, provider.getQueryCount());
+    assertEquals(0, provider.getOpenCursors());
+    for (DocumentEntry entry : entries) {
+      assertTrue(entry.getUri().toString().startsWith(tree.toString() + "/document/"));
+    }
+  }
+
+  @Test
+  public void excludedDirectoriesAreNotWalkedInto() {
+    Uri tree = provider.tree("root");
+    provider.addDirectory("root", "photos", "Photos");
+    provider.addFile("photos", "photo", "photo.jpg", "image/jpeg", 1024);
+    provider.addFile("photos", "notes", "notes.txt", "text/plain", 12);
+    provider.addDirectory("root", "trash", ".trash");
+    provider.addFile("trash", "deleted", "deleted.jpg", "image/jpeg", 1024);
+    TreeWalkOptions options = TreeWalkOptions.builder()
+        .include(new Func1<DocumentEntry, Boolean>() {
+          @Override
+          public Boolean call(DocumentEntry entry) {
+            return entry.getMimeType().startsWith("image/");
+          }
+        })
+        .exclude(new Func1<DocumentEntry, Boolean>() {
+          @Override
+          public Boolean call(DocumentEntry entry) {
+            return entry.getDisplayName().startsWith(".");
+          }
+        })
+        .emitDirectories(true)
+        .build();
+
+    List<DocumentEntry> entries = RxFile.walkDocumentTree(context, tree, options).toList()
+        .toBlocking().single();
+
+    List<String> paths = paths(entries);
+    assertEquals(2, paths.size());
+    assertTrue(paths.contains("Photos"));
+    assertTrue(paths.contains("Photos/photo.jpg"));
+    assertEquals(2, provider.getQueryCount());
+  }
+
+  @Test
+  public void largeTreesAreListedWithBoundedConcurrencyAndOnDemand() {
+    Uri tree = provider.tree("root");
+    for (int i = 0; i < 50; i++) {
+      provider.addDirectory("root", "dir" + i, "Dir " + i);
+      for (int j = 0; j < 400; j++) {
+        provider.addFile("dir" + i, i + "/" + j, "file" + j + ".bin", "application/octet-stream",
+            j);
+      }
+    }
+    TreeWalkOptions options = TreeWalkOptions.builder().maxConcurrency(2).build();
+    TestSubscriber<DocumentEntry> subscriber = new TestSubscriber<>(0);
+
+    RxFile.walkDocumentTree(context, tree, options).subscribe(subscriber);
+    subscriber.requestMore(10);
+    subscriber.awaitValueCount(10, 5, TimeUnit.SECONDS);
+    int rowsRead = provider.getRowsRead();
+    subscriber.requestMore(Long.MAX_VALUE);
+    subscriber.awaitTerminalEvent(10, TimeUnit.SECONDS);
+
+    subscriber.assertNoErrors();
+    assertEquals(50 * 400, subscriber.getValueCount());
+    assertTrue("rows read: " + rowsRead, rowsRead < 50 * 400 / 10);
+    assertTrue("open cursors: " + provider.getMaxOpenCursors(),
+        provider.getMaxOpenCursors() <= 2);
+    assertEquals(0, provider.getOpenCursors());
+  }
+
+  private static List<String> paths(List<DocumentEntry> entries) {
+    List<String> paths = new ArrayList<>();
+    for (DocumentEntry entry : entries) {
+      paths.add(entry.getPath());
+    }
+    Collections.sort(paths);
+    return paths;
+  }
+}
@@ -0,0 +1,241 @@
+package com.pavlospt.rxfile;
+
+import android.net.Uri;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import rx.functions.Action1;
+import rx.observers.TestSubscriber;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Copyright 2015 Pavlos-Petros Tournaris
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+@RunWith(RobolectricTestRunner.class)
+public class RxFileImportTest extends DocumentsFixture {
+
+  private static final int IMPORT_COUNT = 50;
+  private static final int IMPORT_SIZE = 1024 * 1024;
+
+  private static final int BATCH_COUNT = 32;
+  private static final int BATCH_SIZE = 4 * 1024 * 1024;
+
+  @After
+  public void tearDown() {
+    RxFile.setImportCacheMaxBytes(256 * 1024 * 1024);
+  }
+
+  @Test
+  public void importCopiesTheBytesAndNamesThemAfterTheSniffedType() throws IOException {
+    File source = TestFiles.create(sources, "scan", 256 * 1024, TestFiles.PNG_SIGNATURE);
+    Uri uri = provider.add(DOCUMENTS, "scan", "scan", "application/octet-stream", source);
+
+    ImportResult result = RxFile.importFromUri(context, uri).toBlocking().single();
+
+    assertEquals("scan.png", result.getFile().getName());
+    assertEquals("image/png", result.getMimeType());
+    assertEquals(CopyMethod.TRANSFER, result.getCopyMethod());
+    assertTrue(Arrays.equals(Files.readAllBytes(source.toPath()),
+        Files.readAllBytes(result.getFile().toPath())));
+  }
+
+  @Test
+  public void sniffedContainerKeepsTheMoreSpecificDeclaredType() throws IOException {
+    String docx = "application/vnd.openxmlformats-officedocument.wordprocessingml.document";
+    File source = TestFiles.create(sources, "letter", 16 * 1024, new byte[] {'P', 'K', 3, 4});
+    Uri uri = provider.add(DOCUMENTS, "letter", "letter", docx, source);
+
+    ImportResult result = RxFile.importFromUri(context, uri).toBlocking().single();
+
+    assertEquals(docx, result.getMimeType());
+  }
+
+  @Test
+  public void textStartingLikeABitmapIsNotSniffedAsOne() throws IOException {
+    File source = TestFiles.create(sources, "memo", 16 * 1024, "BMW service notes".getBytes());
+    Uri uri = provider.add(DOCUMENTS, "memo", "memo", "text/plain", source);
+
+    ImportResult result = RxFile.importFromUri(context, uri).toBlocking().single();
+
+    assertEquals("text/plain", result.getMimeType());
+  }
+
+  @Test
+  public void repeatedImportIsServedFromTheCache() throws IOException {
+    File source = TestFiles.create(sources, "report.bin", 64 * 1024, null);
+    Uri uri = provider.add(DOCUMENTS, "report", "report.bin", "application/octet-stream", source);
+
+    ImportResult first = RxFile.importFromUri(context, uri).toBlocking().single();
+    ImportResult second = RxFile.importFromUri(context, uri).toBlocking().single();
+
+    assertEquals(CopyMethod.TRANSFER, first.getCopyMethod());
+    assertEquals(CopyMethod.CACHED, second.getCopyMethod());
+    assertEquals(first.getFile(), second.getFile());
+    assertEquals(1, provider.getOpenCount());
+  }
+
+  @Test
+  public void documentRewrittenWithTheSameSizeIsImportedAgain() throws IOException {
+    File source = TestFiles.create(sources, "notes.bin", 64 * 1024, null);
+    Uri uri = provider.add(DOCUMENTS, "notes", "notes.bin", "application/octet-stream", source);
+    ImportResult first = RxFile.importFromUri(context, uri).toBlocking().single();
+
+    byte[] changed = Files.readAllBytes(source.toPath());
+    changed[0] ^= 1;
+    Files.write(source.toPath(), changed);
+    assertTrue(source.setLastModified(source.lastModified() + 60 * 1000));
+    ImportResult second = RxFile.importFromUri(context, uri).toBlocking().single();
+
+    assertEquals(CopyMethod.TRANSFER, first.getCopyMethod());
+    assertEquals(CopyMethod.TRANSFER, second.getCopyMethod());
+    assertTrue(Arrays.equals(changed, Files.readAllBytes(second.getFile().toPath())));
+  }
+
+  @Test
+  public void documentWithoutModificationTimeIsCopiedAfresh() throws IOException {
+    File source = TestFiles.create(sources, "stream.bin", 64 * 1024, null);
+    assertTrue(source.setLastModified(0));
+    Uri uri = provider.add(DOCUMENTS, "stream", "stream.bin", "application/octet-stream", source);
+    byte[] bytes = Files.readAllBytes(source.toPath());
+
+    ImportResult first = RxFile.importFromUri(context, uri).toBlocking().single();
+    ImportResult second = RxFile.importFromUri(context, uri).toBlocking().single();
+
+    assertEquals(CopyMethod.TRANSFER, first.getCopyMethod());
+    assertEquals(CopyMethod.TRANSFER, second.getCopyMethod());
+    assertFalse(first.getFile().getParentFile().equals(second.getFile().getParentFile()));
+    assertTrue(Arrays.equals(bytes, Files.readAllBytes(first.getFile().toPath())));
+    assertTrue(Arrays.equals(bytes, Files.readAllBytes(second.getFile().toPath())));
+    assertEquals(2, provider.getOpenCount());
+  }
+
+  @Test
+  public void importsQueryAndOpenEveryDocumentOnce() throws IOException {
+    List<Uri> uris = new ArrayList<>();
+    for (int i = 0; i < IMPORT_COUNT; i++) {
+      File source = TestFiles.create(sources, "latency-" + i + ".bin", IMPORT_SIZE, null);
+      uris.add(provider.add(DOCUMENTS, "latency-" + i, source.getName(), null, source));
+    }
+    Measurements measurements = new Measurements("import 1MB");
+    for (Uri uri : uris) {
+      long start = System.nanoTime();
+      RxFile.importFromUri(context, uri).toBlocking().single();
+      measurements.record(start);
+    }
+    measurements.report();
+
+    assertEquals(IMPORT_COUNT, provider.getQueryCount());
+    assertEquals(IMPORT_COUNT, provider.getOpenCount());
+  }
+
+  @Test
+  public void batchImportQueriesAndOpensEveryDocumentOnce() throws IOException {
+    List<Uri> uris = new ArrayList<>();
+    for (int i = 0; i < BATCH_COUNT; i++) {
+      File source = TestFiles.create(sources, "batch-" + i + ".bin", BATCH_SIZE, null);
+      uris.add(provider.add(DOCUMENTS, "batch-" + i, source.getName(), null, source));
+    }
+    Measurements measurements = new Measurements("batch import 32x4MB");
+    long start = System.nanoTime();
+    List<File> files =
+        RxFile.importFiles(context, uris, BatchOptions.defaults()).toList().toBlocking().single();
+    measurements.record(start);
+    measurements.report();
+
+    assertEquals(BATCH_COUNT, files.size());
+    assertEquals(BATCH_COUNT, provider.getQueryCount());
+    assertEquals(BATCH_COUNT, provider.getOpenCount());
+  }
+
+  @Test
+  public void batchFailuresAreReportedForEveryPosition() throws IOException {
+    File source = TestFiles.create(sources, "kept.bin", 16 * 1024, null);
+    Uri kept = provider.add(DOCUMENTS, "kept", source.getName(), null, source);
+    Uri missing = Uri.withAppendedPath(DOCUMENTS, "missing");
+    TestSubscriber<File> subscriber = new TestSubscriber<>();
+
+    RxFile.importFiles(context, Arrays.asList(missing, kept, missing),
+        BatchOptions.builder().delayErrors(true).build()).subscribe(subscriber);
+    subscriber.awaitTerminalEvent(10, TimeUnit.SECONDS);
+
+    subscriber.assertValueCount(1);
+    subscriber.assertError(BatchImportException.class);
+    BatchImportException error = (BatchImportException) subscriber.getOnErrorEvents().get(0);
+    Set<Integer> failed = new HashSet<>();
+    for (BatchImportException.Failure failure : error.getFailures()) {
+      assertEquals(missing, failure.getUri());
+      failed.add(failure.getIndex());
+    }
+    assertEquals(new HashSet<>(Arrays.asList(0, 2)), failed);
+  }
+
+  @Test
+  public void batchLargerThanTheCacheBudgetKeepsEveryCopyUntilEmitted() throws IOException {
+    RxFile.setImportCacheMaxBytes(2 * 1024 * 1024);
+    ArrayList<Uri> uris = new ArrayList<>();
+    for (int i = 0; i < 8; i++) {
+      File source = TestFiles.create(sources, "over-budget-" + i + ".bin", 1024 * 1024, null);
+      uris.add(provider.add(DOCUMENTS, "over-budget-" + i, source.getName(), null, source));
+    }
+
+    // The copies are only pinned until the List is emitted, the cache may trim them right after.
+    final List<File> evicted = new ArrayList<>();
+    List<File> files = RxFile.createFileFromUri(context, uris)
+        .doOnNext(new Action1<List<File>>() {
+          @Override
+          public void call(List<File> files) {
+            for (File file : files) {
+              if (!file.isFile()) evicted.add(file);
+            }
+          }
+        })
+        .toBlocking()
+        .single();
+
+    assertEquals(uris.size(), files.size());
+    assertTrue(evicted + " were evicted", evicted.isEmpty());
+  }
+
+  @Test
+  public void importLeftAfterTheFirstResultCanBeEvicted() throws Exception {
+    File source = TestFiles.create(sources, "first.bin", 64 * 1024, null);
+    Uri uri = provider.add(DOCUMENTS, "first", "first.bin", "application/octet-stream", source);
+
+    File file = RxFile.createFileFromUri(context, uri).toBlocking().first();
+    assertTrue(file.isFile());
+
+    // No pin is left behind, so a budget of nothing trims the copy away.
+    RxFile.setImportCacheMaxBytes(0);
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+    while (file.isFile() && System.nanoTime() < deadline) {
+      Thread.sleep(10);
+    }
+    assertFalse(file + " is still pinned", file.isFile());
+  }
+}
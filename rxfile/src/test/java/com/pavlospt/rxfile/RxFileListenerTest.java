@@ -0,0 +1,174 @@
+package com.pavlospt.rxfile;
+
+import android.net.Uri;
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowBitmapFactory;
+import rx.Observable;
+import rx.functions.Func1;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Copyright 2015 Pavlos-Petros Tournaris
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+@RunWith(RobolectricTestRunner.class)
+public class RxFileListenerTest extends DocumentsFixture {
+
+  private RecordingListener listener;
+
+  @Before
+  public void setUp() {
+    RxFile.clearThumbnailCache();
+    listener = new RecordingListener();
+    RxFile.setListener(listener);
+  }
+
+  @After
+  public void tearDown() {
+    RxFile.setListener(null);
+    ShadowBitmapFactory.reset();
+  }
+
+  @Test
+  public void importsReportBytesAuthorityAndCacheHits() throws IOException {
+    File source = TestFiles.create(sources, "notes.bin", 128 * 1024, null);
+    Uri uri = provider.add(DOCUMENTS, "notes", "notes.bin", null, source);
+
+    RxFile.importFromUri(context, uri).toBlocking().single();
+    RxFile.importFromUri(context, uri).toBlocking().single();
+
+    assertEquals(2, listener.importsStarted.size());
+    assertEquals(2, listener.imports.size());
+    ImportEvent copied = listener.imports.get(0);
+    assertEquals(FakeContentProvider.AUTHORITY, copied.getAuthority());
+    assertEquals(CopyMethod.TRANSFER, copied.getCopyMethod());
+    assertEquals(source.length(), copied.getBytesCopied());
+    assertFalse(copied.isCacheHit());
+    assertTrue(listener.imports.get(1).isCacheHit());
+  }
+
+  @Test
+  public void failedImportsReportTheError() {
+    Uri missing = Uri.withAppendedPath(DOCUMENTS, "missing");
+
+    RxFile.importFromUri(context, missing)
+        .onErrorResumeNext(Observable.<ImportResult>empty())
+        .subscribe();
+
+    assertEquals(1, listener.imports.size());
+    assertFalse(listener.imports.get(0).isSuccessful());
+    assertNull(listener.imports.get(0).getCopyMethod());
+  }
+
+  @Test
+  @Config(shadows = ShadowPhotoBitmapFactory.class)
+  public void sizedThumbnailsReportBoundsSampleSizeAndOrigin() throws IOException {
+    File photo = TestFiles.create(sources, "photo.png", 4 * 1024, TestFiles.PNG_SIGNATURE);
+
+    RxFile.getThumbnailFromPath(photo.getAbsolutePath(), 200, 200).toBlocking().single();
+    RxFile.getThumbnailFromPath(photo.getAbsolutePath(), 200, 200).toBlocking().single();
+
+    assertEquals(2, listener.thumbnails.size());
+    ThumbnailEvent decoded = listener.thumbnails.get(0);
+    assertEquals(ThumbnailEvent.Origin.DECODED, decoded.getOrigin());
+    assertEquals(4000, decoded.getSourceWidth());
+    assertEquals(3000, decoded.getSourceHeight());
+    assertTrue(decoded.getSampleSize() > 1);
+    assertEquals(267, decoded.getWidth());
+    assertEquals(200, decoded.getHeight());
+    assertNull(decoded.getAuthority());
+    assertEquals(ThumbnailEvent.Origin.MEMORY_CACHE, listener.thumbnails.get(1).getOrigin());
+  }
+
+  @Test
+  public void readsAndMappingsReportTheBytesTheyWentThrough() throws IOException {
+    File source = TestFiles.create(sources, "track.bin", 512 * 1024, null);
+    Uri uri = provider.add(DOCUMENTS, "track", "track.bin", null, source);
+
+    RxFile.readFromUri(context, uri).toList().toBlocking().single();
+    RxFile.mapFromUri(context, uri, new Func1<MappedFileView, Observable<Long>>() {
+      @Override
+      public Observable<Long> call(MappedFileView view) {
+        return Observable.just(view.size());
+      }
+    }).toBlocking().single();
+
+    assertEquals(2, listener.operations.size());
+    OperationEvent read = listener.operations.get(0);
+    assertEquals(OperationEvent.Operation.READ, read.getOperation());
+    assertEquals(FakeContentProvider.AUTHORITY, read.getAuthority());
+    assertEquals(source.length(), read.getCount());
+    assertTrue(read.isCompleted());
+    OperationEvent mapped = listener.operations.get(1);
+    assertEquals(OperationEvent.Operation.MAP, mapped.getOperation());
+    assertEquals(source.length(), mapped.getCount());
+    assertTrue(mapped.isCompleted());
+  }
+
+  @Test
+  public void unsubscribedReadIsReportedOnceAsIncomplete() throws IOException {
+    File source = TestFiles.create(sources, "long.bin", 4 * 1024 * 1024, null);
+    Uri uri = provider.add(DOCUMENTS, "long", "long.bin", null, source);
+
+    RxFile.readFromUri(context, uri).take(1).toBlocking().single();
+
+    assertEquals(1, listener.operations.size());
+    OperationEvent read = listener.operations.get(0);
+    assertFalse(read.isCompleted());
+    assertTrue(read.isSuccessful());
+    assertTrue(read.getCount() > 0 && read.getCount() < source.length());
+  }
+
+  private static final class RecordingListener extends RxFileListener {
+
+    final List<Uri> importsStarted = new CopyOnWriteArrayList<>();
+    final List<ImportEvent> imports = new CopyOnWriteArrayList<>();
+    final List<ThumbnailEvent> thumbnails = new CopyOnWriteArrayList<>();
+    final List<OperationEvent> operations = new CopyOnWriteArrayList<>();
+
+    @Override
+    public void onImportStarted(Uri uri) {
+      importsStarted.add(uri);
+    }
+
+    @Override
+    public void onImportFinished(ImportEvent event) {
+      imports.add(event);
+    }
+
+    @Override
+    public void onThumbnailFinished(ThumbnailEvent event) {
+      thumbnails.add(event);
+    }
+
+    @Override
+    public void onOperationFinished(OperationEvent event) {
+      operations.add(event);
+    }
+  }
+}
@@ -0,0 +1,125 @@
+package com.pavlospt.rxfile;
+
+import android.net.Uri;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import rx.Observable;
+import rx.functions.Func1;
+import rx.observers.TestSubscriber;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Copyright 2015 Pavlos-Petros Tournaris
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+@RunWith(RobolectricTestRunner.class)
+public class RxFileMappedViewTest extends DocumentsFixture {
+
+  @Test
+  public void randomReadsAcrossWindowsMatchTheFile() throws IOException {
+    File source = TestFiles.create(sources, "archive.zip", 64 * 1024 + 3, null);
+    byte[] bytes = Files.readAllBytes(source.toPath());
+    ByteBuffer expectedBig = ByteBuffer.wrap(bytes).order(ByteOrder.BIG_ENDIAN);
+    ByteBuffer expectedLittle = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+    RandomAccessFile file = new RandomAccessFile(source, "r");
+    MappedFileView view = new MappedFileView(file.getChannel(), file, 4096, 16);
+    Random random = new Random(7);
+
+    try {
+      assertEquals(bytes.length, view.size());
+      for (int i = 0; i < 1000; i++) {
+        int position = random.nextInt(bytes.length - 8);
+        assertEquals(bytes[position], view.get(position));
+        assertEquals(expectedBig.getInt(position), view.getInt(position, ByteOrder.BIG_ENDIAN));
+        assertEquals(expectedLittle.getLong(position),
+            view.getLong(position, ByteOrder.LITTLE_ENDIAN));
+        assertEquals(expectedLittle.getShort(position),
+            view.getShort(position, ByteOrder.LITTLE_ENDIAN));
+      }
+      byte[] straddling = new byte[10000];
+      view.get(4000, straddling, 0, straddling.length);
+      assertTrue(Arrays.equals(Arrays.copyOfRange(bytes, 4000, 14000), straddling));
+      assertEquals(ByteBuffer.wrap(bytes, 4090, 16), view.slice(4090, 16));
+      assertEquals(ByteBuffer.wrap(bytes, 4090, 5000), view.slice(4090, 5000));
+      assertTrue(view.slice(4090, 5000).isReadOnly());
+    } finally {
+      view.close();
+    }
+  }
+
+  @Test
+  public void viewOfAUriIsClosedWhenTheReaderCompletes() throws IOException {
+    File source = TestFiles.create(sources, "movie.mp4", 256 * 1024, null);
+    final byte[] bytes = Files.readAllBytes(source.toPath());
+    Uri uri = provider.add(DOCUMENTS, "movie", source.getName(), "video/mp4", source);
+    final AtomicReference<MappedFileView> mapped = new AtomicReference<>();
+
+    int tail = RxFile.mapFromUri(context, uri, new Func1<MappedFileView, Observable<Integer>>() {
+      @Override
+      public Observable<Integer> call(MappedFileView view) {
+        mapped.set(view);
+        try {
+          return Observable.just(view.getInt(view.size() - 4, ByteOrder.LITTLE_ENDIAN));
+        } catch (IOException e) {
+          return Observable.error(e);
+        }
+      }
+    }).toBlocking().single();
+
+    assertEquals(ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN).getInt(bytes.length - 4),
+        tail);
+    assertTrue(mapped.get().isClosed());
+    assertEquals(1, provider.getOpenCount());
+  }
+
+  @Test
+  public void viewIsClosedOnUnsubscription() throws IOException {
+    File source = TestFiles.create(sources, "index.bin", 8 * 1024, null);
+    final AtomicReference<MappedFileView> mapped = new AtomicReference<>();
+    TestSubscriber<Byte> subscriber = new TestSubscriber<>();
+
+    RxFile.mapFile(source, new Func1<MappedFileView, Observable<Byte>>() {
+      @Override
+      public Observable<Byte> call(MappedFileView view) {
+        mapped.set(view);
+        return Observable.never();
+      }
+    }).subscribe(subscriber);
+    assertFalse(mapped.get().isClosed());
+    subscriber.unsubscribe();
+
+    assertTrue(mapped.get().isClosed());
+    try {
+      mapped.get().get(0);
+      fail("Closed view should not be readable");
+    } catch (IllegalStateException expected) {
+      // expected
+    }
+  }
+}
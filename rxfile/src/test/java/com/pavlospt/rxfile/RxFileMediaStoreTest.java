@@ -0,0 +1,103 @@
+package com.pavlospt.rxfile;
+
+import android.content.Context;
+import android.net.Uri;
+import android.provider.MediaStore;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Copyright 2015 Pavlos-Petros Tournaris
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+@RunWith(RobolectricTestRunner.class)
+public class RxFileMediaStoreTest {
+
+  private static final Uri IMAGES = MediaStore.Images.Media.EXTERNAL_CONTENT_URI;
+
+  private Context context;
+  private FakeContentProvider provider;
+  private File sources;
+
+  @Before
+  public void setUp() {
+    context = RuntimeEnvironment.application;
+    provider = Robolectric.buildContentProvider(FakeContentProvider.class)
+        .create(MediaStore.AUTHORITY)
+        .get();
+    sources = new File(context.getFilesDir(), "media");
+    assertTrue(sources.isDirectory() || sources.mkdirs());
+    RxFile.clearUriResolutionCache();
+  }
+
+  @Test
+  public void pathFromMediaStoreIdIsQueriedOnce() throws IOException {
+    File source = TestFiles.create(sources, "IMG_0001.jpg", 1024, null);
+    provider.add(IMAGES, "1", source.getName(), "image/jpeg", source);
+
+    String first =
+        RxFile.getPathFromUriForImageDocument(context, "1").toBlocking().single();
+    String second =
+        RxFile.getPathFromUriForImageDocument(context, "1").toBlocking().single();
+
+    assertEquals(source.getAbsolutePath(), first);
+    assertEquals(first, second);
+    assertEquals(1, provider.getQueryCount());
+  }
+
+  @Test
+  public void pathsOfAGalleryAreQueriedInOneQuery() throws IOException {
+    List<Uri> uris = images(500);
+    Measurements measurements = new Measurements("paths of 500 images");
+    long start = System.nanoTime();
+    Map<Uri, String> paths = RxFile.getPathsFromUris(context, uris).toBlocking().single();
+    measurements.record(start);
+    measurements.report();
+
+    assertEquals(uris.size(), paths.size());
+    assertEquals(1, provider.getQueryCount());
+  }
+
+  @Test
+  public void pathsBeyondTheSelectionArgumentLimitAreQueriedInChunks() throws IOException {
+    List<Uri> uris = images(2500);
+
+    Map<Uri, String> paths = RxFile.getPathsFromUris(context, uris).toBlocking().single();
+
+    assertEquals(uris.size(), paths.size());
+    assertEquals(3, provider.getQueryCount());
+  }
+
+  private List<Uri> images(int count) throws IOException {
+    List<Uri> uris = new ArrayList<>();
+    for (int i = 1; i <= count; i++) {
+      File source = TestFiles.create(sources, "IMG_" + i + ".jpg", 64, null);
+      uris.add(provider.add(IMAGES, String.valueOf(i), source.getName(), "image/jpeg", source));
+    }
+    return uris;
+  }
+}
@@ -0,0 +1,122 @@
+package com.pavlospt.rxfile;
+
+import android.net.Uri;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import rx.Observable;
+import rx.functions.Action1;
+import rx.observers.TestSubscriber;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Copyright 2015 Pavlos-Petros Tournaris
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+@RunWith(RobolectricTestRunner.class)
+public class RxFileReadTest extends DocumentsFixture {
+
+  @Test
+  public void readEmitsTheBytesWithoutCopyingTheFile() throws IOException {
+    File source = TestFiles.create(sources, "upload.bin", 3 * 1024 * 1024 + 17, null);
+    Uri uri = provider.add(DOCUMENTS, "upload", source.getName(), null, source);
+    final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+    RxFile.readFromUri(context, uri).toBlocking().forEach(new Action1<ByteBuffer>() {
+      @Override
+      public void call(ByteBuffer chunk) {
+        assertTrue(chunk.isReadOnly());
+        byte[] copy = new byte[chunk.remaining()];
+        chunk.get(copy);
+        bytes.write(copy, 0, copy.length);
+      }
+    });
+
+    assertTrue(Arrays.equals(Files.readAllBytes(source.toPath()), bytes.toByteArray()));
+    assertEquals(1, provider.getOpenCount());
+  }
+
+  @Test
+  public void chunksAreOnlyReadWhenRequestedAndBuffersGoBackToThePool() throws IOException {
+    File source = TestFiles.create(sources, "large.bin", 4 * 1024 * 1024, null);
+    Uri uri = provider.add(DOCUMENTS, "large", source.getName(), null, source);
+    BufferPoolStats before = RxFile.getBufferPoolStats();
+    TestSubscriber<ByteBuffer> subscriber = new TestSubscriber<>(0);
+
+    RxFile.readFromUri(context, uri).subscribe(subscriber);
+    subscriber.assertNoValues();
+    subscriber.requestMore(2);
+    subscriber.assertValueCount(2);
+    subscriber.unsubscribe();
+
+    BufferPoolStats after = RxFile.getBufferPoolStats();
+    assertEquals(2, after.getAcquireCount() - before.getAcquireCount());
+    assertEquals(2, after.getReleaseCount() - before.getReleaseCount());
+  }
+
+  @Test
+  public void streamIsClosedOnUnsubscription() throws IOException {
+    final File source = TestFiles.create(sources, "closed.bin", 1024 * 1024, null);
+    final AtomicBoolean closed = new AtomicBoolean();
+    Observable<ByteBuffer> chunks = Observable.create(new ChunkedReader(
+        new Callable<FileInputStream>() {
+          @Override
+          public FileInputStream call() throws IOException {
+            return new FileInputStream(source) {
+              @Override
+              public void close() throws IOException {
+                closed.set(true);
+                super.close();
+              }
+            };
+          }
+        }, new BufferPool(BufferPool.DEFAULT_MAX_POOLED_BYTES)));
+
+    chunks.take(1).toBlocking().single();
+    assertTrue(closed.getAndSet(false));
+
+    chunks.toList().toBlocking().single();
+    assertTrue(closed.get());
+  }
+
+  @Test
+  public void unrequestedStreamIsNeverOpened() {
+    final AtomicBoolean opened = new AtomicBoolean();
+    TestSubscriber<ByteBuffer> subscriber = new TestSubscriber<>(0);
+
+    Observable.create(new ChunkedReader(new Callable<FileInputStream>() {
+      @Override
+      public FileInputStream call() throws IOException {
+        opened.set(true);
+        throw new IOException("Not expected to be opened");
+      }
+    }, new BufferPool(BufferPool.DEFAULT_MAX_POOLED_BYTES))).subscribe(subscriber);
+    subscriber.unsubscribe();
+
+    assertFalse(opened.get());
+  }
+}
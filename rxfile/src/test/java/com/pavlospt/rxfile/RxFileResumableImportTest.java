@@ -0,0 +1,131 @@
+package com.pavlospt.rxfile;
+
+import android.net.Uri;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import rx.functions.Action1;
+import rx.functions.Func1;
+import rx.observers.TestSubscriber;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Copyright 2015 Pavlos-Petros Tournaris
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+@RunWith(RobolectricTestRunner.class)
+public class RxFileResumableImportTest extends DocumentsFixture {
+
+  private static final int SOURCE_SIZE = 24 * 1024 * 1024;
+  private static final long CANCEL_AFTER_BYTES = 10 * 1024 * 1024;
+
+  @Test
+  public void cancelledImportIsResumedWhereItStopped() throws IOException {
+    File source = TestFiles.create(sources, "recording.mp4", SOURCE_SIZE, null);
+    Uri uri = provider.add(DOCUMENTS, "recording", source.getName(), "video/mp4", source);
+
+    ImportProgress cancelled = importUntilCancelled(uri);
+    ImportResult resumed = completeImport(uri);
+
+    assertFalse(cancelled.isComplete());
+    assertTrue(resumed.getResumedBytes() >= CANCEL_AFTER_BYTES);
+    assertEquals(SOURCE_SIZE, resumed.getResumedBytes() + resumed.getBytesCopied());
+    assertTrue(Arrays.equals(Files.readAllBytes(source.toPath()),
+        Files.readAllBytes(resumed.getFile().toPath())));
+    File entryDirectory = resumed.getFile().getParentFile();
+    assertFalse(new File(entryDirectory, ImportCheckpoint.PARTIAL_FILE_NAME).exists());
+    assertFalse(new File(entryDirectory, ImportCheckpoint.CHECKPOINT_FILE_NAME).exists());
+  }
+
+  @Test
+  public void changedSourceIsImportedFromTheBeginning() throws IOException {
+    File source = TestFiles.create(sources, "screen.mp4", SOURCE_SIZE, null);
+    Uri uri = provider.add(DOCUMENTS, "screen", source.getName(), "video/mp4", source);
+    importUntilCancelled(uri);
+
+    byte[] changed = Files.readAllBytes(source.toPath());
+    changed[0] ^= 1;
+    Files.write(source.toPath(), changed);
+    assertTrue(source.setLastModified(source.lastModified() + 60 * 1000));
+    ImportResult result = completeImport(uri);
+
+    assertEquals(0, result.getResumedBytes());
+    assertEquals(SOURCE_SIZE, result.getBytesCopied());
+    assertTrue(Arrays.equals(changed, Files.readAllBytes(result.getFile().toPath())));
+  }
+
+  @Test
+  public void completedImportIsServedFromTheCache() throws IOException {
+    File source = TestFiles.create(sources, "clip.mp4", 1024 * 1024, null);
+    Uri uri = provider.add(DOCUMENTS, "clip", source.getName(), "video/mp4", source);
+
+    completeImport(uri);
+    ImportResult second = completeImport(uri);
+
+    assertEquals(CopyMethod.CACHED, second.getCopyMethod());
+    assertEquals(1, provider.getOpenCount());
+  }
+
+  @Test
+  public void concurrentImportsShareOneCopy() throws IOException {
+    File source = TestFiles.create(sources, "talk.mp4", SOURCE_SIZE, null);
+    final Uri uri = provider.add(DOCUMENTS, "talk", source.getName(), "video/mp4", source);
+    final TestSubscriber<ImportProgress> joined = new TestSubscriber<>();
+
+    ImportResult first = RxFile.importFromUriResumable(context, uri, 0, 1024 * 1024)
+        .doOnNext(new Action1<ImportProgress>() {
+          @Override
+          public void call(ImportProgress progress) {
+            // Join while the copy is halfway.
+            if (!joined.isUnsubscribed() && joined.getValueCount() == 0
+                && progress.getBytesCopied() >= CANCEL_AFTER_BYTES) {
+              RxFile.importFromUriResumable(context, uri).subscribe(joined);
+            }
+          }
+        })
+        .toBlocking()
+        .last()
+        .getResult();
+
+    joined.assertNoErrors();
+    joined.assertCompleted();
+    ImportProgress last = joined.getOnNextEvents().get(joined.getValueCount() - 1);
+    assertTrue(first == last.getResult());
+    assertEquals(1, provider.getOpenCount());
+  }
+
+  private ImportProgress importUntilCancelled(Uri uri) {
+    return RxFile.importFromUriResumable(context, uri, 0, 1024 * 1024)
+        .takeUntil(new Func1<ImportProgress, Boolean>() {
+          @Override
+          public Boolean call(ImportProgress progress) {
+            return progress.getBytesCopied() >= CANCEL_AFTER_BYTES;
+          }
+        })
+        .toBlocking()
+        .last();
+  }
+
+  private ImportResult completeImport(Uri uri) {
+    return RxFile.importFromUriResumable(context, uri).toBlocking().last().getResult();
+  }
+}
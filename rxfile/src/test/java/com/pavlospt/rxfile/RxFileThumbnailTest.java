@@ -0,0 +1,203 @@
+package com.pavlospt.rxfile;
+
+import android.graphics.Bitmap;
+import android.net.Uri;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import rx.observers.TestSubscriber;
+import rx.schedulers.TestScheduler;
+import rx.subjects.PublishSubject;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Copyright 2015 Pavlos-Petros Tournaris
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+@RunWith(RobolectricTestRunner.class)
+@Config(shadows = ShadowPhotoBitmapFactory.class)
+public class RxFileThumbnailTest extends DocumentsFixture {
+
+  private static final int THUMBNAIL_SIZE = 200;
+  // The 4000x3000 photo is sampled by 8 to 500x375, then scaled to cover 200x200.
+  private static final int SAMPLE_SIZE = 8;
+  private static final int SAMPLED_WIDTH = 267;
+  private static final int SAMPLED_HEIGHT = 200;
+  // A sized decode never asks for more than the ARGB_8888 pixels covering the requested size.
+  private static final int THUMBNAIL_BUDGET_BYTES = SAMPLED_WIDTH * SAMPLED_HEIGHT * 4;
+
+  private static final int LATENCY_COUNT = 100;
+  private static final int BATCH_COUNT = 64;
+
+  @Before
+  public void setUp() {
+    RxFile.clearThumbnailCache();
+    RxFile.clearBitmapPool();
+    ShadowPhotoBitmapFactory.takeDecodes();
+  }
+
+  @Test
+  public void sizedPathThumbnailIsDecodedSampledDown() throws IOException {
+    File photo = TestFiles.create(sources, "photo.png", 4 * 1024, TestFiles.PNG_SIGNATURE);
+
+    Bitmap thumbnail = RxFile.getThumbnailFromPath(photo.getAbsolutePath(), THUMBNAIL_SIZE,
+        THUMBNAIL_SIZE).toBlocking().single();
+
+    assertEquals(SAMPLED_WIDTH, thumbnail.getWidth());
+    assertEquals(SAMPLED_HEIGHT, thumbnail.getHeight());
+    assertSampledDown(ShadowPhotoBitmapFactory.takeDecodes(), 1);
+  }
+
+  @Test
+  public void sizedPathThumbnailIsServedFromTheCache() throws IOException {
+    File photo = TestFiles.create(sources, "cached.png", 4 * 1024, TestFiles.PNG_SIGNATURE);
+    long hitsBefore = RxFile.getThumbnailCacheStats().getHitCount();
+
+    Bitmap first = RxFile.getThumbnailFromPath(photo.getAbsolutePath(), THUMBNAIL_SIZE,
+        THUMBNAIL_SIZE).toBlocking().single();
+    Bitmap second = RxFile.getThumbnailFromPath(photo.getAbsolutePath(), THUMBNAIL_SIZE,
+        THUMBNAIL_SIZE).toBlocking().single();
+
+    assertTrue(first == second);
+    assertEquals(1, RxFile.getThumbnailCacheStats().getHitCount() - hitsBefore);
+    assertEquals(1, ShadowPhotoBitmapFactory.takeDecodes().size());
+  }
+
+  @Test
+  public void recycledThumbnailIsDroppedFromTheCache() throws IOException {
+    File photo = TestFiles.create(sources, "recycled.png", 4 * 1024, TestFiles.PNG_SIGNATURE);
+
+    Bitmap first = RxFile.getThumbnailFromPath(photo.getAbsolutePath(), THUMBNAIL_SIZE,
+        THUMBNAIL_SIZE).toBlocking().single();
+    first.recycle();
+    Bitmap second = RxFile.getThumbnailFromPath(photo.getAbsolutePath(), THUMBNAIL_SIZE,
+        THUMBNAIL_SIZE).toBlocking().single();
+
+    assertTrue(first != second);
+    assertFalse(second.isRecycled());
+    assertEquals(2, ShadowPhotoBitmapFactory.takeDecodes().size());
+  }
+
+  @Test
+  public void releasedThumbnailIsOnlyPooledOnceEveryoneReleasedIt() throws IOException {
+    File photo = TestFiles.create(sources, "shared.png", 4 * 1024, TestFiles.PNG_SIGNATURE);
+
+    Bitmap first = RxFile.getThumbnailFromPath(photo.getAbsolutePath(), THUMBNAIL_SIZE,
+        THUMBNAIL_SIZE).toBlocking().single();
+    RxFile.releaseThumbnail(first);
+    Bitmap second = RxFile.getThumbnailFromPath(photo.getAbsolutePath(), THUMBNAIL_SIZE,
+        THUMBNAIL_SIZE).toBlocking().single();
+    // Shadow bitmaps report no allocation, clearing the pool can not account for them.
+    int pooled = RxFile.getBitmapPoolStats().getPooledBitmaps();
+    RxFile.clearThumbnailCache();
+
+    assertTrue(first == second);
+    assertEquals(pooled, RxFile.getBitmapPoolStats().getPooledBitmaps());
+    RxFile.releaseThumbnail(second);
+    assertEquals(pooled + 1, RxFile.getBitmapPoolStats().getPooledBitmaps());
+  }
+
+  @Test
+  public void uriThumbnailsAreDecodedSampledDown() throws IOException {
+    List<Uri> uris = documents("latency", LATENCY_COUNT);
+    int queriesBefore = provider.getQueryCount();
+    Measurements measurements = new Measurements("uri thumbnail");
+    for (Uri uri : uris) {
+      long start = System.nanoTime();
+      Bitmap thumbnail =
+          RxFile.getThumbnail(context, uri, THUMBNAIL_SIZE, THUMBNAIL_SIZE).toBlocking().single();
+      measurements.record(start);
+      assertEquals(SAMPLED_WIDTH, thumbnail.getWidth());
+      assertEquals(SAMPLED_HEIGHT, thumbnail.getHeight());
+    }
+    measurements.report();
+
+    assertSampledDown(ShadowPhotoBitmapFactory.takeDecodes(), LATENCY_COUNT);
+    // The bounds pass and the decode share one seekable descriptor.
+    assertEquals(LATENCY_COUNT, provider.getOpenCount());
+    assertEquals(0, provider.getQueryCount() - queriesBefore);
+  }
+
+  @Test
+  public void batchThumbnailsAreDecodedSampledDown() throws IOException {
+    List<Uri> uris = documents("batch", BATCH_COUNT);
+    Measurements measurements = new Measurements("batch thumbnails");
+    long start = System.nanoTime();
+    List<Thumbnail> thumbnails = RxFile.getThumbnails(context, uris, THUMBNAIL_SIZE,
+        THUMBNAIL_SIZE).toList().toBlocking().single();
+    measurements.record(start);
+    measurements.report();
+
+    assertEquals(BATCH_COUNT, thumbnails.size());
+    assertSampledDown(ShadowPhotoBitmapFactory.takeDecodes(), BATCH_COUNT);
+    assertEquals(BATCH_COUNT, provider.getOpenCount());
+  }
+
+  @Test
+  public void lastWindowIsLoadedAfterTheWindowsComplete() throws IOException {
+    List<Uri> uris = documents("window", 3);
+    PublishSubject<List<Uri>> windows = PublishSubject.create();
+    TestScheduler scheduler = new TestScheduler();
+    TestSubscriber<Thumbnail> subscriber = new TestSubscriber<>();
+    RxFile.getThumbnails(context, windows, THUMBNAIL_SIZE, THUMBNAIL_SIZE, 2, scheduler)
+        .subscribe(subscriber);
+
+    // The first Uri scrolls off-screen before anything is decoded, the others stay visible.
+    windows.onNext(uris.subList(0, 2));
+    windows.onNext(uris.subList(1, 3));
+    windows.onCompleted();
+    scheduler.triggerActions();
+
+    subscriber.assertNoErrors();
+    subscriber.assertCompleted();
+    Set<Uri> loaded = new HashSet<>();
+    for (Thumbnail thumbnail : subscriber.getOnNextEvents()) {
+      loaded.add(thumbnail.getUri());
+    }
+    assertEquals(new HashSet<>(uris.subList(1, 3)), loaded);
+  }
+
+  private static void assertSampledDown(List<ShadowPhotoBitmapFactory.Decode> decodes,
+      int count) {
+    assertEquals(count, decodes.size());
+    for (ShadowPhotoBitmapFactory.Decode decode : decodes) {
+      assertEquals(decode.toString(), SAMPLE_SIZE, decode.sampleSize);
+      assertEquals(decode.toString(), SAMPLED_WIDTH, decode.width);
+      assertEquals(decode.toString(), SAMPLED_HEIGHT, decode.height);
+      assertTrue(decode.toString(), decode.byteCount() <= THUMBNAIL_BUDGET_BYTES);
+    }
+  }
+
+  private List<Uri> documents(String prefix, int count) throws IOException {
+    List<Uri> uris = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      File source =
+          TestFiles.create(sources, prefix + "-" + i + ".png", 4 * 1024, TestFiles.PNG_SIGNATURE);
+      uris.add(provider.add(DOCUMENTS, prefix + "-" + i, source.getName(), "image/png", source));
+    }
+    return uris;
+  }
+}
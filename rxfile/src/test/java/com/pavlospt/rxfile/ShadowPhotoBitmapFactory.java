@@ -0,0 +1,133 @@
+package com.pavlospt.rxfile;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Rect;
+import java.io.FileDescriptor;
+import java.util.ArrayList;
+import java.util.List;
+import org.robolectric.annotation.Implementation;
+import org.robolectric.annotation.Implements;
+import org.robolectric.shadows.ShadowBitmap;
+import org.robolectric.shadows.ShadowBitmapFactory;
+
+import static org.robolectric.Shadows.shadowOf;
+
+/**
+ * Copyright 2015 Pavlos-Petros Tournaris
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+/*
+ * Decodes every file and file descriptor as a photo of PHOTO_WIDTH x PHOTO_HEIGHT, sampled and
+ * scaled as the options ask, like BitmapFactory does. Bounds passes only report the size.
+ *
+ * Shadow bitmaps hold no pixels, so every decode is kept as the Decode the platform would have
+ * been asked for, for the tests to check what a device would allocate.
+ * */
+@Implements(BitmapFactory.class)
+public class ShadowPhotoBitmapFactory extends ShadowBitmapFactory {
+
+  static final int PHOTO_WIDTH = 4000;
+  static final int PHOTO_HEIGHT = 3000;
+
+  private static final List<Decode> DECODES = new ArrayList<>();
+
+  @Implementation
+  public static Bitmap decodeFileDescriptor(FileDescriptor fd, Rect outPadding,
+      BitmapFactory.Options options) {
+    return decode(options);
+  }
+
+  @Implementation
+  public static Bitmap decodeFile(String pathName, BitmapFactory.Options options) {
+    return decode(options);
+  }
+
+  /*
+   * Every decode since the last call, bounds passes left out.
+   * */
+  static List<Decode> takeDecodes() {
+    synchronized (DECODES) {
+      List<Decode> decodes = new ArrayList<>(DECODES);
+      DECODES.clear();
+      return decodes;
+    }
+  }
+
+  private static Bitmap decode(BitmapFactory.Options options) {
+    if (options == null) {
+      options = new BitmapFactory.Options();
+    }
+    options.outWidth = PHOTO_WIDTH;
+    options.outHeight = PHOTO_HEIGHT;
+    if (options.inJustDecodeBounds) {
+      return null;
+    }
+    int sampleSize = Math.max(1, options.inSampleSize);
+    int width = ThumbnailSizing.sampledSize(PHOTO_WIDTH, sampleSize);
+    int height = ThumbnailSizing.sampledSize(PHOTO_HEIGHT, sampleSize);
+    if (options.inScaled && options.inDensity > 0 && options.inTargetDensity > 0) {
+      float scale = (float) options.inTargetDensity / options.inDensity;
+      width = (int) (width * scale + 0.5f);
+      height = (int) (height * scale + 0.5f);
+    }
+    Bitmap.Config config = options.inPreferredConfig != null
+        ? options.inPreferredConfig : Bitmap.Config.ARGB_8888;
+    Bitmap bitmap = options.inBitmap;
+    synchronized (DECODES) {
+      DECODES.add(new Decode(sampleSize, width, height, config, bitmap != null));
+    }
+    if (bitmap == null) {
+      bitmap = Bitmap.createBitmap(width, height, config);
+      shadowOf(bitmap).setMutable(options.inMutable);
+    } else {
+      ShadowBitmap reused = shadowOf(bitmap);
+      reused.setWidth(width);
+      reused.setHeight(height);
+      reused.setConfig(config);
+    }
+    return bitmap;
+  }
+
+  /*
+   * What a decode asked the platform for.
+   * */
+  static final class Decode {
+
+    final int sampleSize;
+    final int width;
+    final int height;
+    final Bitmap.Config config;
+    final boolean reused;
+
+    Decode(int sampleSize, int width, int height, Bitmap.Config config, boolean reused) {
+      this.sampleSize = sampleSize;
+      this.width = width;
+      this.height = height;
+      this.config = config;
+      this.reused = reused;
+    }
+
+    int byteCount() {
+      return width * height * ShadowBitmap.getBytesPerPixel(config);
+    }
+
+    @Override
+    public String toString() {
+      return width + "x" + height + " " + config + " sampled by " + sampleSize;
+    }
+  }
+}
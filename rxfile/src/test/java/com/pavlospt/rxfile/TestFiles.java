@@ -0,0 +1,54 @@
+package com.pavlospt.rxfile;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Random;
+
+/**
+ * Copyright 2015 Pavlos-Petros Tournaris
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/*
+ * Generated source files for the tests.
+ * */
+final class TestFiles {
+
+  static final byte[] PNG_SIGNATURE = {
+      (byte) 0x89, 'P', 'N', 'G', 0x0D, 0x0A, 0x1A, 0x0A
+  };
+
+  private TestFiles() {
+  }
+
+  /*
+   * A file of the given size in the directory, random bytes after the given head.
+   * */
+  static File create(File directory, String name, int size, byte[] head) throws IOException {
+    byte[] content = new byte[size];
+    new Random(name.hashCode()).nextBytes(content);
+    if (head != null) {
+      System.arraycopy(head, 0, content, 0, Math.min(head.length, size));
+    }
+    File file = new File(directory, name);
+    FileOutputStream out = new FileOutputStream(file);
+    try {
+      out.write(content);
+    } finally {
+      out.close();
+    }
+    return file;
+  }
+}